@@ -48,14 +48,22 @@ import hudson.model.WorkspaceCleanupThread;
 import hudson.model.listeners.RunListener;
 import hudson.plugins.clearcase.changelog.ClearCaseChangeLogSet;
 import hudson.plugins.clearcase.checkout.CheckoutAction;
+import hudson.plugins.clearcase.checkout.NodeCheckout;
+import hudson.plugins.clearcase.checkout.ViewPool;
+import hudson.plugins.clearcase.checkout.ViewPreparer;
 import hudson.plugins.clearcase.cleartool.CTLauncher;
 import hudson.plugins.clearcase.cleartool.ClearTool;
 import hudson.plugins.clearcase.cleartool.ClearToolDynamic;
 import hudson.plugins.clearcase.cleartool.ClearToolSnapshot;
+import hudson.plugins.clearcase.history.ActivityCache;
+import hudson.plugins.clearcase.history.ChangeFeed;
+import hudson.plugins.clearcase.history.ClearCaseRevisionState;
 import hudson.plugins.clearcase.history.Filter;
 import hudson.plugins.clearcase.history.Filter.DefaultFilter;
 import hudson.plugins.clearcase.history.Filter.DestroySubBranchFilter;
 import hudson.plugins.clearcase.history.Filter.FileFilter;
+import hudson.plugins.clearcase.history.Filter.LoadRuleFilter;
+import hudson.plugins.clearcase.history.FilterChain;
 import hudson.plugins.clearcase.history.HistoryAction;
 import hudson.plugins.clearcase.log.ClearCaseLogger;
 import hudson.plugins.clearcase.log.ClearToolLogAction;
@@ -64,11 +72,14 @@ import hudson.plugins.clearcase.objects.ClearCaseConfiguration;
 import hudson.plugins.clearcase.objects.View;
 import hudson.plugins.clearcase.util.CCParametersAction;
 import hudson.plugins.clearcase.util.ClearToolError;
+import hudson.plugins.clearcase.trigger.TriggerEvent;
 import hudson.plugins.clearcase.util.Tools;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.PollingResult;
+import hudson.scm.PollingResult.Change;
 import hudson.scm.SCMRevisionState;
 import hudson.scm.SCM;
+import hudson.triggers.SCMTrigger;
 
 import java.io.File;
 import java.io.IOException;
@@ -173,6 +184,7 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	@Override
 	public boolean checkout(@SuppressWarnings("rawtypes") AbstractBuild build, Launcher l, FilePath workspace, BuildListener listener, File changelogFile) throws IOException, InterruptedException
 	{
+		ClearTool cleartool = null;
 		try {
 			File ctLogFile = ClearToolLogFile.getCleartoolLogFile(build);
 			ClearCaseLogger logger = new ClearCaseLogger(listener, ctLogFile);
@@ -210,16 +222,39 @@ public abstract class AbstractClearCaseSCM extends SCM {
 			View view = getView();
 			view.setViewPath(getExtendedViewPath(workspace));
 
-			ClearTool cleartool = createClearTool(config.getCleartoolExe(), workspace, build
+			cleartool = createClearTool(config.getCleartoolExe(), workspace, build
 					.getBuiltOn().getRootPath(), env, ctLogFile, null);
 
 			CheckoutAction checkoutAction = createCheckoutAction(cleartool, logger, view,
 					storageLocation, ccCmdDelay);
+			setViewPool(checkoutAction);
+			checkoutAction.setLoadParallelism(ClearCaseBaseSCM.BASE_DESCRIPTOR.getLoadParallelism());
+			boolean nodeCheckout = ClearCaseBaseSCM.BASE_DESCRIPTOR.isCheckoutOnNode()
+					&& checkoutAction.isNodeCheckoutSupported();
+			if (!nodeCheckout) {
+				/* the checkout on the node opens its own session there */
+				openCleartoolSession(cleartool, logger);
+			}
 
 			// Checkout source files
-			checkoutAction.checkout(build, listener);
+			String viewId = ViewPreparer.id(build.getBuiltOnStr(), view.getName());
+			ViewPreparer.getInstance().beginCheckout(viewId, logger);
+			try {
+				if (nodeCheckout) {
+					logger.log("Running the checkout on the node...");
+					NodeCheckout.checkout(checkoutAction, build.getWorkspace(), listener,
+							ClearCaseBaseSCM.BASE_DESCRIPTOR.isUseCleartoolSession());
+				} else {
+					checkoutAction.checkout(build, listener);
+				}
+			} finally {
+				ViewPreparer.getInstance().endCheckout(viewId);
+			}
 
-			publishBuildVariables(build);
+			/* the view may have been leased from the view pool */
+			getEnv().put(CLEARCASE_VIEWNAME_ENVSTR, view.getName());
+			getEnv().put(CLEARCASE_VIEWPATH_ENVSTR, view.getViewPath());
+			publishBuildVariables(build, view);
 
 			/*
 			 * This is a nasty hack for allowing other plugins to work when using clearcase views.
@@ -243,7 +278,7 @@ public abstract class AbstractClearCaseSCM extends SCM {
 				String customWorkspace = env.expand(this.customWorkspace);
 				if (!new File(customWorkspace).isAbsolute()) {
 					// relative path, we resolve it against the root of the view
-					customWorkspace = Tools.joinPaths(getExtendedViewPath(workspace),
+					customWorkspace = Tools.joinPaths(view.getViewPath(),
 							customWorkspace, Tools.fileSep(workspace));
 				}
 
@@ -297,6 +332,10 @@ public abstract class AbstractClearCaseSCM extends SCM {
 			e.printStackTrace(listener.getLogger());
 			build.setResult(Result.FAILURE);
 			return false;
+		} finally {
+			if (cleartool != null) {
+				cleartool.getLauncher().closeSession();
+			}
 		}
 
 		return true;
@@ -316,7 +355,18 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	/** override method {@link hudson.scm.SCM#requiresWorkspaceForPolling()} */
 	@Override
 	public boolean requiresWorkspaceForPolling() {
-		return true;
+		return !canPollWithoutWorkspace();
+	}
+
+	/**
+	 * Tells if the history can be read on the polling node of the global configuration, through a
+	 * dynamic view: the view of the job if it uses dynamic views, the shared polling view
+	 * otherwise.
+	 */
+	protected boolean canPollWithoutWorkspace() {
+		ClearCaseBaseSCMDescriptor descriptor = ClearCaseBaseSCM.BASE_DESCRIPTOR;
+		return descriptor.isPollWithoutWorkspace()
+				&& (useDynamicView || descriptor.getPollingViewTag() != null);
 	}
 
 	protected void publishEnvVars(FilePath workspace, EnvVars env) {
@@ -430,11 +480,7 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	throws IOException, InterruptedException
 	{
 		try {
-			if (pollForChanges(project, launcher, workspace, listener)) {
-				return PollingResult.SIGNIFICANT;
-			} else {
-				return PollingResult.NO_CHANGES;
-			}
+			return pollForChanges(project, launcher, workspace, listener, baseline);
 		} catch (ClearToolError e) {
 			listener.getLogger().println(e.toString());
 			/*
@@ -449,8 +495,22 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	@Override
 	public SCMRevisionState calcRevisionsFromBuild(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener) throws IOException, InterruptedException
 	{
-		/* not implemented */
-		return null;
+		/*
+		 * the builds which gathered a changelog already hold a state with the marks of the listed
+		 * events, this one is only used for the other builds
+		 */
+		return createRevisionState(build);
+	}
+
+	/**
+	 * Creates a revision state without recorded events. Its marks are the date of the build,
+	 * corrected by the time shift between this server and the ClearCase server.
+	 */
+	protected ClearCaseRevisionState createRevisionState(Run<?, ?> build) {
+		Calendar buildTime = (Calendar) build.getTimestamp().clone();
+		buildTime.add(Calendar.SECOND, ClearCaseBaseSCM.BASE_DESCRIPTOR.getTimeShift());
+		return new ClearCaseRevisionState(loadRules, buildTime.getTime(),
+				1000L * 60 * multiSitePollBuffer);
 	}
 
 	protected boolean canGatherChangelog(ClearTool cleartool) {
@@ -458,12 +518,90 @@ public abstract class AbstractClearCaseSCM extends SCM {
 		return !pathsForLsHistory.isEmpty();
 	}
 
+	/**
+	 * Lets the history action reuse the UCM activities listed by the previous builds, if
+	 * configured.
+	 */
+	protected void setActivityCache(HistoryAction historyAction) {
+		int activityCacheDays = ClearCaseBaseSCM.BASE_DESCRIPTOR.getActivityCacheDays();
+		if (activityCacheDays > 0) {
+			historyAction.setActivityCache(ActivityCache.getInstance(),
+					activityCacheDays * 24L * 60 * 60 * 1000);
+		}
+	}
+
+	/**
+	 * Lets the snapshot views that would be removed and created by every build be leased from
+	 * the view pool of the node instead, if configured.
+	 */
+	protected void setViewPool(CheckoutAction checkoutAction) {
+		int viewPoolSize = ClearCaseBaseSCM.BASE_DESCRIPTOR.getViewPoolSize();
+		if (viewPoolSize > 0 && !isUseDynamicView() && !isUseUpdate()) {
+			checkoutAction.setViewPool(ViewPool.getInstance(), viewPoolSize,
+					ClearCaseBaseSCM.BASE_DESCRIPTOR.getViewPoolIdleMinutes() * 60L * 1000);
+		}
+	}
+
+	/**
+	 * Brings the snapshot view of the last build up to date on its node, while the next build
+	 * waits in the queue, see {@link ViewPreparer}.
+	 * 
+	 * @return true if the view was updated
+	 */
+	public boolean prepareView(AbstractBuild<?, ?> lastBuild) throws IOException,
+			InterruptedException, ClearToolError
+	{
+		CCParametersAction params = lastBuild.getAction(CCParametersAction.class);
+		Node node = lastBuild.getBuiltOn();
+		if (params == null || node == null || node.getChannel() == null) {
+			return false;
+		}
+		StringParameterValue viewName = params.getParameter(CLEARCASE_VIEWNAME_ENVSTR);
+		StringParameterValue viewPath = params.getParameter(CLEARCASE_VIEWPATH_ENVSTR);
+		if (viewName == null || viewPath == null) {
+			return false;
+		}
+
+		EnvVars env = lastBuild.getEnvironment(TaskListener.NULL);
+		if (getEnv() == null)
+			this.setEnv(env);
+
+		FilePath workspace = new FilePath(node.getChannel(), viewPath.value).getParent();
+		ClearCaseConfiguration config = fetchClearCaseConfig(node.getNodeName());
+		ClearTool ct = createClearTool(config.getCleartoolExe(), workspace, node.getRootPath(),
+				env, null, node.createLauncher(TaskListener.NULL));
+		View view = createView(viewName.value);
+		view.setViewPath(viewPath.value);
+		CheckoutAction checkoutAction = createCheckoutAction(ct, new ClearCaseLogger(
+				TaskListener.NULL, null), view, Util.fixEmptyAndTrim(config.getStgloc()),
+				config.getccCmdDelay());
+		checkoutAction.setLoadParallelism(ClearCaseBaseSCM.BASE_DESCRIPTOR.getLoadParallelism());
+		return checkoutAction.prepare(workspace);
+	}
+
+	/**
+	 * @return the tag of the view of the build, or null if unknown
+	 */
+	public String getBuildViewName(AbstractBuild<?, ?> build) {
+		CCParametersAction params = build.getAction(CCParametersAction.class);
+		if (params == null || params.getParameter(CLEARCASE_VIEWNAME_ENVSTR) == null) {
+			return null;
+		}
+		return params.getParameter(CLEARCASE_VIEWNAME_ENVSTR).value;
+	}
+
 	protected ClearCaseChangeLogSet<? extends ChangeLogSet.Entry> gatherChangelog(AbstractBuild<?, ?> build, ClearCaseLogger logger, View view, ClearTool cleartool) throws IOException, InterruptedException, ClearToolError
 	{
 		ClearCaseChangeLogSet<? extends ChangeLogSet.Entry> changes = null;
 
 		if (build.getPreviousBuild() != null) {
 			HistoryAction historyAction = createHistoryAction(cleartool);
+			historyAction.setExtendedViewPath(view.getViewPath());
+			historyAction.setParallelism(fetchClearCaseConfig(Computer.currentComputer().getName())
+					.getLsHistoryParallelism());
+			setActivityCache(historyAction);
+			ClearCaseRevisionState revisionState = createRevisionState(build);
+			historyAction.setRevisionState(revisionState);
 
 			Run<?, ?> prevBuild = build.getPreviousBuild();
 			Date lastBuildTime;
@@ -479,6 +617,8 @@ public abstract class AbstractClearCaseSCM extends SCM {
 
 			changes = historyAction.getChanges(build, lastBuildTime, view, getBranchNames(),
 					getLsHistoryPaths(cleartool));
+			/* the next polls will start from the newest listed events */
+			build.addAction(revisionState);
 		}
 
 		return changes;
@@ -561,10 +701,13 @@ public abstract class AbstractClearCaseSCM extends SCM {
 			Pattern.CASE_INSENSITIVE);
 
 	protected List<Filter> configureFilters(ClearTool ct) {
+		return configureFilters(getLsHistoryPaths(ct));
+	}
+
+	private List<Filter> configureFilters(List<String> loadRules) {
 		List<Filter> filters = new ArrayList<Filter>();
 		filters.add(new DefaultFilter());
 		String[] excludedStrings = getExcludedRegionsNormalized();
-		boolean windows = Tools.isWindows(ct.getWorkspace());
 
 		if (excludedStrings != null && excludedStrings.length > 0) {
 			for (String s : excludedStrings) {
@@ -573,10 +716,8 @@ public abstract class AbstractClearCaseSCM extends SCM {
 				}
 			}
 		}
-		List<String> loadRules = getLsHistoryPaths(ct);
 		if (loadRules != null && !loadRules.isEmpty()) {
-			filters.add(new FileFilter(FileFilter.Type.ContainsRegxp, Tools
-					.createFileFilterPattern(loadRules, windows)));
+			filters.add(new LoadRuleFilter(loadRules));
 		}
 		if (isFilteringOutDestroySubBranchEvent()) {
 			filters.add(new DestroySubBranchFilter());
@@ -584,21 +725,71 @@ public abstract class AbstractClearCaseSCM extends SCM {
 		return filters;
 	}
 
+	/**
+	 * Tells if an event sent by a ClearCase trigger concerns this job: the event must be on one of
+	 * the branches or on the stream of the job and, if it is about an element, the element must
+	 * pass the filters of the job, load rules included. The events matched before the first build
+	 * of the job are ignored, as when polling. Only the jobs that poll their SCM are triggered,
+	 * the events replace their next poll: the jobs built by hand are left alone.
+	 */
+	public boolean isAffectedBy(AbstractProject<?, ?> project, TriggerEvent event)
+			throws IOException, InterruptedException
+	{
+		if (project.getTrigger(SCMTrigger.class) == null) {
+			return false;
+		}
+		Run<?, ?> lastBuild = project.getLastBuild();
+		if (lastBuild == null) {
+			return false;
+		}
+		if (getEnv() == null) {
+			this.setEnv(lastBuild.getEnvironment(TaskListener.NULL));
+		}
+
+		boolean onBranch = false;
+		for (String branch : getBranchNames()) {
+			if (event.getBranchNames().contains(branch)) {
+				onBranch = true;
+				break;
+			}
+		}
+		if (!onBranch) {
+			return false;
+		}
+		if (!event.hasElement()) {
+			/* deliver or baseline on the stream */
+			return true;
+		}
+
+		boolean windows = event.getPath().indexOf('\\') != -1;
+		List<String> loadRules = this.lsHistoryPaths;
+		if (loadRules == null) {
+			loadRules = getViewPaths(windows);
+		}
+		return FilterChain.compile(configureFilters(loadRules)).accept(
+				event.toHistoryEntry());
+	}
+
 	/**
 	 * This method is called by {@link #compareRemoteRevisionWith()}
 	 */
-	private boolean pollForChanges(AbstractProject<?, ?> project, Launcher launcher,
-			FilePath workspace, TaskListener listener) throws IOException, InterruptedException,
-			ClearToolError
+	private PollingResult pollForChanges(AbstractProject<?, ?> project, Launcher launcher,
+			FilePath workspace, TaskListener listener, SCMRevisionState baseline)
+			throws IOException, InterruptedException, ClearToolError
 			{
 		Run<?, ?> lastBuild = project.getLastBuild();
 		if (lastBuild == null) {
 			throw new ClearToolError("No previous build has been found, "
 					+ "please launch the build manually.");
 		}
-		Calendar buildTime = lastBuild.getTimestamp();
-		int shift = ClearCaseBaseSCM.BASE_DESCRIPTOR.getTimeShift() - getMultiSitePollBuffer();
-		buildTime.add(Calendar.SECOND, shift);
+		ClearCaseRevisionState baselineState;
+		if (baseline instanceof ClearCaseRevisionState
+				&& ((ClearCaseRevisionState) baseline).isCompatible(loadRules)) {
+			baselineState = (ClearCaseRevisionState) baseline;
+		} else {
+			baselineState = createRevisionState(lastBuild);
+		}
+		ClearCaseRevisionState remoteState = new ClearCaseRevisionState(baselineState);
 
 		CCParametersAction params = lastBuild.getAction(CCParametersAction.class);
 		if (params == null) {
@@ -635,33 +826,143 @@ public abstract class AbstractClearCaseSCM extends SCM {
 		//        }
 
 
+		boolean withoutWorkspace = workspace == null;
+		if (withoutWorkspace) {
+			/* see requiresWorkspaceForPolling() */
+			node = ClearCaseBaseSCM.BASE_DESCRIPTOR.resolvePollingNode();
+			workspace = node != null ? node.getRootPath() : null;
+			if (workspace == null) {
+				throw new ClearToolError("The polling node "
+						+ ClearCaseBaseSCM.BASE_DESCRIPTOR.getPollingNode()
+						+ " does not exist or is offline.");
+			}
+			launcher = node.createLauncher(TaskListener.NULL);
+		}
+
 		String nodeName = node.getNodeName();
 		FilePath nodeRoot = node.getRootPath();
 		ClearCaseConfiguration config = fetchClearCaseConfig(nodeName);
 		ClearTool ct = createClearTool(config.getCleartoolExe(), workspace, nodeRoot, env, null,
 				launcher);
 		HistoryAction historyAction = createHistoryAction(ct);
+		historyAction.setParallelism(config.getLsHistoryParallelism());
+		int changeFeedInterval = ClearCaseBaseSCM.BASE_DESCRIPTOR.getChangeFeedInterval();
+		if (changeFeedInterval > 0) {
+			historyAction.setChangeFeed(ChangeFeed.getInstance(), changeFeedInterval * 1000L,
+					nodeName);
+		}
 
-		View prevBuildView = createView(prevBuildViewName.value);
-		prevBuildView.setViewPath(prevBuildViewPath.value);
-
-		if (prevBuildView.isDynamic()) {
-			ct.startView(prevBuildView);
-		} else {
-			if (!new FilePath(workspace.getChannel(), prevBuildViewPath.value).exists()) {
-				// the snapshot view is not created yet or has been deleted
-				throw new ClearToolError("No snapshot view found in the workspace, "
+		/*
+		 * The view of the last build may have been returned to the view pool: it may be leased by
+		 * the build of another job or removed from the pool since. Its config spec is never set
+		 * by the polling, the shared polling view is read instead if there is one.
+		 */
+		boolean pooledView = !withoutWorkspace && ViewPool.isPooledPath(prevBuildViewPath.value);
+		String pollingViewTag = ClearCaseBaseSCM.BASE_DESCRIPTOR.getPollingViewTag();
+		View prevBuildView = null;
+		if (withoutWorkspace) {
+			prevBuildView = createPollingView(workspace, prevBuildViewName.value, pollingViewTag);
+			if (prevBuildView == null) {
+				/* the polling view tag was removed since requiresWorkspaceForPolling() */
+				throw new ClearToolError("No polling view tag is configured, "
 						+ "please launch the build manually.");
 			}
+		} else if (pooledView && pollingViewTag != null) {
+			prevBuildView = createPollingView(nodeRoot, prevBuildViewName.value, pollingViewTag);
+		}
+		boolean pollingView = prevBuildView != null;
+		if (!pollingView) {
+			prevBuildView = createView(prevBuildViewName.value);
+			prevBuildView.setViewPath(prevBuildViewPath.value);
+		}
+		if (pollingView || pooledView) {
+			historyAction.setExtendedViewPath(prevBuildView.getViewPath());
+		}
+
+		openCleartoolSession(ct, null);
+		try {
+			if (prevBuildView.isDynamic()) {
+				ct.startView(prevBuildView);
+			} else {
+				if (pooledView && (!ViewPool.getInstance().contains(prevBuildView.getName())
+						|| !new FilePath(workspace.getChannel(), prevBuildViewPath.value).exists())) {
+					throw new ClearToolError("The pooled view " + prevBuildView.getName()
+							+ " of the last build has been removed from the view pool, "
+							+ "set a shared polling view or launch the build manually.");
+				}
+				if (!new FilePath(workspace.getChannel(), prevBuildViewPath.value).exists()) {
+					// the snapshot view is not created yet or has been deleted
+					throw new ClearToolError("No snapshot view found in the workspace, "
+							+ "please launch the build manually.");
+				}
+			}
+
+			/*
+			 * lshistory and lscheckout read the VOB database, the view only resolves the lookup
+			 * paths. Reloading a snapshot view before each poll is only needed to follow a change
+			 * of its config spec.
+			 */
+			boolean queryOnly = ClearCaseBaseSCM.BASE_DESCRIPTOR.isQueryOnlyPolling()
+					&& !prevBuildView.isDynamic();
+			/*
+			 * the shared polling view belongs to no job and a pooled view may be leased to
+			 * another build, their config spec is left alone
+			 */
+			boolean sharedView = (withoutWorkspace && !useDynamicView) || pooledView;
+			if (!doNotUpdateConfigSpec && !queryOnly && !sharedView) {
+				ct.update(prevBuildView);
+			}
+
+			boolean changes = historyAction.pollChanges(baselineState, remoteState, prevBuildView,
+					getBranchNames(), getViewPaths(workspace));
+			Logger.getLogger(this.getClass().getName()).log(Level.FINE, "Filters of {0}: {1}",
+					new Object[] { project.getFullName(), historyAction.getFilterChain() });
+			return new PollingResult(baselineState, remoteState, changes ? Change.SIGNIFICANT
+					: Change.NONE);
+		} finally {
+			ct.getLauncher().closeSession();
 		}
+	}
 
-		if (!doNotUpdateConfigSpec) {
-			ct.update(prevBuildView);
+	/**
+	 * Creates the dynamic view through which the history is read when polling without workspace.
+	 * 
+	 * @param nodeRoot
+	 *            the root of the polling node
+	 * @param prevBuildViewName
+	 *            the view of the last build, used if the job uses dynamic views
+	 * @param pollingViewTag
+	 *            the shared polling view of the global configuration, used otherwise
+	 * @return {@code null} if the job uses snapshot views and no polling view is configured
+	 */
+	View createPollingView(FilePath nodeRoot, String prevBuildViewName, String pollingViewTag) {
+		String viewTag = useDynamicView ? prevBuildViewName : pollingViewTag;
+		if (viewTag == null) {
+			return null;
 		}
+		View view = createView(viewTag);
+		view.setDynamic(true);
+		FilePath viewRoot = new FilePath(nodeRoot.getChannel(), getViewRoot(nodeRoot));
+		view.setViewPath(viewRoot.child(viewTag).getRemote());
+		return view;
+	}
 
-		return historyAction.pollChanges(buildTime.getTime(), prevBuildView, getBranchNames(),
-				getViewPaths(workspace));
+	/**
+	 * Starts a persistent cleartool process if enabled in the global configuration.
+	 * 
+	 * @param logger
+	 *            optional, where to report if the session could not be started
+	 */
+	private void openCleartoolSession(ClearTool ct, ClearCaseLogger logger)
+			throws InterruptedException
+	{
+		if (ClearCaseBaseSCM.BASE_DESCRIPTOR.isUseCleartoolSession()) {
+			if (!ct.getLauncher().openSession() && logger != null) {
+				logger.log("Could not start a persistent cleartool session, "
+						+ "falling back to one process per command.");
 			}
+		}
+	}
 
 	/**
 	 * Retrieves the user selected clearcase configuration from the base descriptor.
@@ -735,8 +1036,11 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	 *         config spec, etc.
 	 */
 	/* package */List<String> getViewPaths(FilePath workspace) {
+		return getViewPaths(Tools.isWindows(workspace));
+	}
+
+	private List<String> getViewPaths(boolean windows) {
 		List<String> rules = new ArrayList<String>();
-		boolean windows = Tools.isWindows(workspace);
 		Pattern regexp = Pattern.compile("(load )?(.+)");
 		Matcher matcher = regexp.matcher(this.loadRules);
 
@@ -864,14 +1168,9 @@ public abstract class AbstractClearCaseSCM extends SCM {
 	// / UTILITIES /////////////////////////////////////////////////////////////////////////////
 	// /////////////////////////////////////////////////////////////////////////////////////////
 
-	protected void publishBuildVariables(AbstractBuild<?, ?> build) {
-		String name = getNormalizedViewName();
-		String path = null;
-		if (build.getWorkspace() != null) {
-			// bug fix : when calling the build.getWorkspace() on a custom workspace
-			// sometimes, the method returns null.
-			path = getExtendedViewPath(build.getWorkspace());
-		}
+	protected void publishBuildVariables(AbstractBuild<?, ?> build, View view) {
+		String name = view.getName();
+		String path = view.getViewPath();
 		if (name != null) {
 			CCParametersAction.addBuildParameter(build, new StringParameterValue(
 					CLEARCASE_VIEWNAME_ENVSTR, name));
@@ -897,6 +1196,11 @@ public abstract class AbstractClearCaseSCM extends SCM {
 		}
 		if (viewTag != null) {
 			try {
+				if (ViewPool.getInstance().contains(viewTag)) {
+					/* the view of the build was returned to the view pool */
+					return;
+				}
+
 				Node node = build.getBuiltOn();
 				EnvVars env = build.getEnvironment(TaskListener.NULL);
 				ClearCaseConfiguration config = fetchClearCaseConfig(node.getNodeName());
@@ -11,13 +11,16 @@ import hudson.Proc;
 import hudson.model.TaskListener;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
+import hudson.model.Node;
 import hudson.plugins.clearcase.cleartool.CTLauncher;
 import hudson.plugins.clearcase.cleartool.ClearTool;
 import hudson.plugins.clearcase.cleartool.ClearToolSnapshot;
+import hudson.plugins.clearcase.history.ActivityCache;
 import hudson.plugins.clearcase.objects.ClearCaseConfiguration;
 import hudson.plugins.clearcase.util.Tools;
 import hudson.scm.SCMDescriptor;
 import hudson.util.FormValidation;
+import hudson.util.Secret;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -34,6 +37,7 @@ import net.sf.json.JSONObject;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM> {
 
@@ -54,6 +58,46 @@ public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM>
  
     @CopyOnWrite
     private volatile int ccCmdDelay = 0;
+
+    @CopyOnWrite
+    private volatile boolean useCleartoolSession = false;
+
+    @CopyOnWrite
+    private volatile int lsHistoryParallelism = 1;
+
+    @CopyOnWrite
+    private volatile boolean queryOnlyPolling = false;
+
+    @CopyOnWrite
+    private volatile int changeFeedInterval = 0;
+
+    @CopyOnWrite
+    private volatile int activityCacheDays = 0;
+
+    @CopyOnWrite
+    private volatile int viewPoolSize = 0;
+    @CopyOnWrite
+    private volatile int viewPoolIdleMinutes = 240;
+    @CopyOnWrite
+    private volatile boolean prepareQueuedViews = false;
+    @CopyOnWrite
+    private volatile boolean checkoutOnNode = false;
+    @CopyOnWrite
+    private volatile int loadParallelism = 1;
+
+    @CopyOnWrite
+    private volatile boolean pollWithoutWorkspace = false;
+    @CopyOnWrite
+    private volatile String pollingNode = null;
+    @CopyOnWrite
+    private volatile String pollingViewTag = null;
+
+    @CopyOnWrite
+    private volatile boolean acceptTriggerEvents = false;
+    @CopyOnWrite
+    private volatile String triggerSpoolDir = null;
+    @CopyOnWrite
+    private volatile Secret triggerToken = null;
     
     @CopyOnWrite
     private volatile ClearCaseConfiguration[] configurations = new ClearCaseConfiguration[0];
@@ -107,6 +151,74 @@ public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM>
         } catch (JSONException e) {
             this.timeShift = 0;
         }
+        try {
+            this.useCleartoolSession = json.getBoolean("useCleartoolSession");
+        } catch (JSONException e) {
+            this.useCleartoolSession = false;
+        }
+        try {
+            this.lsHistoryParallelism = Math.max(1, json.getInt("lsHistoryParallelism"));
+        } catch (JSONException e) {
+            this.lsHistoryParallelism = 1;
+        }
+        try {
+            this.queryOnlyPolling = json.getBoolean("queryOnlyPolling");
+        } catch (JSONException e) {
+            this.queryOnlyPolling = false;
+        }
+        try {
+            this.changeFeedInterval = Math.max(0, json.getInt("changeFeedInterval"));
+        } catch (JSONException e) {
+            this.changeFeedInterval = 0;
+        }
+        try {
+            this.activityCacheDays = Math.max(0, json.getInt("activityCacheDays"));
+        } catch (JSONException e) {
+            this.activityCacheDays = 0;
+        }
+        try {
+            this.viewPoolSize = Math.max(0, json.getInt("viewPoolSize"));
+        } catch (JSONException e) {
+            this.viewPoolSize = 0;
+        }
+        try {
+            this.viewPoolIdleMinutes = Math.max(1, json.getInt("viewPoolIdleMinutes"));
+        } catch (JSONException e) {
+            this.viewPoolIdleMinutes = 240;
+        }
+        try {
+            this.prepareQueuedViews = json.getBoolean("prepareQueuedViews");
+        } catch (JSONException e) {
+            this.prepareQueuedViews = false;
+        }
+        try {
+            this.checkoutOnNode = json.getBoolean("checkoutOnNode");
+        } catch (JSONException e) {
+            this.checkoutOnNode = false;
+        }
+        try {
+            this.loadParallelism = Math.max(1, json.getInt("loadParallelism"));
+        } catch (JSONException e) {
+            this.loadParallelism = 1;
+        }
+        try {
+            this.pollWithoutWorkspace = json.getBoolean("pollWithoutWorkspace");
+            this.pollingNode = fixEmptyAndTrim(json.getString("pollingNode"));
+            this.pollingViewTag = fixEmptyAndTrim(json.getString("pollingViewTag"));
+        } catch (JSONException e) {
+            this.pollWithoutWorkspace = false;
+            this.pollingNode = null;
+            this.pollingViewTag = null;
+        }
+        try {
+            this.acceptTriggerEvents = json.getBoolean("acceptTriggerEvents");
+            this.triggerSpoolDir = fixEmptyAndTrim(json.getString("triggerSpoolDir"));
+            this.triggerToken = Secret.fromString(fixEmptyAndTrim(json.getString("triggerToken")));
+        } catch (JSONException e) {
+            this.acceptTriggerEvents = false;
+            this.triggerSpoolDir = null;
+            this.triggerToken = null;
+        }
         save();
         return true;
     }
@@ -137,6 +249,118 @@ public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM>
         return timeShift;
     }
 
+    public boolean isUseCleartoolSession() {
+        return useCleartoolSession;
+    }
+
+    public int getLsHistoryParallelism() {
+        return Math.max(1, lsHistoryParallelism);
+    }
+
+    public boolean isQueryOnlyPolling() {
+        return queryOnlyPolling;
+    }
+
+    /**
+     * @return the number of seconds during which the history listed by a poll is reused by the
+     *         other jobs polling the same branches, 0 if the history is not shared
+     */
+    public int getChangeFeedInterval() {
+        return changeFeedInterval;
+    }
+
+    /**
+     * @return the number of days during which the UCM activities listed for a changelog are
+     *         reused by the next builds, 0 if they are not cached
+     */
+    public int getActivityCacheDays() {
+        return activityCacheDays;
+    }
+
+    /**
+     * @return the number of idle snapshot views kept loaded per stream or config spec and load
+     *         rules on each node, 0 if the views are not pooled
+     */
+    public int getViewPoolSize() {
+        return viewPoolSize;
+    }
+
+    /**
+     * @return how long an idle pooled view is kept
+     */
+    public int getViewPoolIdleMinutes() {
+        return viewPoolIdleMinutes;
+    }
+
+    public boolean isPrepareQueuedViews() {
+        return prepareQueuedViews;
+    }
+
+    public boolean isCheckoutOnNode() {
+        return checkoutOnNode;
+    }
+
+    /**
+     * @return how many cleartool updates may load a snapshot view at the same time, 1 if the
+     *         views are loaded in one update
+     */
+    public int getLoadParallelism() {
+        return Math.max(1, loadParallelism);
+    }
+
+    public boolean isPollWithoutWorkspace() {
+        return pollWithoutWorkspace;
+    }
+
+    public String getPollingNode() {
+        return pollingNode;
+    }
+
+    public String getPollingViewTag() {
+        return pollingViewTag;
+    }
+
+    /**
+     * @return true if the events of the ClearCase triggers are received, see
+     *         {@link hudson.plugins.clearcase.trigger.TriggerEndpoint}
+     */
+    public boolean isAcceptTriggerEvents() {
+        return acceptTriggerEvents;
+    }
+
+    /**
+     * @return the directory in which the triggers drop their events, {@code null} if none, see
+     *         {@link hudson.plugins.clearcase.trigger.TriggerSpool}
+     */
+    public String getTriggerSpoolDir() {
+        return triggerSpoolDir;
+    }
+
+    /**
+     * @return the secret the triggers must send with their events, see
+     *         {@link hudson.plugins.clearcase.trigger.TriggerEndpoint}
+     */
+    public Secret getTriggerToken() {
+        return triggerToken;
+    }
+
+    /**
+     * @return the node on which the jobs poll when they do not need a workspace, the master if
+     *         none is configured. {@code null} if the configured node does not exist or is
+     *         offline.
+     */
+    public Node resolvePollingNode() {
+        return resolvePollingNode(Hudson.getInstance(), pollingNode);
+    }
+
+    static Node resolvePollingNode(Hudson hudson, String pollingNode) {
+        Node node = pollingNode == null ? hudson : hudson.getNode(pollingNode);
+        if (node == null || node.getRootPath() == null) {
+            return null;
+        }
+        return node;
+    }
+
     public ClearCaseConfiguration[] getConfigurations() {
         return configurations;
     }
@@ -150,7 +374,7 @@ public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM>
             }
         }
         return new ClearCaseConfiguration(DEFAULT_CONFIG, cleartoolExe, stgloc,
-                changeLogMergeTimeWindow,ccCmdDelay);
+                changeLogMergeTimeWindow,ccCmdDelay, getLsHistoryParallelism());
     }
 
     /*******************************
@@ -204,6 +428,92 @@ public class ClearCaseBaseSCMDescriptor extends SCMDescriptor<ClearCaseBaseSCM>
         return FormValidation.ok();
     }
 
+    /** Checks if the lshistory parallelism is valid. */
+    public FormValidation doCheckLsHistoryParallelism(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 1) {
+                return FormValidation.error("This field must contain an integer greater than 0.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain an integer greater than 0.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Checks if the load parallelism is valid. */
+    public FormValidation doCheckLoadParallelism(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 1) {
+                return FormValidation.error("This field must contain an integer greater than 0.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain an integer greater than 0.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Checks if the change feed interval is valid. */
+    public FormValidation doCheckChangeFeedInterval(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 0) {
+                return FormValidation.error("This field must contain a positive integer.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain a positive integer.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Checks if the activity cache duration is valid. */
+    public FormValidation doCheckActivityCacheDays(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 0) {
+                return FormValidation.error("This field must contain a positive integer.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain a positive integer.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Checks if the view pool size is valid. */
+    public FormValidation doCheckViewPoolSize(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 0) {
+                return FormValidation.error("This field must contain a positive integer.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain a positive integer.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Checks if the idle duration of the pooled views is valid. */
+    public FormValidation doCheckViewPoolIdleMinutes(@QueryParameter String value) {
+        try {
+            int v = Integer.parseInt(value);
+            if (v < 1) {
+                return FormValidation.error("This field must contain a strictly positive integer.");
+            }
+        } catch (NumberFormatException e) {
+            return FormValidation.error("This field must contain a strictly positive integer.");
+        }
+        return FormValidation.ok();
+    }
+
+    /** Drops the cached UCM activities, e.g. after their headlines were changed. */
+    @RequirePOST
+    public FormValidation doClearActivityCache() {
+        Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+        ActivityCache.getInstance().clear();
+        return FormValidation.ok("The activity cache was cleared.");
+    }
+
     /** Checks if timeShift is valid. */
     public FormValidation doCheckTimeShift(@QueryParameter String value) {
         String shift = fixEmptyAndTrim(value);
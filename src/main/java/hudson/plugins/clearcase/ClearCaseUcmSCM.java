@@ -42,6 +42,7 @@ import hudson.plugins.clearcase.objects.Stream;
 import hudson.plugins.clearcase.objects.View;
 import hudson.plugins.clearcase.util.CCParametersAction;
 import hudson.plugins.clearcase.util.ClearToolError;
+import hudson.plugins.clearcase.util.LoadRuleMatcher;
 import hudson.scm.ChangeLogParser;
 import hudson.scm.SCMDescriptor;
 
@@ -179,11 +180,11 @@ public class ClearCaseUcmSCM extends AbstractClearCaseSCM {
             rwComponentPaths.add(ct.getComponentRootPath(comp));
         }
 
-        for (String path : viewPaths) {
-            for (String componentPath : rwComponentPaths) {
-                if (path.startsWith(componentPath)) {
+        LoadRuleMatcher componentRoots = new LoadRuleMatcher(rwComponentPaths);
+        if (!rwComponentPaths.isEmpty()) {
+            for (String path : viewPaths) {
+                if (componentRoots.isPrefixOf(path)) {
                     viewPathsForLSHistory.add(path);
-                    break;
                 }
             }
         }
@@ -203,8 +204,8 @@ public class ClearCaseUcmSCM extends AbstractClearCaseSCM {
     }
 
     @Override
-    protected void publishBuildVariables(AbstractBuild<?, ?> build) {
-        super.publishBuildVariables(build);
+    protected void publishBuildVariables(AbstractBuild<?, ?> build, View view) {
+        super.publishBuildVariables(build, view);
         if (getResolvedStreamName() != null) {
             CCParametersAction.addBuildParameter(build, new StringParameterValue(
                     CLEARCASE_STREAM_ENVSTR, getResolvedStreamName()));
@@ -1,6 +1,7 @@
 package hudson.plugins.clearcase;
 
 import hudson.Extension;
+import hudson.model.Computer;
 import hudson.model.FreeStyleBuild;
 import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.changelog.BaselineChangeLogParser;
@@ -107,6 +108,14 @@ public class ClearCaseUcmTooledUpSCM extends ClearCaseUcmSCM {
         }
         return action;
     }
+
+    /**
+     * The builds deliver baselines in their view, which is never shared with the next builds
+     * through the view pool.
+     */
+    @Override
+    protected void setViewPool(CheckoutAction checkoutAction) {
+    }
     
     @Override
     protected UcmChangeLogSet gatherChangelog(AbstractBuild<?, ?> build, ClearCaseLogger logger,
@@ -115,6 +124,9 @@ public class ClearCaseUcmTooledUpSCM extends ClearCaseUcmSCM {
 
         UcmBaselineHistoryAction historyAction = new UcmBaselineHistoryAction(ct,
                 baselineLevelThreshold);
+        historyAction.setParallelism(fetchClearCaseConfig(Computer.currentComputer().getName())
+                .getLsHistoryParallelism());
+        setActivityCache(historyAction);
         Baseline deliveredBaseline = historyAction.findBaseline(view);
 
         UcmChangeLogSet changes = null;
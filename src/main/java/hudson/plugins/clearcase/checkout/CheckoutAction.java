@@ -24,29 +24,48 @@
  */
 package hudson.plugins.clearcase.checkout;
 
+import hudson.FilePath;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.checkout.ViewPool.PooledView;
 import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.ViewProbe;
 import hudson.plugins.clearcase.log.ClearCaseLogger;
+import hudson.plugins.clearcase.objects.ConfigSpec;
 import hudson.plugins.clearcase.objects.View;
 import hudson.plugins.clearcase.util.ClearToolError;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
 
-public abstract class CheckoutAction {
+/**
+ * The checkout of the view of a build.
+ * 
+ * An action is serializable so that its checkout can run on the node of the view, see
+ * {@link NodeCheckout}: its cleartool, logger and view pool stay on the controller and are
+ * replaced on the node.
+ */
+public abstract class CheckoutAction implements Serializable {
     
     public static final String ORIGINAL_CONFIG_SPEC = "ORIGINAL_CONFIG_SPEC";
+
+    private static final long serialVersionUID = 1L;
     
     /************
      ** FIELDS **
      ************/
-    protected final ClearTool cleartool;
-    protected final ClearCaseLogger logger;
+    protected transient ClearTool cleartool;
+    protected transient ClearCaseLogger logger;
     protected final View view;
     protected final String stgloc;
     protected final String mkViewOptionalParams;
     protected final boolean useUpdate;
     protected final int ccCmdDelay;
+    protected transient ViewPool viewPool = null;
+    protected int viewPoolSize;
+    protected long viewPoolMaxIdle;
+    protected int loadParallelism = 1;
     
     /*****************
      ** CONSTRUCTOR **
@@ -68,6 +87,215 @@ public abstract class CheckoutAction {
     public abstract boolean 
     checkout(@SuppressWarnings("rawtypes") AbstractBuild build, TaskListener listener) 
     throws IOException, InterruptedException, ClearToolError;
+
+    /**
+     * @return true if the checkout can run on the node of the view, see {@link NodeCheckout}:
+     *         the action is {@link NodeCheckable} and uses no view pool, which stays on the
+     *         controller
+     */
+    public boolean isNodeCheckoutSupported() {
+        return this instanceof NodeCheckable && viewPool == null;
+    }
+
+    /**
+     * Replaces the cleartool and the logger of an action sent to the node of the view.
+     */
+    void attach(ClearTool cleartool, ClearCaseLogger logger) {
+        this.cleartool = cleartool;
+        this.logger = logger;
+    }
+
+    /**
+     * Brings the view of a build that reuses its view up to date ahead of its checkout, e.g.
+     * while the build waits in the queue, so that the checkout finds a warm view. Only the work
+     * the checkout would do anyway is done: nothing if the view would be removed or if its
+     * configuration changed.
+     * 
+     * @param workspace
+     *            the workspace of the last build, where the view is
+     * @return true if the view was updated
+     */
+    public boolean prepare(FilePath workspace) throws IOException, InterruptedException,
+            ClearToolError
+    {
+        return false;
+    }
+
+    /**
+     * Probes a snapshot view in one round trip to its node, see
+     * {@link ClearTool#probeView(View, FilePath, boolean)}.
+     * 
+     * @param existingView
+     *            a view with only a tag, its other fields are set from the registration of the tag
+     * @param viewDir
+     *            the directory of the snapshot view
+     * @param withStream
+     *            true to also probe the stream of a UCM view
+     */
+    protected ViewProbe probeView(View existingView, FilePath viewDir, boolean withStream)
+            throws IOException, InterruptedException
+    {
+        ViewProbe probe = cleartool.probeView(existingView, viewDir, withStream);
+        probe.copyTo(existingView);
+        if (probe.getViewDatError() != null) {
+            /* the view.dat file could not be found or does not match the expected pattern */
+            logger.log(probe.getViewDatError());
+        }
+        return probe;
+    }
+
+    /**
+     * @return the config spec of the probed view, read again if the probe could not read it so
+     *         that the error is raised
+     */
+    protected String getConfigSpec(ViewProbe probe, View existingView) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        if (probe.getConfigSpec() != null) {
+            return probe.getConfigSpec();
+        }
+        return cleartool.catcs(existingView);
+    }
+
+    /*******************
+     ** PARALLEL LOAD **
+     *******************/
+
+    /**
+     * Lets the snapshot views be loaded and updated by several cleartool updates at a time, one
+     * per partition of the load rules, see {@link ParallelLoad}.
+     * 
+     * @param parallelism
+     *            how many updates may run at the same time, 1 to load the views in one update
+     */
+    public void setLoadParallelism(int parallelism) {
+        this.loadParallelism = parallelism;
+    }
+
+    /**
+     * Updates a snapshot view whose config spec is unchanged, in parallel if configured. The
+     * parallel updates do not set the config spec again, so a config spec that includes other
+     * files is updated with {@link ClearTool#update(View)}, which reads them again. So must a
+     * UCM view, to follow the configuration of its stream.
+     * 
+     * @param configSpec
+     *            the config spec of the view
+     */
+    protected void updateView(View view, ConfigSpec configSpec) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        List<String> loadRules = configSpec.extractLoadRules();
+        if (loadParallelism > 1 && loadRules.size() > 1 && !configSpec.hasIncludeRules()) {
+            new ParallelLoad(cleartool, logger, loadParallelism).load(view, loadRules);
+        } else {
+            cleartool.update(view);
+        }
+    }
+
+    /**
+     * Sets the config spec of a new snapshot view, which loads it. In parallel, the whole config
+     * spec is set once without loading the view, then each partition of the load rules is
+     * loaded by its own update, which leaves the config spec alone.
+     */
+    protected void loadNewView(View view, ConfigSpec configSpec) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        List<String> loadRules = configSpec.extractLoadRules();
+        if (loadParallelism <= 1 || loadRules.size() <= 1) {
+            cleartool.setcs(view, configSpec.getValue());
+            return;
+        }
+        cleartool.setcsWithoutLoading(view, configSpec.getValue());
+        new ParallelLoad(cleartool, logger, loadParallelism).load(view, loadRules);
+    }
     
+    /******************
+     ** VIEW POOLING **
+     ******************/
+
+    /**
+     * Lets the build lease a view of the pool instead of creating its own view.
+     * 
+     * @param size
+     *            the number of idle views kept per key on a node
+     * @param maxIdleMillis
+     *            how long an idle view is kept
+     */
+    public void setViewPool(ViewPool viewPool, int size, long maxIdleMillis) {
+        this.viewPool = viewPool;
+        this.viewPoolSize = size;
+        this.viewPoolMaxIdle = maxIdleMillis;
+    }
+
+    /**
+     * Leases the warmest healthy view of the pool of the node to the build, after removing the
+     * views evicted from the pool. A view is healthy if its tag is registered and matches the
+     * view.dat file of its directory. If there is none, a new view of the pool is leased, which
+     * must be created.
+     * 
+     * The name and path of the view of the action are replaced by the ones of the leased view.
+     * 
+     * @param key
+     *            see {@link ViewPool#key(String, java.util.List)}
+     * @return true if the leased view exists and only needs an update, false if it must be
+     *         created
+     */
+    protected boolean leasePooledView(AbstractBuild<?, ?> build, String key) throws IOException,
+            InterruptedException
+    {
+        String node = build.getBuiltOnStr();
+        FilePath poolDir = build.getBuiltOn().getRootPath().child(ViewPool.POOL_DIR);
+
+        for (PooledView evicted : viewPool.evict(node, viewPoolSize, viewPoolMaxIdle)) {
+            removePooledView(evicted, poolDir);
+        }
+
+        PooledView leased;
+        while ((leased = viewPool.lease(node, key, ViewPool.leaseId(build))) != null) {
+            View pooled = new View(leased.tag);
+            FilePath pooledDir = new FilePath(poolDir.getChannel(), leased.path);
+            if (probeView(pooled, pooledDir, false).isExistingView() && !pooled.isDynamic())
+            {
+                logger.log(String.format("Leased view %s from the view pool.", leased.tag));
+                view.setName(leased.tag);
+                view.setViewPath(leased.path);
+                return true;
+            }
+            logger.log(String.format("The pooled view %s is not healthy, removing it...",
+                    leased.tag));
+            viewPool.discard(leased);
+            removePooledView(leased, poolDir);
+        }
+
+        poolDir.mkdirs();
+        leased = viewPool.add(node, key, poolDir, ViewPool.leaseId(build));
+        logger.log(String.format("No view available in the view pool, adding view %s.",
+                leased.tag));
+        view.setName(leased.tag);
+        view.setViewPath(leased.path);
+        return false;
+    }
+
+    /**
+     * Removes a view dropped from the pool, the errors are only logged.
+     */
+    private void removePooledView(PooledView pooled, FilePath poolDir) throws IOException,
+            InterruptedException
+    {
+        try {
+            cleartool.rmview(new View(pooled.tag), true, ccCmdDelay);
+        } catch (ClearToolError e) {
+            logger.log(e.toString());
+        }
+        FilePath dir = new FilePath(poolDir.getChannel(), pooled.path);
+        try {
+            if (dir.exists()) {
+                dir.deleteRecursive();
+            }
+        } catch (IOException e) {
+            logger.log(e.toString());
+        }
+    }
+
 
 }
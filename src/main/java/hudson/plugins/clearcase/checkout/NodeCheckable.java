@@ -0,0 +1,22 @@
+package hudson.plugins.clearcase.checkout;
+
+import hudson.FilePath;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+
+/**
+ * A {@link CheckoutAction} whose checkout can also run on the node of the view, see
+ * {@link NodeCheckout} and {@link CheckoutAction#isNodeCheckoutSupported()}.
+ */
+public interface NodeCheckable {
+
+    /**
+     * The checkout run on the node of the view by {@link NodeCheckout}, where there is no build.
+     *
+     * @param workspace
+     *            the workspace of the build, on the node
+     */
+    boolean checkoutOnNode(FilePath workspace) throws IOException, InterruptedException,
+            ClearToolError;
+}
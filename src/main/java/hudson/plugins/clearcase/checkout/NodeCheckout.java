@@ -0,0 +1,164 @@
+package hudson.plugins.clearcase.checkout;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Launcher.LocalLauncher;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.cleartool.CTLauncher;
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.ClearToolSnapshot;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+import hudson.plugins.clearcase.util.ClearToolError;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Runs the checkout of a snapshot view on the node of the view, in a single remoting call.
+ *
+ * The checkout action is sent to the node, where its cleartool commands are forked locally and
+ * its workspace is read locally: the whole decision tree of the checkout (probe, update or
+ * creation of the view, config spec) runs there. Only the messages of the checkout and the
+ * cleartool log come back to the controller, once the checkout is over.
+ */
+public final class NodeCheckout implements FileCallable<NodeCheckout.Summary> {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final long serialVersionUID = 1L;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final CheckoutAction action;
+    private final String executable;
+    private final EnvVars env;
+    private final String nodeRoot;
+    private final boolean useSession;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    private NodeCheckout(CheckoutAction action, String executable, EnvVars env, String nodeRoot,
+            boolean useSession)
+    {
+        this.action = action;
+        this.executable = executable;
+        this.env = env;
+        this.nodeRoot = nodeRoot;
+        this.useSession = useSession;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * Runs the checkout of an action on the node of the workspace, see
+     * {@link CheckoutAction#isNodeCheckoutSupported()}. The messages of the checkout are printed
+     * to the listener and the cleartool commands are added to the log of the cleartool of the
+     * action once it is over.
+     *
+     * @param useSession
+     *            true to send the commands to a persistent cleartool process on the node
+     */
+    public static void checkout(CheckoutAction action, FilePath workspace, TaskListener listener,
+            boolean useSession) throws IOException, InterruptedException, ClearToolError
+    {
+        ClearTool cleartool = action.cleartool;
+        ClearCaseLogger logger = action.logger;
+        CTLauncher launcher = cleartool.getLauncher();
+        Summary summary;
+        try {
+            summary = workspace.act(new NodeCheckout(action, launcher.getExecutable(),
+                    cleartool.getEnv(), launcher.getNodeRoot().getRemote(), useSession));
+        } finally {
+            /* the action is not copied if the node is the controller */
+            action.attach(cleartool, logger);
+        }
+
+        ClearCaseLogger console = new ClearCaseLogger(listener, null);
+        for (String message : summary.messages) {
+            console.log(message);
+        }
+        if (cleartool.getLogFile() != null) {
+            OutputStream log = new FileOutputStream(cleartool.getLogFile(), true /* append */);
+            try {
+                log.write(summary.cleartoolLog.getBytes());
+            } finally {
+                log.close();
+            }
+        }
+
+        if (summary.error instanceof ClearToolError) {
+            throw (ClearToolError) summary.error;
+        } else if (summary.error instanceof IOException) {
+            throw (IOException) summary.error;
+        }
+    }
+
+    @Override
+    public Summary invoke(File workspace, VirtualChannel channel) throws IOException,
+            InterruptedException
+    {
+        final Summary summary = new Summary();
+        File logFile = File.createTempFile("cleartool", ".log");
+        ClearCaseLogger logger = new ClearCaseLogger(TaskListener.NULL, logFile) {
+            @Override
+            public void log(String message) {
+                summary.messages.add(message);
+                super.log(message);
+            }
+        };
+
+        CTLauncher launcher = new CTLauncher(executable, new FilePath(workspace), new FilePath(
+                new File(nodeRoot)), env, logFile, new LocalLauncher(TaskListener.NULL));
+        if (useSession && !launcher.openSession()) {
+            logger.log("Could not start a persistent cleartool session, "
+                    + "falling back to one process per command.");
+        }
+        try {
+            action.attach(new ClearToolSnapshot(launcher), logger);
+            ((NodeCheckable) action).checkoutOnNode(new FilePath(workspace));
+        } catch (ClearToolError e) {
+            summary.error = e;
+        } catch (IOException e) {
+            summary.error = e;
+        } finally {
+            launcher.closeSession();
+            summary.cleartoolLog = FileUtils.readFileToString(logFile);
+            logFile.delete();
+        }
+        return summary;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * What comes back from the node: the messages of the checkout, the cleartool log and the
+     * error that ended the checkout, if any.
+     */
+    static final class Summary implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<String> messages = new ArrayList<String>();
+        String cleartoolLog = "";
+        Exception error = null;
+    }
+}
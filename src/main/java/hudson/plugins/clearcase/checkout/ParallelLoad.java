@@ -0,0 +1,253 @@
+package hudson.plugins.clearcase.checkout;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads a snapshot view with at most <tt>parallelism</tt> cleartool updates at a time, each one
+ * on its own partition of the load rules.
+ *
+ * The load rules are split into disjoint partitions: a load rule under another one always goes
+ * to the partition of that one. All the partitions are updated, even if one of them fails, and
+ * their results are logged as one report once they are all done.
+ */
+class ParallelLoad {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "parallel load");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /** the summary printed by cleartool for each load rule it updated */
+    static final Pattern DONE_LOADING_PATTERN = Pattern.compile(
+            "^Done loading .* \\((\\d+) objects", Pattern.MULTILINE);
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final ClearTool cleartool;
+    private final ClearCaseLogger logger;
+    private final int parallelism;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    ParallelLoad(ClearTool cleartool, ClearCaseLogger logger, int parallelism) {
+        this.cleartool = cleartool;
+        this.logger = logger;
+        this.parallelism = parallelism;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * Splits the load rules into at most <tt>parallelism</tt> partitions. A load rule and the
+     * load rules under it are kept together, then these groups are dealt to the partitions in
+     * the order of the load rules.
+     *
+     * @param loadRules
+     *            the load rules, without leading separators
+     */
+    List<List<String>> partition(List<String> loadRules) {
+        List<List<String>> groups = new ArrayList<List<String>>();
+        List<String> roots = new ArrayList<String>();
+        for (String rule : loadRules) {
+            String root = null;
+            for (String other : loadRules) {
+                if (!other.equals(rule) && isUnder(rule, other)
+                        && (root == null || isUnder(root, other))) {
+                    root = other;
+                }
+            }
+            if (root == null) {
+                root = rule;
+            }
+            int index = roots.indexOf(root);
+            if (index < 0) {
+                roots.add(root);
+                groups.add(new ArrayList<String>());
+                index = roots.size() - 1;
+            }
+            if (!groups.get(index).contains(rule)) {
+                groups.get(index).add(rule);
+            }
+        }
+
+        int count = Math.max(1, Math.min(parallelism, groups.size()));
+        List<List<String>> partitions = new ArrayList<List<String>>();
+        for (int i = 0; i < count; i++) {
+            partitions.add(new ArrayList<String>());
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            partitions.get(i % count).addAll(groups.get(i));
+        }
+        return partitions;
+    }
+
+    /**
+     * Updates each partition of the load rules of the view, then logs the report of the load.
+     * The updates only load the files of the view, its config spec must already contain the
+     * load rules.
+     *
+     * @throws ClearToolError
+     *             the first error in the order of the partitions
+     */
+    void load(final View view, List<String> loadRules)
+            throws IOException, InterruptedException, ClearToolError
+    {
+        List<List<String>> partitions = partition(loadRules);
+        List<Partition> results = new ArrayList<Partition>();
+        for (List<String> paths : partitions) {
+            results.add(new Partition(paths));
+        }
+        logger.log(String.format("Loading %d load rules in %d partitions...", loadRules.size(),
+                results.size()));
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(results.size(), THREAD_FACTORY);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final Partition partition : results) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        partition.run(view);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    /* the error is kept by its partition */
+                }
+            }
+        } finally {
+            /* interrupts the updates still running if the build was aborted */
+            executor.shutdownNow();
+        }
+        report(results, System.currentTimeMillis() - start);
+
+        for (Partition partition : results) {
+            if (partition.error != null) {
+                rethrow(partition.error);
+            }
+        }
+    }
+
+    private void report(List<Partition> results, long millis) {
+        int objects = 0;
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Partition partition = results.get(i);
+            String status;
+            if (partition.error != null) {
+                failed++;
+                status = "failed: " + partition.error.getMessage();
+            } else if (partition.objects >= 0) {
+                objects += partition.objects;
+                status = partition.objects + " objects";
+            } else {
+                status = "done";
+            }
+            logger.log(String.format("Partition %d %s: %s in %ds", i + 1, partition.paths,
+                    status, partition.millis / 1000));
+        }
+        if (failed > 0) {
+            logger.log(String.format("Load failed for %d of %d partitions after %ds.", failed,
+                    results.size(), millis / 1000));
+        } else {
+            logger.log(String.format("Loaded %d objects in %d partitions in %ds.", objects,
+                    results.size(), millis / 1000));
+        }
+    }
+
+    /**
+     * @return true if the path is the same as the parent path or under it
+     */
+    private static boolean isUnder(String path, String parent) {
+        String p = path.replace('\\', '/');
+        String q = parent.replace('\\', '/');
+        return p.equals(q) || p.startsWith(q.endsWith("/") ? q : q + "/");
+    }
+
+    private static void rethrow(Throwable t) throws IOException, InterruptedException,
+            ClearToolError
+    {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof ClearToolError) {
+            throw (ClearToolError) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new IOException(t);
+        }
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * One cleartool update: a partition of the load rules and its result.
+     */
+    class Partition {
+        final List<String> paths;
+        /* -1 if cleartool did not print how many objects it loaded */
+        volatile int objects = -1;
+        volatile long millis = 0;
+        volatile Throwable error = null;
+
+        Partition(List<String> paths) {
+            this.paths = paths;
+        }
+
+        void run(View view) throws Exception {
+            long start = System.currentTimeMillis();
+            try {
+                String output = cleartool.update(view, paths);
+                Matcher matcher = DONE_LOADING_PATTERN.matcher(output == null ? "" : output);
+                while (matcher.find()) {
+                    objects = Math.max(objects, 0) + Integer.parseInt(matcher.group(1));
+                }
+            } catch (Exception e) {
+                error = e;
+                throw e;
+            } finally {
+                millis = System.currentTimeMillis() - start;
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import hudson.FilePath;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.ViewProbe;
 import hudson.plugins.clearcase.log.ClearCaseLogger;
 import hudson.plugins.clearcase.objects.ConfigSpec;
 import hudson.plugins.clearcase.objects.View;
@@ -38,7 +39,9 @@ import java.io.IOException;
 import java.util.List;
 
 
-public class SnapshotCheckoutAction extends CheckoutAction {
+public class SnapshotCheckoutAction extends CheckoutAction implements NodeCheckable {
+
+	private static final long serialVersionUID = 1L;
 
 	// optional fields for snapshot views
 	private final String configSpec;
@@ -57,34 +60,37 @@ public class SnapshotCheckoutAction extends CheckoutAction {
 
 	@Override
 	public boolean checkout(@SuppressWarnings("rawtypes") AbstractBuild build, TaskListener listener)
-	throws IOException, InterruptedException, ClearToolError 
+	throws IOException, InterruptedException, ClearToolError
+	{
+		return checkoutView(build.getWorkspace(), build);
+	}
+
+	/** implements {@link NodeCheckable#checkoutOnNode(FilePath)} */
+	@Override
+	public boolean checkoutOnNode(FilePath workspace) throws IOException,
+			InterruptedException, ClearToolError
+	{
+		return checkoutView(workspace, null);
+	}
+
+	/**
+	 * @param build
+	 *            null if the checkout runs on the node, then there is no view pool
+	 */
+	private boolean checkoutView(FilePath workspace, AbstractBuild<?, ?> build)
+	throws IOException, InterruptedException, ClearToolError
 	{
 		boolean viewRegistered, viewFolderExists, viewExists, createView;
-		FilePath workspace = build.getWorkspace();
-		String oldViewUuid = "null";
 		createView = false;
 
 		View existingView = new View(view.getName());
 		logger.log("Fetching view info...");
-		try {
-			viewRegistered = cleartool.getViewInfo(existingView);
-		} catch (ClearToolError cte) {
-			/* the server hosting the view was not reachable 
-			 * we consider that the view is registered */ 
-			viewRegistered = true;
-		}
-		viewFolderExists = workspace.child(existingView.getName()).exists();
-		if (viewFolderExists) {
-			try {
-				oldViewUuid = cleartool.getSnapshotViewUuid(workspace.child(existingView.getName()));
-			} catch (Exception e) {
-				/* either the view folder in the workspace does not exists,
-				 * either the view.dat file could not be found in the view folder 
-				 * either the view.dat file is corrupted and does not match the expected pattern */
-				logger.log(e.toString());
-			}
-		}
-		viewExists = viewRegistered && oldViewUuid.equals(existingView.getUuid());
+		/* the server hosting the view may not be reachable, 
+		 * then the view is considered as registered */
+		ViewProbe probe = probeView(existingView, workspace.child(existingView.getName()), false);
+		viewRegistered = probe.isRegistered();
+		viewFolderExists = probe.isFolderExisting();
+		viewExists = probe.isExistingView();
 
 
 		ConfigSpec jobConfSpec = new ConfigSpec(cleartool.getEnv().expand(configSpec));
@@ -99,10 +105,10 @@ public class SnapshotCheckoutAction extends CheckoutAction {
 
 				try{   
 					logger.log("Searching for changes in config spec...");
-					ConfigSpec viewConfigSpec = new ConfigSpec(cleartool.catcs(existingView).trim());
+					ConfigSpec viewConfigSpec = new ConfigSpec(getConfigSpec(probe, existingView).trim());
 					if (jobConfSpec.equals(viewConfigSpec)){
 						logger.log("No changes in config spec. Updating view...");
-						cleartool.update(existingView);
+						updateView(existingView, jobConfSpec);
 					} else {
 						logger.log("Config spec has changed. Updating view...");
 						cleartool.setcs(existingView, jobConfSpec.getValue());
@@ -128,14 +134,51 @@ public class SnapshotCheckoutAction extends CheckoutAction {
 			createView = true;
 		}
 
+		if (createView && viewPool != null
+				&& leasePooledView(build, ViewPool.key(jobConfSpec.getValue(), loadRules))) {
+			/* the config spec is part of the key of the pooled view */
+			logger.log("Updating view...");
+			updateView(view, jobConfSpec);
+			createView = false;
+		}
+
 		if (createView) {
 			logger.log("Creating view: " + view + "...");
 			cleartool.mkview(view, stgloc, cleartool.getEnv().expand(mkViewOptionalParams));
 			logger.log("Setting config spec & updating view...");
-			cleartool.setcs(view, jobConfSpec.getValue());
+			loadNewView(view, jobConfSpec);
 		}
 
 		return true;
 	}
 
+	@Override
+	public boolean prepare(FilePath workspace) throws IOException, InterruptedException,
+			ClearToolError
+	{
+		if (!useUpdate) {
+			return false;
+		}
+		View existingView = new View(view.getName());
+		ViewProbe probe = probeView(existingView, workspace.child(view.getName()), false);
+		if (!probe.isExistingView()) {
+			return false;
+		}
+		ConfigSpec jobConfSpec = new ConfigSpec(cleartool.getEnv().expand(configSpec));
+		jobConfSpec.replaceLoadRules(loadRules, Tools.isWindows(workspace));
+
+		cleartool.endviewServer(existingView, ccCmdDelay);
+		try {
+			ConfigSpec viewConfigSpec = new ConfigSpec(getConfigSpec(probe, existingView).trim());
+			if (!jobConfSpec.equals(viewConfigSpec)) {
+				/* left to the checkout */
+				return false;
+			}
+			updateView(existingView, jobConfSpec);
+			return true;
+		} finally {
+			cleartool.endviewServer(existingView, ccCmdDelay);
+		}
+	}
+
 }
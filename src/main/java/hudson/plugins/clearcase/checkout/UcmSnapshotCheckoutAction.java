@@ -28,6 +28,7 @@ import hudson.FilePath;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.ViewProbe;
 import hudson.plugins.clearcase.log.ClearCaseLogger;
 import hudson.plugins.clearcase.objects.ConfigSpec;
 import hudson.plugins.clearcase.objects.Stream;
@@ -38,7 +39,9 @@ import hudson.plugins.clearcase.util.Tools;
 import java.io.IOException;
 import java.util.List;
 
-public class UcmSnapshotCheckoutAction extends CheckoutAction {
+public class UcmSnapshotCheckoutAction extends CheckoutAction implements NodeCheckable {
+
+	private static final long serialVersionUID = 1L;
 
 	private final List<String> loadRules;
 
@@ -52,10 +55,26 @@ public class UcmSnapshotCheckoutAction extends CheckoutAction {
 	@Override
 	public boolean checkout(@SuppressWarnings("rawtypes") AbstractBuild build, TaskListener listener)
 	throws IOException, InterruptedException, ClearToolError
+	{
+		return checkoutView(build.getWorkspace(), build);
+	}
+
+	/** implements {@link NodeCheckable#checkoutOnNode(FilePath)} */
+	@Override
+	public boolean checkoutOnNode(FilePath workspace) throws IOException,
+			InterruptedException, ClearToolError
+	{
+		return checkoutView(workspace, null);
+	}
+
+	/**
+	 * @param build
+	 *            null if the checkout runs on the node, then there is no view pool
+	 */
+	private boolean checkoutView(FilePath workspace, AbstractBuild<?, ?> build)
+	throws IOException, InterruptedException, ClearToolError
 	{
 		boolean viewRegistered, viewFolderExists, viewExists, createView;
-		FilePath workspace = build.getWorkspace();
-		String oldViewUuid = "null";
 		createView = false;
 
 		if (view.getStream() == null) {
@@ -64,39 +83,24 @@ public class UcmSnapshotCheckoutAction extends CheckoutAction {
 
 		View existingView = new View(view.getName());
 		logger.log("Fetching view info...");
-		try {
-			viewRegistered = cleartool.getViewInfo(existingView);
-		} catch (ClearToolError cte) {
-			/*
-			 * the server hosting the view was not reachable we consider that the view is registered
-			 */
-			viewRegistered = true;
-		}
-		viewFolderExists = workspace.child(existingView.getName()).exists();
-		if (viewFolderExists) {
-			try {
-				oldViewUuid = cleartool
-				.getSnapshotViewUuid(workspace.child(existingView.getName()));
-			} catch (Exception e) {
-				/*
-				 * either the view folder in the workspace does not exists, either the view.dat file
-				 * could not be found in the view folder either the view.dat file is corrupted and
-				 * does not match the expected pattern
-				 */
-				logger.log(e.toString());
-			}
-		}
-		viewExists = viewRegistered && oldViewUuid.equals(existingView.getUuid());
+		/*
+		 * the server hosting the view may not be reachable, then the view is considered as
+		 * registered
+		 */
+		ViewProbe probe = probeView(existingView, workspace.child(existingView.getName()), true);
+		viewRegistered = probe.isRegistered();
+		viewFolderExists = probe.isFolderExisting();
+		viewExists = probe.isExistingView();
 
 		if (viewExists) {
 			boolean correctStream = false;
-			try {
-				Stream currentStream = cleartool.getStreamFromView(existingView);
+			Stream currentStream = probe.getStream();
+			if (currentStream != null) {
 				correctStream = currentStream.equals(view.getStream());
 				if (!correctStream) {
 					logger.log("Stream configuration has changed.");
 				}
-			} catch (ClearToolError e) {
+			} else {
 				logger.log("WARNING: The view " + view.getName()
 						+ " is not attached to any stream.");
 			}
@@ -108,7 +112,7 @@ public class UcmSnapshotCheckoutAction extends CheckoutAction {
 				try{ 
 
 					logger.log("Searching for changes in load rules...");
-					ConfigSpec configSpec = new ConfigSpec(cleartool.catcs(existingView));            
+					ConfigSpec configSpec = new ConfigSpec(getConfigSpec(probe, existingView));
 					if (configSpec.loadRulesDiffer(this.loadRules)) {
 						logger.log("Load rules have changed. Updating view...");
 						configSpec.replaceLoadRules(this.loadRules, Tools.isWindows(workspace));
@@ -143,16 +147,52 @@ public class UcmSnapshotCheckoutAction extends CheckoutAction {
 			}
 			createView = true;
 		}
+		if (createView && viewPool != null
+				&& leasePooledView(build, ViewPool.key(view.getStream().toString(), loadRules))) {
+			/* the stream and the load rules are part of the key of the pooled view */
+			logger.log("Updating view...");
+			cleartool.update(view);
+			createView = false;
+		}
 		if (createView) {
 			logger.log(String.format("Creating view: %s...", view.getName()));
 			cleartool.mkview(view, stgloc, cleartool.getEnv().expand(mkViewOptionalParams));
 			ConfigSpec configSpec = new ConfigSpec(cleartool.catcs(view));
 			configSpec.replaceLoadRules(this.loadRules, Tools.isWindows(workspace));
 			logger.log(String.format("Loading files from load rules..."));
-			cleartool.setcs(view, configSpec.getValue());
+			loadNewView(view, configSpec);
 		}
 
 		return true;
 	}
 
+	@Override
+	public boolean prepare(FilePath workspace) throws IOException, InterruptedException,
+			ClearToolError
+	{
+		if (!useUpdate) {
+			return false;
+		}
+		View existingView = new View(view.getName());
+		ViewProbe probe = probeView(existingView, workspace.child(view.getName()), true);
+		if (!probe.isExistingView() || probe.getStream() == null
+				|| !probe.getStream().equals(view.getStream())) {
+			/* not attached to the stream of the job */
+			return false;
+		}
+
+		cleartool.endviewServer(existingView, ccCmdDelay);
+		try {
+			ConfigSpec configSpec = new ConfigSpec(getConfigSpec(probe, existingView));
+			if (configSpec.loadRulesDiffer(this.loadRules)) {
+				/* left to the checkout */
+				return false;
+			}
+			cleartool.update(existingView);
+			return true;
+		} finally {
+			cleartool.endviewServer(existingView, ccCmdDelay);
+		}
+	}
+
 }
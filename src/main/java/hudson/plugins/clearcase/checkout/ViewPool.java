@@ -0,0 +1,327 @@
+package hudson.plugins.clearcase.checkout;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.clearcase.AbstractClearCaseSCM;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide registry of the snapshot views kept loaded on the nodes, so that the builds
+ * that would otherwise remove and create their view lease a warm one and only update it.
+ *
+ * The views are pooled per node and per key, see {@link #key(String, List)}: the builds of the
+ * jobs that load the same stream or config spec with the same load rules share them. A view is
+ * leased to one build at a time and released when the build completes. The idle views beyond
+ * the maximum size of the pool or idle for too long are handed back by
+ * {@link #evict(String, int, long)}, to be removed on their node. The registry is kept on disk,
+ * so that the views are still known after a restart.
+ */
+public final class ViewPool {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final Logger LOGGER = Logger.getLogger(ViewPool.class.getName());
+
+    static final String FILE_NAME = "hudson.plugins.clearcase.viewpool.xml";
+    /** the directory of the pooled views, in the root directory of the nodes */
+    static final String POOL_DIR = "clearcase-view-pool";
+
+    private static ViewPool instance = null;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final XmlFile file;
+    private List<PooledView> views = null;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    /**
+     * @param file
+     *            where the pooled views are kept, read on first use
+     */
+    ViewPool(File file) {
+        this.file = new XmlFile(file);
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return the pool stored in the root directory of the controller
+     */
+    public static synchronized ViewPool getInstance() {
+        if (instance == null) {
+            instance = new ViewPool(new File(Hudson.getInstance().getRootDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * @param config
+     *            the stream of a UCM view, or the config spec of a base ClearCase view
+     * @return the key of the views that load the same files
+     */
+    public static String key(String config, List<String> loadRules) {
+        List<String> rules = new ArrayList<String>(loadRules);
+        Collections.sort(rules);
+        StringBuilder key = new StringBuilder(config.trim());
+        for (String rule : rules) {
+            key.append('\n').append(rule);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return true if the path is in the {@link #POOL_DIR} directory of a node, the path of a
+     *         view of the pool
+     */
+    public static boolean isPooledPath(String path) {
+        if (path == null) {
+            return false;
+        }
+        String p = path.replace('\\', '/');
+        return p.contains("/" + POOL_DIR + "/");
+    }
+
+    /**
+     * @return the identifier of the build in the pool
+     */
+    static String leaseId(AbstractBuild<?, ?> build) {
+        return build.getProject().getFullName() + "#" + build.getNumber();
+    }
+
+    /**
+     * Leases the idle view of the node with that key that was released last, the warmest one.
+     *
+     * @return the view, or null if there is none
+     */
+    synchronized PooledView lease(String node, String key, String leaseId) {
+        PooledView leased = null;
+        for (PooledView view : getViews()) {
+            if (view.leaseId == null && view.node.equals(node) && view.key.equals(key)
+                    && (leased == null || view.releasedAt > leased.releasedAt))
+            {
+                leased = view;
+            }
+        }
+        if (leased != null) {
+            leased.leaseId = leaseId;
+            save();
+        }
+        return leased;
+    }
+
+    /**
+     * Adds a view to the pool, leased to the build that creates it.
+     *
+     * @param poolDir
+     *            the {@link #POOL_DIR} directory of the node, where the view is created
+     * @return the view, with a new tag
+     */
+    synchronized PooledView add(String node, String key, FilePath poolDir, String leaseId) {
+        PooledView view = new PooledView();
+        view.node = node;
+        view.key = key;
+        view.tag = newTag(node, key);
+        view.path = poolDir.child(view.tag).getRemote();
+        view.leaseId = leaseId;
+        getViews().add(view);
+        save();
+        return view;
+    }
+
+    /**
+     * Returns the views leased to a build to the pool.
+     */
+    public synchronized void release(String leaseId) {
+        boolean released = false;
+        for (PooledView view : getViews()) {
+            if (leaseId.equals(view.leaseId)) {
+                view.leaseId = null;
+                view.releasedAt = System.currentTimeMillis();
+                released = true;
+            }
+        }
+        if (released) {
+            save();
+        }
+    }
+
+    /**
+     * Drops a view from the pool, e.g. because it is not healthy anymore.
+     */
+    synchronized void discard(PooledView view) {
+        if (getViews().remove(view)) {
+            save();
+        }
+    }
+
+    /**
+     * Drops the idle views of a node that were released more than <tt>maxIdleMillis</tt> ago,
+     * and for each key the least recently released ones beyond <tt>maxSize</tt>.
+     *
+     * @return the dropped views, which must be removed from the node
+     */
+    synchronized List<PooledView> evict(String node, int maxSize, long maxIdleMillis) {
+        List<PooledView> evicted = new ArrayList<PooledView>();
+        Map<String, List<PooledView>> idle = new HashMap<String, List<PooledView>>();
+        long now = System.currentTimeMillis();
+        for (Iterator<PooledView> it = getViews().iterator(); it.hasNext();) {
+            PooledView view = it.next();
+            if (view.leaseId != null || !view.node.equals(node)) {
+                continue;
+            }
+            if (now - view.releasedAt > maxIdleMillis) {
+                evicted.add(view);
+                it.remove();
+            } else {
+                List<PooledView> sameKey = idle.get(view.key);
+                if (sameKey == null) {
+                    sameKey = new ArrayList<PooledView>();
+                    idle.put(view.key, sameKey);
+                }
+                sameKey.add(view);
+            }
+        }
+        for (List<PooledView> sameKey : idle.values()) {
+            Collections.sort(sameKey);
+            for (PooledView view : sameKey.subList(0, Math.max(0, sameKey.size() - maxSize))) {
+                evicted.add(view);
+                getViews().remove(view);
+            }
+        }
+        if (!evicted.isEmpty()) {
+            save();
+        }
+        return evicted;
+    }
+
+    /**
+     * @return true if the view tag belongs to a view of the pool
+     */
+    public synchronized boolean contains(String tag) {
+        for (PooledView view : getViews()) {
+            if (view.tag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return getViews().size();
+    }
+
+    /**
+     * A tag unique among the views of the pool, e.g. <tt>ccpool_node_1a2b3c4d_k3x9w2</tt>.
+     */
+    private String newTag(String node, String key) {
+        String prefix = "ccpool_" + (node.length() == 0 ? "master" : node) + "_"
+                + Integer.toHexString(key.hashCode()) + "_";
+        prefix = prefix.replaceAll("[\\s\\\\\\/:\\?\\*\\|]+", "_");
+        long suffix = System.currentTimeMillis();
+        while (contains(prefix + Long.toString(suffix, 36))) {
+            suffix++;
+        }
+        return prefix + Long.toString(suffix, 36);
+    }
+
+    /**
+     * Writes the pool. A failure is only logged, the views are still known until a restart.
+     */
+    private void save() {
+        try {
+            file.write(new ArrayList<PooledView>(views));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write the view pool " + file, e);
+        }
+    }
+
+    private List<PooledView> getViews() {
+        if (views == null) {
+            views = load();
+            /* the builds do not survive a restart, neither do their leases */
+            for (PooledView view : views) {
+                if (view.leaseId != null) {
+                    view.leaseId = null;
+                    view.releasedAt = System.currentTimeMillis();
+                }
+            }
+        }
+        return views;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PooledView> load() {
+        if (file.exists()) {
+            try {
+                return (List<PooledView>) file.read();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not read the view pool " + file, e);
+            } catch (ClassCastException e) {
+                LOGGER.log(Level.WARNING, "Could not read the view pool " + file, e);
+            }
+        }
+        return new ArrayList<PooledView>();
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * A snapshot view of the pool, as stored on disk.
+     */
+    static final class PooledView implements Comparable<PooledView> {
+        String node;
+        String key;
+        String tag;
+        /** the directory of the view on the node */
+        String path;
+        /** the build the view is leased to, null if it is idle */
+        String leaseId;
+        long releasedAt;
+
+        /** in release order */
+        @Override
+        public int compareTo(PooledView o) {
+            return releasedAt < o.releasedAt ? -1 : (releasedAt == o.releasedAt ? 0 : 1);
+        }
+    }
+
+    /**
+     * Returns the views leased by the builds once they are completed.
+     */
+    @SuppressWarnings("rawtypes")
+    @Extension
+    public static class Releaser extends RunListener<AbstractBuild> {
+        @Override
+        public void onCompleted(AbstractBuild build, TaskListener listener) {
+            if (build.getProject().getScm() instanceof AbstractClearCaseSCM) {
+                ViewPool.getInstance().release(leaseId(build));
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package hudson.plugins.clearcase.checkout;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Queue.BuildableItem;
+import hudson.model.Queue.LeftItem;
+import hudson.model.queue.QueueListener;
+import hudson.plugins.clearcase.AbstractClearCaseSCM;
+import hudson.plugins.clearcase.ClearCaseBaseSCM;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prepares the snapshot views of the jobs that reuse their view while their builds wait for an
+ * executor, see {@link CheckoutAction#prepare(hudson.FilePath)}.
+ *
+ * A view is prepared on the node of the last build of its job, where it is. The preparation
+ * starts a few seconds after the build became buildable, so that the builds that get an executor
+ * right away are left alone, and is cancelled if the build leaves the queue before it started.
+ * A view is never prepared during a checkout of the same view tag on the same node: a checkout
+ * waits for the preparation that already started to end, and no preparation starts until it is
+ * done.
+ */
+public final class ViewPreparer {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final Logger LOGGER = Logger.getLogger(ViewPreparer.class.getName());
+
+    /** how long a build waits in the queue before its view is prepared */
+    static final long DELAY = 10;
+    static final int MAX_PREPARATIONS = 2;
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "view preparation");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /* after the thread factory it uses */
+    private static final ViewPreparer INSTANCE = new ViewPreparer();
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final ScheduledExecutorService executor;
+    /* by view, see id(String, String) */
+    private final Map<String, Preparation> preparations = new HashMap<String, Preparation>();
+    private final Set<String> checkouts = new HashSet<String>();
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    ViewPreparer(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    private ViewPreparer() {
+        this(Executors.newScheduledThreadPool(MAX_PREPARATIONS, THREAD_FACTORY));
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    public static ViewPreparer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param node
+     *            the name of the node, empty for the controller
+     * @return the identifier of a view tag on a node
+     */
+    public static String id(String node, String viewTag) {
+        return node + ":" + viewTag;
+    }
+
+    /**
+     * Schedules the preparation of the view of the last build of the project, unless it is being
+     * prepared or checked out.
+     *
+     * @return true if the preparation was scheduled
+     */
+    synchronized boolean schedule(AbstractProject<?, ?> project, String id, Runnable task,
+            long delaySeconds)
+    {
+        if (checkouts.contains(id) || preparations.containsKey(id)) {
+            return false;
+        }
+        Preparation preparation = new Preparation(project, id, task);
+        preparation.future = executor.schedule(preparation, delaySeconds, TimeUnit.SECONDS);
+        preparations.put(id, preparation);
+        return true;
+    }
+
+    /**
+     * Cancels the preparation of the view of the project.
+     *
+     * @param interrupt
+     *            true to interrupt the preparation if it started, false to let it end
+     */
+    synchronized void cancel(AbstractProject<?, ?> project, boolean interrupt) {
+        for (Iterator<Preparation> it = preparations.values().iterator(); it.hasNext();) {
+            Preparation preparation = it.next();
+            if (preparation.project == project) {
+                if (!preparation.started) {
+                    it.remove();
+                    preparation.cancel();
+                } else if (interrupt) {
+                    preparation.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the view as checked out: a preparation that did not start yet is cancelled, and the
+     * one that started is waited for. No preparation starts until {@link #endCheckout(String)}.
+     */
+    public void beginCheckout(String id, ClearCaseLogger logger) throws InterruptedException {
+        Preparation preparation;
+        synchronized (this) {
+            checkouts.add(id);
+            preparation = preparations.get(id);
+            if (preparation != null && !preparation.started) {
+                preparations.remove(id);
+                preparation.cancel();
+                return;
+            }
+        }
+        if (preparation != null) {
+            logger.log("Waiting for the preparation of the view to end...");
+            try {
+                preparation.done.await();
+            } catch (InterruptedException e) {
+                preparation.cancel();
+                throw e;
+            }
+        }
+    }
+
+    public synchronized void endCheckout(String id) {
+        checkouts.remove(id);
+    }
+
+    synchronized boolean isScheduled(String id) {
+        return preparations.containsKey(id);
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * A scheduled preparation, which can be cancelled until it is done.
+     */
+    private class Preparation implements Runnable {
+        final AbstractProject<?, ?> project;
+        final String id;
+        final Runnable task;
+        final CountDownLatch done = new CountDownLatch(1);
+        ScheduledFuture<?> future = null;
+        /* guarded by the preparer */
+        boolean started = false;
+        boolean cancelled = false;
+        Thread thread = null;
+
+        Preparation(AbstractProject<?, ?> project, String id, Runnable task) {
+            this.project = project;
+            this.id = id;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (ViewPreparer.this) {
+                if (cancelled || checkouts.contains(id)) {
+                    forget();
+                    done.countDown();
+                    return;
+                }
+                started = true;
+                thread = Thread.currentThread();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (ViewPreparer.this) {
+                    forget();
+                    thread = null;
+                    /* the interruption was meant for the task only */
+                    Thread.interrupted();
+                }
+                done.countDown();
+            }
+        }
+
+        /* a new preparation of the view may have been scheduled once this one was cancelled */
+        private void forget() {
+            if (preparations.get(id) == this) {
+                preparations.remove(id);
+            }
+        }
+
+        /**
+         * Interrupts the preparation if it started, otherwise makes sure it never does.
+         */
+        void cancel() {
+            synchronized (ViewPreparer.this) {
+                cancelled = true;
+                if (!started) {
+                    if (future.cancel(false)) {
+                        done.countDown();
+                    }
+                } else if (thread != null) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepares the views of the jobs whose builds wait for an executor, if enabled in the global
+     * configuration.
+     */
+    @Extension
+    public static class QueueWatcher extends QueueListener {
+
+        @Override
+        public void onEnterBuildable(BuildableItem item) {
+            if (!ClearCaseBaseSCM.BASE_DESCRIPTOR.isPrepareQueuedViews()
+                    || !(item.task instanceof AbstractProject))
+            {
+                return;
+            }
+            final AbstractProject<?, ?> project = (AbstractProject<?, ?>) item.task;
+            if (!(project.getScm() instanceof AbstractClearCaseSCM) || project.isBuilding()) {
+                return;
+            }
+            final AbstractClearCaseSCM scm = (AbstractClearCaseSCM) project.getScm();
+            final AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+            if (scm.isUseDynamicView() || !scm.isUseUpdate() || lastBuild == null
+                    || lastBuild.getBuiltOn() == null)
+            {
+                return;
+            }
+            String viewTag = scm.getBuildViewName(lastBuild);
+            if (viewTag == null) {
+                return;
+            }
+            getInstance().schedule(project, id(lastBuild.getBuiltOnStr(), viewTag),
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                if (scm.prepareView(lastBuild)) {
+                                    LOGGER.fine("Prepared the view of " + project.getFullName());
+                                }
+                            } catch (InterruptedException e) {
+                                LOGGER.fine("Cancelled the preparation of the view of "
+                                        + project.getFullName());
+                            } catch (Exception e) {
+                                LOGGER.log(Level.FINE, "Could not prepare the view of "
+                                        + project.getFullName(), e);
+                            }
+                        }
+                    }, DELAY);
+        }
+
+        @Override
+        public void onLeaveBuildable(BuildableItem item) {
+            if (item.task instanceof AbstractProject) {
+                getInstance().cancel((AbstractProject<?, ?>) item.task, false);
+            }
+        }
+
+        @Override
+        public void onLeft(LeftItem item) {
+            if (item.isCancelled() && item.task instanceof AbstractProject) {
+                getInstance().cancel((AbstractProject<?, ?>) item.task, true);
+            }
+        }
+    }
+}
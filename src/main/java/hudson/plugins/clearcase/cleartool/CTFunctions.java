@@ -40,6 +40,8 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface CTFunctions {
 
@@ -129,6 +131,20 @@ public interface CTFunctions {
     setcs(View view, String configSpec) 
     throws IOException, InterruptedException, ClearToolError;
 
+    /**
+     * Sets the config spec of a snapshot view without loading it: setcs is run with the tag of
+     * the view from outside its root directory, the files of the view are only loaded by the
+     * next update.
+     * 
+     * @param view
+     *            the name of the view
+     * @param configSpec
+     *            the config spec, with its load rules
+     */
+    void 
+    setcsWithoutLoading(View view, String configSpec) 
+    throws IOException, InterruptedException, ClearToolError;
+
     /**
      * Update the view with its latest configuration
      * 
@@ -163,6 +179,21 @@ public interface CTFunctions {
     update(View view) 
     throws IOException, InterruptedException, ClearToolError;
 
+    /**
+     * Updates the given paths of a snapshot view with its current config spec, the other paths
+     * of the view are left alone. Several updates of disjoint paths of the same view may run
+     * at the same time.
+     * 
+     * The paths must be under the load rules of the config spec, which is not changed.
+     * 
+     * @param paths
+     *            the paths to update, relative to the root of the view
+     * @return the output of the update
+     */
+    String 
+    update(View view, List<String> paths) 
+    throws IOException, InterruptedException, ClearToolError;
+
     /**
      * Returns a list of lshistory entries
      * 
@@ -185,6 +216,19 @@ public interface CTFunctions {
               List<String> lookupPaths, String extendedViewPath) 
     throws IOException, InterruptedException, ClearToolError, ParseException;
 
+    /**
+     * Runs lshistory and hands the entries to a parser as they are printed. The parser may stop
+     * the command before all the history has been listed.
+     * 
+     * @param parser
+     *            receives the entries, its format handler gives the format of the command
+     * @see #lshistory(HistoryFormatHandler, Date, View, String, List, String)
+     */
+    void 
+    lshistory(LsHistoryParser parser, Date lastBuildDate, View view, String branch, 
+              List<String> lookupPaths) 
+    throws IOException, InterruptedException, ClearToolError, ParseException;
+
     /**
      * Gets info about an UCM activity
      * 
@@ -196,6 +240,32 @@ public interface CTFunctions {
     lsactivity(String activityName, HistoryFormatHandler formatHandler, View view) 
     throws IOException, InterruptedException, ClearToolError;
 
+    /**
+     * Gets info about several UCM activities with a single lsactivity command.
+     * 
+     * The activities whose record could not be read unambiguously (e.g. the activity does not
+     * exist, or an error was printed in the middle of its record) are missing from the result,
+     * {@link #lsactivity(String, HistoryFormatHandler, View)} tells what happened to them.
+     * 
+     * @return the activities, by the names given in <tt>activityNames</tt>
+     */
+    Map<String, UcmActivity> 
+    lsactivity(List<String> activityNames, HistoryFormatHandler formatHandler, View view) 
+    throws IOException, InterruptedException;
+
+    /**
+     * Gets the headline, stream, owner, comment and versions of several UCM activities with a
+     * single lsactivity command. The output is parsed as it is printed.
+     * 
+     * The files of the returned activities are their versions. The activities whose record could
+     * not be read unambiguously are missing from the result.
+     * 
+     * @return the activities, by the names given in <tt>activityNames</tt>
+     */
+    Map<String, UcmActivity> 
+    getActivitiesChangelog(List<String> activityNames, View view) 
+    throws IOException, InterruptedException;
+
     /**
      * Lists VOB registry entries
      * 
@@ -494,6 +564,21 @@ public interface CTFunctions {
     getSnapshotViewUuid(FilePath viewPath)
     throws IOException, ClearToolError;
     
+    /**
+     * Collects what a checkout needs to know about a snapshot view, on the node of the view and
+     * with a single remoting call: the registration of its tag, the uuid of the view.dat file of
+     * its directory, its config spec and, if <tt>withStream</tt>, its stream.
+     * 
+     * @param viewPath
+     *          the directory of the view, which may not exist
+     * @return the probe, see {@link ViewProbe}
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    ViewProbe
+    probeView(View view, FilePath viewPath, boolean withStream)
+    throws IOException, InterruptedException;
+    
     /**
      * Retrieve the list of storage locations registered on the clearcase server.
      * 
@@ -566,6 +651,16 @@ public interface CTFunctions {
     boolean
     hasCheckouts(String branch, View view, List<String> viewPaths)
     throws IOException, InterruptedException, ClearToolError;
+
+    /**
+     * Looks for the checkouts of several branches with a single lscheckout command, the tree is
+     * walked once whatever the number of branches.
+     * 
+     * @return the branches, among <tt>branchNames</tt>, that have checkouts
+     */
+    Set<String>
+    getCheckoutBranches(List<String> branchNames, View view, List<String> viewPaths)
+    throws IOException, InterruptedException, ClearToolError;
     
     
     /**
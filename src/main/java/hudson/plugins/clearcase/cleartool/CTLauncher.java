@@ -28,6 +28,8 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Launcher.ProcStarter;
+import hudson.Proc;
+import hudson.console.LineTransformationOutputStream;
 import hudson.plugins.clearcase.util.ClearToolError;
 import hudson.util.ArgumentListBuilder;
 import hudson.util.ForkOutputStream;
@@ -37,11 +39,21 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.commons.io.output.NullOutputStream;
 
 public class CTLauncher {
 
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    public static final String ERROR_MARKER = "cleartool: Error";
+    /* error lines kept in memory when streaming, the others are dropped */
+    private static final int MAX_ERROR_LINES = 100;
+
     /*******************************
      **** FIELDS *******************
      *******************************/
@@ -53,6 +65,7 @@ public class CTLauncher {
     private final File logFile;
 
     private final String executable;
+    private CTSession session;
 
     /*******************************
      **** CONSTRUCTOR **************
@@ -96,15 +109,8 @@ public class CTLauncher {
         cmd.add(args.toCommandArray());
 
         ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-        DataOutputStream logStream;
-        
-        
-        if (logFile == null) {
-            logStream = new DataOutputStream(new NullOutputStream()); 
-        } else {
-            logStream = new DataOutputStream(new FileOutputStream(logFile, true /*append*/));
-        }
-        
+        DataOutputStream logStream = openLogStream();
+
         ForkOutputStream forkStream = new ForkOutputStream(outStream, logStream);
         
         int code;
@@ -112,14 +118,19 @@ public class CTLauncher {
 
         try {
             logStream.writeBytes(">>> " + cmd.toStringWithQuote() + "\n");
-            
-            ProcStarter starter = launcher.launch();
-            starter.cmds(cmd);
-            starter.envs(this.env);
-            starter.stdout(forkStream);
-            starter.pwd(path);
 
-            code = launcher.launch(starter).join();
+            Integer sessionCode = runInSession(args, path, forkStream, true);
+            if (sessionCode != null) {
+                code = sessionCode;
+            } else {
+                ProcStarter starter = launcher.launch();
+                starter.cmds(cmd);
+                starter.envs(this.env);
+                starter.stdout(forkStream);
+                starter.pwd(path);
+
+                code = launcher.launch(starter).join();
+            }
 
             cleartoolResult = outStream.toString();
             logStream.writeBytes("\n\n"); // to separate the commands
@@ -127,13 +138,213 @@ public class CTLauncher {
             forkStream.close();
         }
 
-        if (code != 0 || cleartoolResult.contains("cleartool: Error")) {
+        if (code != 0 || cleartoolResult.contains(ERROR_MARKER)) {
             throw new ClearToolError(cmd.toStringWithQuote(), cleartoolResult, code, path);
         }
 
         return cleartoolResult;
     }
 
+    /**
+     * Run a clearcase command and hand its output to a {@link LineHandler} line by line, as it is
+     * produced by cleartool. The output is never stored as a whole, only the lines containing
+     * "cleartool: Error" are kept in memory. The error messages are not passed to the handler.
+     * 
+     * @param args
+     *            the command to launch using the clear tool executable
+     * @param filePath
+     *            optional, the path where the command should be launched
+     * @param handler
+     *            receives the output lines. If it returns false, the remaining output is
+     *            discarded and the cleartool process is killed. When the command runs in the
+     *            persistent session, the session is kept: the remaining output is read and
+     *            dropped.
+     * @throws ClearToolError
+     *             if the command returned a non zero code or printed error lines. In that case,
+     *             {@link ClearToolError#getResult()} only contains the error lines.
+     */
+    public void run(ArgumentListBuilder args, FilePath filePath, LineHandler handler)
+            throws IOException, InterruptedException, ClearToolError
+    {
+        FilePath path = filePath;
+        if (path == null) {
+            path = this.nodeRoot;
+        }
+        ArgumentListBuilder cmd = new ArgumentListBuilder(this.executable);
+        cmd.add(args.toCommandArray());
+
+        LineDispatcher dispatcher = new LineDispatcher(handler);
+        DataOutputStream logStream = openLogStream();
+        ForkOutputStream forkStream = new ForkOutputStream(dispatcher, logStream);
+
+        int code;
+        try {
+            logStream.writeBytes(">>> " + cmd.toStringWithQuote() + "\n");
+
+            Integer sessionCode = runInSession(args, path, forkStream, false);
+            if (sessionCode != null) {
+                code = sessionCode;
+            } else {
+                ProcStarter starter = launcher.launch();
+                starter.cmds(cmd);
+                starter.envs(this.env);
+                starter.stdout(forkStream);
+                starter.pwd(path);
+
+                code = dispatcher.waitFor(launcher.launch(starter));
+            }
+            logStream.writeBytes("\n\n"); // to separate the commands
+        } finally {
+            /* also hands the last line to the handler if it had no line terminator */
+            forkStream.close();
+        }
+
+        dispatcher.rethrowFailure();
+
+        if (!dispatcher.isStopped() && (code != 0 || dispatcher.hasErrors())) {
+            throw new ClearToolError(cmd.toStringWithQuote(), dispatcher.getErrors(), code, path);
+        }
+    }
+
+    /**
+     * Starts a persistent interactive cleartool process. Until {@link #closeSession()} is called,
+     * the commands launched with {@link #run(ArgumentListBuilder, FilePath)} will be sent to that
+     * process instead of forking a new one each time.
+     * 
+     * If the session cannot be started, the commands will be forked as usual.
+     * 
+     * @return true if the session was started
+     */
+    public synchronized boolean openSession() throws InterruptedException {
+        if (this.session == null) {
+            try {
+                this.session = CTSession.open(launcher, executable, env, nodeRoot);
+            } catch (IOException e) {
+                this.session = null;
+            }
+        }
+        return this.session != null;
+    }
+
+    /**
+     * Sends the next commands to a session that is already started.
+     */
+    synchronized void attachSession(CTSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Terminates the persistent cleartool process if any.
+     */
+    public synchronized void closeSession() {
+        if (this.session != null) {
+            this.session.close();
+            this.session = null;
+        }
+    }
+
+    /**
+     * Tries to run the command in the persistent session. The command is only forked if it was
+     * not sent to the session: a command may have run before the session died, e.g.
+     * <tt>mkview</tt> or <tt>deliver</tt>, and must not be run twice.
+     * 
+     * @param buffered
+     *            if true, the output is only written to the stream once the command is over. If
+     *            false, the output is written as it comes.
+     * @return the exit code of the command, null if the command must be forked
+     * @throws ClearToolError
+     *             if the session died after the command was sent
+     */
+    private Integer runInSession(ArgumentListBuilder args, FilePath path, OutputStream out,
+            boolean buffered) throws IOException, InterruptedException, ClearToolError
+    {
+        CTSession s;
+        synchronized (this) {
+            s = this.session;
+        }
+        String[] cmdArgs = args.toCommandArray();
+        if (s == null || !s.accepts(cmdArgs) || !s.tryLock()) {
+            /* no session, unsupported arguments or session busy with another thread */
+            return null;
+        }
+        /* buffered so that a dying session does not leave partial output behind */
+        ByteArrayOutputStream buffer = null;
+        OutputStream target;
+        if (buffered) {
+            buffer = new ByteArrayOutputStream();
+            target = buffer;
+        } else {
+            target = out;
+        }
+        int code;
+        boolean completed = false;
+        try {
+            try {
+                if (!s.changeDir(path)) {
+                    /* let a forked process report the error with the original behaviour */
+                    completed = true;
+                    return null;
+                }
+            } catch (IOException e) {
+                /* only cd was sent */
+                return null;
+            }
+            try {
+                code = s.execute(cmdArgs, target);
+                completed = true;
+            } catch (CTSession.SessionDiedException e) {
+                if (!e.isCommandSent()) {
+                    return null;
+                }
+                ArgumentListBuilder cmd = new ArgumentListBuilder(this.executable);
+                cmd.add(cmdArgs);
+                throw new ClearToolError("The cleartool session terminated while running the "
+                        + "command, it is not run again", e, cmd.toStringWithQuote(),
+                        buffered ? buffer.toString() : "", -1, path);
+            }
+        } finally {
+            if (!completed) {
+                /* the session is dead or was left in the middle of a command (interrupted),
+                 * all next commands will be forked */
+                synchronized (this) {
+                    if (this.session == s) {
+                        closeSession();
+                    }
+                }
+            }
+            s.unlock();
+        }
+        if (buffered) {
+            buffer.writeTo(out);
+        }
+        return code;
+    }
+
+    /**
+     * Writes to the log file a command that was not run by this launcher, e.g. by a
+     * {@link ViewProbe} on the node, with its output.
+     */
+    public void log(ArgumentListBuilder args, String output) throws IOException {
+        ArgumentListBuilder cmd = new ArgumentListBuilder(this.executable);
+        cmd.add(args.toCommandArray());
+        DataOutputStream logStream = openLogStream();
+        try {
+            logStream.writeBytes(">>> " + cmd.toStringWithQuote() + "\n");
+            logStream.writeBytes(output);
+            logStream.writeBytes("\n\n"); // to separate the commands
+        } finally {
+            logStream.close();
+        }
+    }
+
+    private DataOutputStream openLogStream() throws IOException {
+        if (logFile == null) {
+            return new DataOutputStream(new NullOutputStream());
+        } else {
+            return new DataOutputStream(new FileOutputStream(logFile, true /* append */));
+        }
+    }
+
     /*******************************
      **** GETTERS ******************
      *******************************/
@@ -164,4 +375,157 @@ public class CTLauncher {
     public File getLogFile() {
         return logFile;
     }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * Receives the output of a cleartool command line by line.
+     * 
+     * @see CTLauncher#run(ArgumentListBuilder, FilePath, LineHandler)
+     */
+    public interface LineHandler {
+
+        /**
+         * @param line
+         *            an output line, without its line terminator
+         * @return true to continue reading the output, false to stop and kill the process
+         */
+        boolean handle(String line) throws IOException;
+    }
+
+    /**
+     * Collects the output lines, for the commands whose output is short.
+     */
+    public static class OutputCollector implements LineHandler {
+
+        private final StringBuilder output = new StringBuilder();
+
+        @Override
+        public boolean handle(String line) {
+            output.append(line).append('\n');
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return output.toString();
+        }
+    }
+
+    /**
+     * Decodes the process output into lines and hands them to a {@link LineHandler}. Only one line
+     * is buffered at a time.
+     */
+    static class LineDispatcher extends LineTransformationOutputStream {
+
+        private final LineHandler handler;
+        private final StringBuilder errors = new StringBuilder();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int errorCount = 0;
+        private volatile boolean stopped = false;
+        private volatile Throwable failure = null;
+
+        LineDispatcher(LineHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        protected void eol(byte[] b, int len) throws IOException {
+            if (stopped) {
+                return;
+            }
+            int end = len;
+            while (end > 0 && (b[end - 1] == '\n' || b[end - 1] == '\r')) {
+                end--;
+            }
+            String line = new String(b, 0, end);
+            int errorIndex = line.indexOf(ERROR_MARKER);
+            if (errorIndex != -1) {
+                if (errorCount++ < MAX_ERROR_LINES) {
+                    errors.append(line.substring(errorIndex)).append('\n');
+                }
+                /*
+                 * stderr is not line buffered, the error may have been printed after some
+                 * standard output that had no line terminator yet
+                 */
+                line = line.substring(0, errorIndex);
+                if (line.length() == 0) {
+                    return;
+                }
+            }
+            try {
+                if (!handler.handle(line)) {
+                    stop();
+                }
+            } catch (Throwable t) {
+                /* this is called from the process' output pumping thread, keep it for later */
+                failure = t;
+                stop();
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            done.countDown();
+        }
+
+        /**
+         * Waits until the process ends or until the handler asks to stop reading.
+         * 
+         * @return the exit code of the process, 0 if it was killed on the handler's demand
+         */
+        public int waitFor(final Proc proc) throws IOException, InterruptedException {
+            Thread joiner = new Thread("cleartool process joiner") {
+                @Override
+                public void run() {
+                    try {
+                        proc.join();
+                    } catch (Exception e) {
+                        /* the exception is raised again by the second join below */
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            joiner.setDaemon(true);
+            joiner.start();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                proc.kill();
+                throw e;
+            }
+            if (stopped) {
+                proc.kill();
+                return 0;
+            }
+            return proc.join();
+        }
+
+        public void rethrowFailure() throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IOException(failure);
+            }
+        }
+
+        public boolean isStopped() {
+            return stopped && failure == null;
+        }
+
+        public boolean hasErrors() {
+            return errorCount > 0;
+        }
+
+        public String getErrors() {
+            return errors.toString();
+        }
+    }
 }
@@ -0,0 +1,314 @@
+package hudson.plugins.clearcase.cleartool;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Launcher.ProcStarter;
+import hudson.Proc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A long-lived interactive cleartool process.
+ *
+ * Commands are written on the process' standard input one per line. The process is started with
+ * the <tt>-status</tt> option so that cleartool prints a "Command N returned status S" line after
+ * each command, which is used to detect where the reply ends and what the exit code was.
+ *
+ * Only one command can run at a time. Callers must {@link #tryLock()} the session before calling
+ * {@link #execute(String[], OutputStream)} and fall back to a forked process if the
+ * session is busy or if {@link #accepts(String[])} returns false.
+ */
+public class CTSession {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final Pattern STATUS_PATTERN = Pattern
+            .compile("^Command \\d+ returned status (-?\\d+)\\s*$");
+    private static final String PROMPT = "cleartool> ";
+    /* compared by identity, cannot collide with a line read from the process */
+    private static final String EOF = new String("<EOF>");
+    private static final long HANDSHAKE_TIMEOUT_SECS = 30;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final Proc proc;
+    private final Writer stdin;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private String currentDir;
+    private volatile boolean broken = false;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    CTSession(Proc proc, String currentDir) {
+        this.proc = proc;
+        this.currentDir = currentDir;
+        this.stdin = new OutputStreamWriter(proc.getStdin());
+
+        Thread pump = new Thread("cleartool session output pump") {
+            @Override
+            public void run() {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        CTSession.this.proc.getStdout()));
+                try {
+                    String line = reader.readLine();
+                    while (line != null) {
+                        lines.add(line);
+                        line = reader.readLine();
+                    }
+                } catch (IOException e) {
+                    /* the process died, the EOF marker will notify the reader */
+                } finally {
+                    lines.add(EOF);
+                }
+            }
+        };
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    /**
+     * Starts an interactive cleartool process and checks that it answers.
+     *
+     * @return the new session
+     * @throws IOException
+     *             if the process could not be started or did not answer in time
+     */
+    public static CTSession open(Launcher launcher, String executable, EnvVars env, FilePath pwd)
+            throws IOException, InterruptedException
+    {
+        ProcStarter starter = launcher.launch();
+        starter.cmds(executable, "-status");
+        starter.envs(env);
+        starter.pwd(pwd);
+        starter.readStdout();
+        starter.writeStdin();
+
+        CTSession session = new CTSession(starter.start(), pwd.getRemote());
+        try {
+            session.handshake();
+        } catch (IOException e) {
+            session.close();
+            throw e;
+        }
+        return session;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * Tells if a command can be sent through the session. Interactive cleartool cannot receive
+     * arguments that contain both kinds of quotes or line breaks, those must be forked.
+     */
+    public boolean accepts(String[] args) {
+        if (broken) {
+            return false;
+        }
+        for (String arg : args) {
+            if (quote(arg) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Moves the session to another directory. The caller must hold the lock.
+     *
+     * @return false if cleartool refused to change directory
+     * @throws IOException
+     *             if the session died, it must not be used afterwards
+     */
+    public boolean changeDir(FilePath path) throws IOException, InterruptedException {
+        if (path.getRemote().equals(currentDir)) {
+            return true;
+        }
+        if (quote(path.getRemote()) == null) {
+            return false;
+        }
+        if (send(new String[] { "cd", path.getRemote() }, null) != 0) {
+            return false;
+        }
+        currentDir = path.getRemote();
+        return true;
+    }
+
+    /**
+     * Runs a command in the session's current directory. The caller must hold the lock.
+     *
+     * @param args
+     *            the command arguments, without the cleartool executable
+     * @param out
+     *            where to write the output of the command
+     * @return the exit status of the command
+     * @throws SessionDiedException
+     *             if the session died, it must not be used afterwards. The command may have
+     *             run if it was sent.
+     * @throws IOException
+     *             if the output could not be written, the session is closed
+     * @throws InterruptedException
+     *             the session is closed, since the command was not read to its end
+     */
+    public int execute(String[] args, OutputStream out) throws IOException, InterruptedException {
+        return send(args, out);
+    }
+
+    public void close() {
+        broken = true;
+        try {
+            stdin.write("quit\n");
+            stdin.flush();
+            stdin.close();
+        } catch (IOException e) {
+            /* process already dead */
+        }
+        try {
+            proc.kill();
+        } catch (Exception e) {
+            /* pass */
+        }
+    }
+
+    private void handshake() throws IOException, InterruptedException {
+        stdin.write("pwd\n");
+        stdin.flush();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(HANDSHAKE_TIMEOUT_SECS);
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            String line = remaining > 0 ? lines.poll(remaining, TimeUnit.MILLISECONDS) : null;
+            if (line == null || line == EOF) {
+                throw new IOException("cleartool session did not answer");
+            }
+            if (STATUS_PATTERN.matcher(stripPrompt(line)).matches()) {
+                return;
+            }
+        }
+    }
+
+    private int send(String[] args, OutputStream out) throws IOException, InterruptedException {
+        StringBuilder cmd = new StringBuilder();
+        for (String arg : args) {
+            if (cmd.length() > 0) {
+                cmd.append(' ');
+            }
+            cmd.append(quote(arg));
+        }
+        try {
+            stdin.write(cmd.toString());
+            stdin.write('\n');
+            stdin.flush();
+        } catch (IOException e) {
+            /* the process is gone, it cannot have read the command */
+            broken = true;
+            throw new SessionDiedException("cleartool session terminated", false, e);
+        }
+
+        boolean done = false;
+        try {
+            while (true) {
+                String line = lines.take();
+                if (line == EOF) {
+                    throw new SessionDiedException(
+                            "cleartool session terminated unexpectedly", true, null);
+                }
+                line = stripPrompt(line);
+                Matcher m = STATUS_PATTERN.matcher(line);
+                if (m.matches()) {
+                    done = true;
+                    return Integer.parseInt(m.group(1));
+                }
+                if (out != null) {
+                    out.write(line.getBytes());
+                    out.write('\n');
+                }
+            }
+        } finally {
+            if (!done) {
+                /* the rest of the output and the status would be read by the next command */
+                close();
+            }
+        }
+    }
+
+    /**
+     * Quotes an argument for the interactive cleartool parser.
+     *
+     * @return the quoted argument, null if it cannot be quoted
+     */
+    static String quote(String arg) {
+        if (arg.indexOf('\n') != -1 || arg.indexOf('\r') != -1) {
+            return null;
+        }
+        boolean needsQuotes = arg.length() == 0;
+        for (int i = 0; i < arg.length() && !needsQuotes; i++) {
+            char c = arg.charAt(i);
+            needsQuotes = Character.isWhitespace(c) || c == '"' || c == '\'';
+        }
+        if (!needsQuotes) {
+            return arg;
+        } else if (arg.indexOf('"') == -1) {
+            return '"' + arg + '"';
+        } else if (arg.indexOf('\'') == -1) {
+            return '\'' + arg + '\'';
+        } else {
+            return null;
+        }
+    }
+
+    private static String stripPrompt(String line) {
+        while (line.startsWith(PROMPT)) {
+            line = line.substring(PROMPT.length());
+        }
+        return line;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * The cleartool process died. If the command had been sent, it may have run in part or
+     * entirely, it must not be run again.
+     */
+    public static class SessionDiedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final boolean commandSent;
+
+        SessionDiedException(String message, boolean commandSent, Throwable cause) {
+            super(message, cause);
+            this.commandSent = commandSent;
+        }
+
+        public boolean isCommandSent() {
+            return commandSent;
+        }
+    }
+}
@@ -43,17 +43,18 @@ import hudson.plugins.clearcase.util.DeliverError;
 import hudson.plugins.clearcase.util.Tools;
 import hudson.util.ArgumentListBuilder;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -70,6 +71,14 @@ public abstract class ClearTool implements CTFunctions {
             "View attributes: ([^\\r\\n]+)", Pattern.DOTALL);
     private static final Pattern CREATED_BASELINE_PATTERN = Pattern
             .compile("Created baseline \"([^\"]+)\" in component \"([^\"]+)\"");
+    /* prefix of each record of a batched lsactivity, followed by the activity name */
+    private static final String ACTIVITY_RECORD_START = "##activity:";
+    private static final String ACTIVITY_RECORD_NAME_END = "##";
+    /* separates the versions of an activity from its other fields in a combined lsactivity */
+    private static final String ACTIVITY_VERSIONS_END = "##fields##";
+    private static final HistoryFormatHandler ACTIVITY_FIELDS_FORMAT = new HistoryFormatHandler(
+            HistoryFormatHandler.UCM_ACTIVITY_HEADLINE, HistoryFormatHandler.UCM_ACTIVITY_STREAM,
+            HistoryFormatHandler.USER_ID, HistoryFormatHandler.COMMENT_NONEWLINE);
 
     protected final CTLauncher launcher;
     private final Map<PromotionLevel, String> promotionLevelNames;
@@ -138,7 +147,12 @@ public abstract class ClearTool implements CTFunctions {
             //
             // when creating a dynamic view, the files will be stored in the
             // storage location
-            args.add(view.getName());
+            if (view.getViewPath() != null) {
+                /* if viewPath is already defined, we use it */
+                args.add(view.getViewPath());
+            } else {
+                args.add(view.getName());
+            }
             execPath = getWorkspace();
         }
 
@@ -537,6 +551,27 @@ public abstract class ClearTool implements CTFunctions {
         launcher.run(args, viewPath);
     }
 
+    /** implements {@link CTFunctions#update(View, List)} **/
+    @Override
+    public String update(View view, List<String> paths) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        args.add("update");
+        args.add("-force");
+        for (String path : paths) {
+            args.add(path);
+        }
+
+        FilePath viewPath;
+        if (view.getViewPath() != null) {
+            viewPath = new FilePath(getViewRootPath().getChannel(), view.getViewPath());
+        } else {
+            viewPath = getViewRootPath().child(view.getName());
+        }
+        return launcher.run(args, viewPath);
+    }
+
     /** implements {@link CTFunctions#getStreamFromView(View)} **/
     @Override
     public Stream getStreamFromView(View view) throws IOException, InterruptedException,
@@ -590,11 +625,24 @@ public abstract class ClearTool implements CTFunctions {
     public List<HistoryEntry> lshistory(HistoryFormatHandler formatHandler, Date sinceDate,
             View view, String branch, List<String> lookupPaths, String extendedViewPath)
             throws IOException, InterruptedException, ClearToolError, ParseException
+    {
+        LsHistoryParser parser = new LsHistoryParser(formatHandler, extendedViewPath);
+        lshistory(parser, sinceDate, view, branch, lookupPaths);
+        return parser.getEntries();
+    }
+
+    /**
+     * implements {@link CTFunctions#lshistory(LsHistoryParser, Date, View, String, List)}
+     **/
+    @Override
+    public void lshistory(LsHistoryParser parser, Date sinceDate, View view, String branch,
+            List<String> lookupPaths) throws IOException, InterruptedException, ClearToolError,
+            ParseException
     {
         ArgumentListBuilder args = new ArgumentListBuilder();
         args.add("lshistory");
         args.add("-since", Tools.formatCleartoolDate(sinceDate));
-        args.add("-fmt", formatHandler.getFormat() + COMMENT + LINEEND);
+        args.add("-fmt", parser.getFormatHandler().getFormat() + COMMENT + LINEEND);
         if ((branch != null) && (branch.length() > 0)) {
             args.add("-branch", "brtype:" + branch);
         }
@@ -614,92 +662,72 @@ public abstract class ClearTool implements CTFunctions {
             viewPath = getViewRootPath().child(view.getName());
         }
 
-        String result;
         try {
-            result = launcher.run(args, viewPath);
+            launcher.run(args, viewPath, parser);
         } catch (ClearToolError e) {
-            if (e.getResult().contains("cleartool: Error: Branch type not found:")) {
-                /*
-                 * this can happen if we ask for a read only path in the view. we ignore this error
-                 */
-                result = e.getResult();
-            } else {
+            if (!e.getResult().contains("cleartool: Error: Branch type not found:")) {
                 throw e;
             }
+            /*
+             * this can happen if we ask for a read only path in the view. we ignore this error
+             */
         }
 
-        return parseLsHistory(result, formatHandler, extendedViewPath);
+        parser.finish();
     }
 
-    private List<HistoryEntry> parseLsHistory(String cleartoolOutput,
-            HistoryFormatHandler formatHandler, String extendedViewPath) throws ParseException,
-            IOException
+    /**
+     * implements {@link CTFunctions#lsactivity(String, HistoryFormatHandler, View)}
+     **/
+    @Override
+    public UcmActivity lsactivity(String activityName, HistoryFormatHandler formatHandler, View view)
+            throws IOException, InterruptedException, ClearToolError
     {
-        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
-        HistoryEntry currentEntry = null;
-
-        StringBuilder commentBuilder = new StringBuilder();
-
-        BufferedReader reader = new BufferedReader(new StringReader(cleartoolOutput));
-        String line = reader.readLine();
-
-        while (line != null) {
-
-            if (line.startsWith("cleartool: Error: Branch type not found:")) {
-                /*
-                 * this can happen if we ask for a read only path in the view. we ignore this error
-                 */
-                line = reader.readLine();
-                continue;
-            }
-            Matcher matcher = formatHandler.checkLine(line);
-
-            // finder find start of lshistory entry
-            if (matcher != null) {
-
-                if (currentEntry != null) {
-                    currentEntry.setComment(commentBuilder.toString());
-                }
-
-                commentBuilder = new StringBuilder();
-                currentEntry = formatHandler.parseHistoryLine(matcher, line);
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        args.add("lsactivity");
+        args.add("-fmt", formatHandler.getFormat());
+        args.add(activityName);
 
-                String fileName = currentEntry.getElement();
-                // Trim the extended view path
-                if (extendedViewPath != null) {
-                    if (fileName.startsWith(extendedViewPath)) {
-                        fileName = fileName.substring(extendedViewPath.length());
-                        currentEntry.setElement(fileName);
-                    }
-                }
+        FilePath viewPath;
+        if (view.getViewPath() != null) {
+            /* if viewPath is already defined, we use it */
+            viewPath = new FilePath(getViewRootPath().getChannel(), view.getViewPath());
+        } else {
+            /* else, we use a child directory in the workspace/viewRoot */
+            viewPath = getViewRootPath().child(view.getName());
+        }
 
-                entries.add(currentEntry);
+        CTLauncher.OutputCollector output = new CTLauncher.OutputCollector();
 
-            } else {
-                if (commentBuilder.length() > 0) {
-                    commentBuilder.append("\n");
-                }
-                commentBuilder.append(line);
+        try {
+            launcher.run(args, viewPath, output);
+        } catch (ClearToolError e) {
+            if (!e.getResult().contains("not a deliver or rebase integration activity")) {
+                throw e;
             }
-            line = reader.readLine();
+            /*
+             * error if we ask for %[contrib_acts]Xp on a normal activity, the error line is not
+             * part of the collected output
+             */
         }
-        if (currentEntry != null) {
-            currentEntry.setComment(commentBuilder.toString());
-        }
-        return entries;
+
+        return formatHandler.parseActivity(output.toString());
     }
 
     /**
-     * implements {@link CTFunctions#lsactivity(String, HistoryFormatHandler, View)}
+     * implements {@link CTFunctions#lsactivity(List, HistoryFormatHandler, View)}
      **/
     @Override
-    public UcmActivity lsactivity(String activityName, HistoryFormatHandler formatHandler, View view)
-            throws IOException, InterruptedException, ClearToolError
+    public Map<String, UcmActivity> lsactivity(List<String> activityNames,
+            HistoryFormatHandler formatHandler, View view) throws IOException, InterruptedException
     {
         ArgumentListBuilder args = new ArgumentListBuilder();
         args.add("lsactivity");
-        args.add("-fmt", formatHandler.getFormat());
-        args.add(activityName);
+        args.add("-fmt", ACTIVITY_RECORD_START + HistoryFormatHandler.NAME_ELEMENTNAME
+                + ACTIVITY_RECORD_NAME_END + formatHandler.getFormat());
+        for (String activityName : activityNames) {
+            args.add(activityName);
+        }
 
         FilePath viewPath;
         if (view.getViewPath() != null) {
@@ -710,22 +738,93 @@ public abstract class ClearTool implements CTFunctions {
             viewPath = getViewRootPath().child(view.getName());
         }
 
-        String result;
+        CTLauncher.OutputCollector output = new CTLauncher.OutputCollector();
 
         try {
-            result = launcher.run(args, viewPath);
-            ;
+            launcher.run(args, viewPath, output);
         } catch (ClearToolError e) {
-            if (e.getResult().contains("not a deliver or rebase integration activity")) {
-                /* error if we ask for %[contrib_acts]Xp on a normal activity */
-                result = e.getResult().substring(e.getResult().indexOf('\n'));
-                /* we get rid of the first error line */
+            /*
+             * some activities could not be listed or are not integration activities, the
+             * records printed for the other ones are still valid
+             */
+        }
+
+        Map<String, UcmActivity> records = new HashMap<String, UcmActivity>();
+        List<String> ambiguous = new ArrayList<String>();
+        String result = output.toString();
+        int start = result.indexOf(ACTIVITY_RECORD_START);
+        while (start != -1) {
+            int nameEnd = result.indexOf(ACTIVITY_RECORD_NAME_END,
+                    start + ACTIVITY_RECORD_START.length());
+            if (nameEnd == -1) {
+                break;
+            }
+            int next = result.indexOf(ACTIVITY_RECORD_START, nameEnd);
+            String name = result.substring(start + ACTIVITY_RECORD_START.length(), nameEnd);
+            String record = result.substring(nameEnd + ACTIVITY_RECORD_NAME_END.length(),
+                    next != -1 ? next : result.length());
+            /*
+             * stderr is not buffered like stdout, an error printed in the middle of a record
+             * splits it in two lines
+             */
+            int newline = record.indexOf('\n');
+            UcmActivity activity = null;
+            if (newline == -1 || newline == record.length() - 1) {
+                activity = formatHandler.parseActivity(record);
+            }
+            if (activity == null || records.containsKey(name)) {
+                ambiguous.add(name);
             } else {
-                throw e;
+                records.put(name, activity);
             }
+            start = next;
+        }
+        for (String name : ambiguous) {
+            records.remove(name);
         }
+        return bySelector(activityNames, records);
+    }
 
-        return formatHandler.parseActivity(result);
+    /**
+     * @param records
+     *            the activities by the name printed by <tt>%En</tt>
+     * @return the activities by the selectors given in <tt>activityNames</tt>
+     */
+    private static Map<String, UcmActivity> bySelector(List<String> activityNames,
+            Map<String, UcmActivity> records)
+    {
+        Map<String, String> selectors = new HashMap<String, String>();
+        for (String activityName : activityNames) {
+            String name = activityRecordName(activityName);
+            if (selectors.containsKey(name) && !activityName.equals(selectors.get(name))) {
+                /* two activities with the same name in different project VOBs */
+                records.remove(name);
+            }
+            selectors.put(name, activityName);
+        }
+        Map<String, UcmActivity> activities = new HashMap<String, UcmActivity>();
+        for (String activityName : activityNames) {
+            String name = activityRecordName(activityName);
+            if (records.containsKey(name)) {
+                activities.put(activityName, records.get(name));
+            }
+        }
+        return activities;
+    }
+
+    /**
+     * @return the name printed by <tt>%En</tt> for an activity selector, without the
+     *         <tt>activity:</tt> prefix and the project VOB
+     */
+    private static String activityRecordName(String activityName) {
+        String name = activityName;
+        if (name.startsWith("activity:")) {
+            name = name.substring("activity:".length());
+        }
+        if (name.indexOf('@') != -1) {
+            name = name.substring(0, name.indexOf('@'));
+        }
+        return name;
     }
     
     public List<AffectedFile> getActivityChangelog(UcmActivity activity, View view) throws IOException,
@@ -750,22 +849,135 @@ public abstract class ClearTool implements CTFunctions {
         List<AffectedFile> files = new ArrayList<AffectedFile>();
         
         if (result != null) {
-            int viewPathLength = view.getViewPath().length();
-            for (String f : result.split("\\s*,\\s+")) {
-                f = f.replace("\"", "");
-                if (f.length() > viewPathLength) {
-                    f = f.substring(viewPathLength);
-                    AffectedFile file = new AffectedFile();
-                    file.setName(f.substring(0, f.indexOf("@@")));
-                    file.setOperation("checkin");
-                    file.setDate(activity.getDate());
-                    file.setVersion(f.substring(f.indexOf("@@") + 2));
-                    
-                    files.add(file);
+            files = parseActivityVersions(result, view.getViewPath().length(), activity.getDate());
+        }
+
+        return files;
+    }
+
+    /**
+     * implements {@link CTFunctions#getActivitiesChangelog(List, View)}
+     **/
+    @Override
+    public Map<String, UcmActivity> getActivitiesChangelog(List<String> activityNames, View view)
+            throws IOException, InterruptedException
+    {
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        args.add("lsactivity");
+        args.add("-fmt", ACTIVITY_RECORD_START + HistoryFormatHandler.NAME_ELEMENTNAME
+                + ACTIVITY_RECORD_NAME_END + HistoryFormatHandler.UCM_ACTIVITY_VERSIONS
+                + ACTIVITY_VERSIONS_END + ACTIVITY_FIELDS_FORMAT.getFormat());
+        for (String activityName : activityNames) {
+            args.add(activityName);
+        }
+
+        FilePath viewPath;
+        if (view.getViewPath() != null) {
+            /* if viewPath is already defined, we use it */
+            viewPath = new FilePath(getViewRootPath().getChannel(), view.getViewPath());
+        } else {
+            /* else, we use a child directory in the workspace/viewRoot */
+            viewPath = getViewRootPath().child(view.getName());
+        }
+        final int viewPathLength = viewPath.getRemote().length();
+
+        /* the records are parsed as they are printed, the output is never held as a whole */
+        final Map<String, UcmActivity> records = new HashMap<String, UcmActivity>();
+        final List<String> ambiguous = new ArrayList<String>();
+        CTLauncher.LineHandler handler = new CTLauncher.LineHandler() {
+            private String current = null;
+
+            @Override
+            public boolean handle(String line) {
+                if (!line.startsWith(ACTIVITY_RECORD_START)) {
+                    /* the end of a record cut in two by an error line */
+                    if (current != null && line.length() > 0) {
+                        ambiguous.add(current);
+                    }
+                    return true;
+                }
+                int nameEnd = line.indexOf(ACTIVITY_RECORD_NAME_END,
+                        ACTIVITY_RECORD_START.length());
+                if (nameEnd == -1) {
+                    current = null;
+                    return true;
                 }
+                current = line.substring(ACTIVITY_RECORD_START.length(), nameEnd);
+                UcmActivity activity = parseActivityRecord(current, line,
+                        nameEnd + ACTIVITY_RECORD_NAME_END.length(), viewPathLength);
+                if (activity == null || records.containsKey(current)) {
+                    ambiguous.add(current);
+                } else {
+                    records.put(current, activity);
+                }
+                return true;
             }
+        };
+
+        try {
+            launcher.run(args, viewPath, handler);
+        } catch (ClearToolError e) {
+            /* some activities could not be listed, the records printed for the others are valid */
+        }
+
+        for (String name : ambiguous) {
+            records.remove(name);
         }
+        return bySelector(activityNames, records);
+    }
+
+    /**
+     * Parses the versions and the fields that follow the name of an activity in a record of
+     * {@link #getActivitiesChangelog(List, View)}.
+     * 
+     * @return the activity, or null if the record is incomplete
+     */
+    private static UcmActivity parseActivityRecord(String name, String line, int start,
+            int viewPathLength)
+    {
+        int versionsEnd = line.indexOf(ACTIVITY_VERSIONS_END, start);
+        if (versionsEnd == -1) {
+            return null;
+        }
+        Matcher matcher = ACTIVITY_FIELDS_FORMAT.checkLine(line.substring(versionsEnd
+                + ACTIVITY_VERSIONS_END.length()));
+        if (matcher == null) {
+            return null;
+        }
+        UcmActivity activity = new UcmActivity();
+        activity.setName(name);
+        activity.setHeadline(matcher.group(1).trim());
+        activity.setStream(matcher.group(2).trim());
+        activity.setUser(matcher.group(3).trim());
+        activity.setComment(matcher.group(4).trim());
+        activity.setFiles(parseActivityVersions(line.substring(start, versionsEnd),
+                viewPathLength, null));
+        return activity;
+    }
 
+    /**
+     * @param versions
+     *            the output of <tt>%[versions]CQp</tt>, the extended paths of the versions
+     * @param viewPathLength
+     *            the length of the view path that starts the extended paths
+     */
+    private static List<AffectedFile> parseActivityVersions(String versions, int viewPathLength,
+            Date date)
+    {
+        List<AffectedFile> files = new ArrayList<AffectedFile>();
+        for (String f : versions.split("\\s*,\\s+")) {
+            f = f.replace("\"", "");
+            if (f.length() > viewPathLength) {
+                f = f.substring(viewPathLength);
+                AffectedFile file = new AffectedFile();
+                file.setName(f.substring(0, f.indexOf("@@")));
+                file.setOperation("checkin");
+                file.setDate(date);
+                file.setVersion(f.substring(f.indexOf("@@") + 2));
+
+                files.add(file);
+            }
+        }
         return files;
     }
     
@@ -859,6 +1071,26 @@ public abstract class ClearTool implements CTFunctions {
         configSpecFile.delete();
     }
 
+    /** implements {@link CTFunctions#setcsWithoutLoading(View, String)} **/
+    @Override
+    public void setcsWithoutLoading(View view, String configSpec) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        FilePath configSpecFile = launcher.getWorkspace().createTextTempFile(view.getName(),
+                ".configSpec", configSpec);
+
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        args.add("setcs");
+        args.add("-tag", view.getName());
+        args.add(configSpecFile.getRemote());
+        try {
+            /* outside of the view, so that the view is not updated */
+            launcher.run(args, null);
+        } finally {
+            configSpecFile.delete();
+        }
+    }
+
     /** implements {@link CTFunctions#getComponentFromBL(Baseline)} **/
     @Override
     public Component getComponentFromBL(Baseline baseline) throws IOException,
@@ -1075,35 +1307,131 @@ public abstract class ClearTool implements CTFunctions {
         args.add(viewTag);
 
         String result = launcher.run(args, null);
-        View view = null;
+        if (result == null) {
+            return null;
+        }
+        return parseViewInfo(viewTag, args, result);
+    }
 
-        if (result != null) {
-            Matcher infoMatch = VIEW_INFO_PATTERN.matcher(result);
-            if (infoMatch.find()) {
-                view = new View(viewTag);
-                view.setGlobalPath(infoMatch.group(1).trim());
-                view.setLocalPath(infoMatch.group(2).trim());
-                view.setUuid(infoMatch.group(3).trim());
-                Matcher attrMatch = VIEW_ATTRIBUTES_PATTERN.matcher(result);
-                if (attrMatch.find()) {
-                    String attributes = attrMatch.group(1).trim();
-                    view.setDynamic(!attributes.contains("snapshot"));
-                    view.setUcm(attributes.contains("ucmview"));
-                } else {
-                    view.setDynamic(true);
-                    view.setUcm(false);
+    /**
+     * Reads the output of <tt>lsview -l -prop</tt>.
+     * 
+     * @throws ClearToolError
+     *             if the output could not be parsed
+     */
+    private View parseViewInfo(String viewTag, ArgumentListBuilder args, String result)
+            throws ClearToolError
+    {
+        Matcher infoMatch = VIEW_INFO_PATTERN.matcher(result);
+        if (!infoMatch.find()) {
+            throw new ClearToolError("lsview parsing error", launcher.getExecutable() + " "
+                    + args.toStringWithQuote(), result, 0, getWorkspace());
+        }
+        View view = new View(viewTag);
+        view.setGlobalPath(infoMatch.group(1).trim());
+        view.setLocalPath(infoMatch.group(2).trim());
+        view.setUuid(infoMatch.group(3).trim());
+        Matcher attrMatch = VIEW_ATTRIBUTES_PATTERN.matcher(result);
+        if (attrMatch.find()) {
+            String attributes = attrMatch.group(1).trim();
+            view.setDynamic(!attributes.contains("snapshot"));
+            view.setUcm(attributes.contains("ucmview"));
+        } else {
+            view.setDynamic(true);
+            view.setUcm(false);
+        }
+        return view;
+    }
+
+    /** implements {@link CTFunctions#probeView(View, FilePath, boolean)} **/
+    @Override
+    public ViewProbe probeView(View view, FilePath viewPath, boolean withStream)
+            throws IOException, InterruptedException
+    {
+        String[][] commands = probeCommands(view.getName(), withStream);
+        ViewProbe probe = viewPath.act(new ViewProbe.Collector(view.getName(),
+                launcher.getExecutable(), launcher.getEnv(), viewDatFile(viewPath), commands));
+        readProbe(probe, withStream);
+        return probe;
+    }
+
+    private static String[][] probeCommands(String viewTag, boolean withStream) {
+        String[] lsview = { "lsview", "-l", "-prop", viewTag };
+        String[] catcs = { "catcs", "-tag", viewTag };
+        if (!withStream) {
+            return new String[][] { lsview, catcs };
+        }
+        String[] lsstream = { "lsstream", "-fmt", "%Xn", "-view", viewTag };
+        return new String[][] { lsview, catcs, lsstream };
+    }
+
+    /**
+     * Reads the output of the commands of a probe, with the same outcome as
+     * {@link #getViewInfo(View)}, {@link #catcs(View)} and {@link #getStreamFromView(View)}. If
+     * the node could not run the commands, they are forked now.
+     */
+    void readProbe(ViewProbe probe, boolean withStream) throws IOException, InterruptedException {
+        String viewTag = probe.getViewTag();
+        String[][] commands = probeCommands(viewTag, withStream);
+
+        ArgumentListBuilder lsview = new ArgumentListBuilder(commands[0]);
+        try {
+            probe.setRegistration(true,
+                    parseViewInfo(viewTag, lsview, probeOutput(probe, 0, lsview)));
+        } catch (ClearToolError e) {
+            /*
+             * the server hosting the view was not reachable, we consider that the view is
+             * registered, unless the tag is unknown
+             */
+            probe.setRegistration(e.getResult() == null
+                    || !e.getResult().contains("No matching entries found for view tag"), null);
+        }
+        if (probe.getOutputs() == null && !probe.isExistingView()) {
+            /* the view will not be reused, not worth forking the other commands */
+            return;
+        }
+
+        try {
+            probe.setConfigSpec(probeOutput(probe, 1, new ArgumentListBuilder(commands[1])));
+        } catch (ClearToolError e) {
+            probe.setConfigSpec(null);
+        }
+        if (withStream) {
+            try {
+                String result = probeOutput(probe, 2, new ArgumentListBuilder(commands[2])).trim();
+                if (result.startsWith("stream:")) {
+                    probe.setStream(new Stream(result.substring("stream:".length())));
                 }
-            } else {
-                throw new ClearToolError("lsview parsing error", launcher.getExecutable() + " "
-                        + args.toStringWithQuote(), result, 0, getWorkspace());
+            } catch (ClearToolError e) {
+                /* not attached to any stream */
+                probe.setStream(null);
             }
         }
-        return view;
+    }
+
+    /**
+     * @return the output of a command of the probe, checked as {@link CTLauncher} checks the
+     *         commands it runs
+     */
+    private String probeOutput(ViewProbe probe, int index, ArgumentListBuilder args)
+            throws IOException, InterruptedException, ClearToolError
+    {
+        if (probe.getOutputs() == null) {
+            return launcher.run(args, null);
+        }
+        String output = probe.getOutputs()[index];
+        int code = probe.getCodes()[index];
+        launcher.log(args, output);
+        if (code != 0 || output.contains(CTLauncher.ERROR_MARKER)) {
+            throw new ClearToolError(launcher.getExecutable() + " " + args.toStringWithQuote(),
+                    output, code, getWorkspace());
+        }
+        return output;
     }
 
     /** implements {@link CTFunctions#getViewsFromStream(Stream)} **/
     @Override
-    public List<View> getViewsFromStream(Stream stream) throws IOException, InterruptedException,
+    public List<View> getViewsFromStream(final Stream stream) throws IOException, InterruptedException,
             ClearToolError
     {
         ArgumentListBuilder args = new ArgumentListBuilder();
@@ -1111,9 +1439,21 @@ public abstract class ClearTool implements CTFunctions {
         args.add("-fmt", "%[views]p");
         args.add(stream.toString());
 
-        String result = null;
+        final List<View> views = new ArrayList<View>();
+        CTLauncher.LineHandler handler = new CTLauncher.LineHandler() {
+            @Override
+            public boolean handle(String line) {
+                /* the error lines are not passed to the handler */
+                for (String viewTag : line.trim().split(" ")) {
+                    if (viewTag.length() > 0) {
+                        views.add(new View(viewTag, stream));
+                    }
+                }
+                return true;
+            }
+        };
         try {
-            result = launcher.run(args, null);
+            launcher.run(args, null, handler);
         } catch (ClearToolError e) {
             if (e.getResult().contains("No tag in region for view")) {
                 /*
@@ -1124,28 +1464,11 @@ public abstract class ClearTool implements CTFunctions {
                  * In order to solve this problem, you can launch this command: $ cleartool rmview
                  * �force -avobs �uuid <view-uuid>
                  */
-                result = e.getResult();
             } else {
                 throw e;
             }
         }
 
-        List<View> views = new ArrayList<View>();
-        if (result != null) {
-            for (String line : result.split("\n")) {
-                if (!line.contains("cleartool: Error:")) {
-                    /*
-                     * skipping the error lines that we may have got in the errors we escaped just
-                     * before
-                     */
-                    String[] viewTags = line.trim().split(" ");
-                    for (String viewTag : viewTags) {
-                        views.add(new View(viewTag, stream));
-                    }
-                }
-            }
-        }
-
         return views;
     }
 
@@ -1156,11 +1479,10 @@ public abstract class ClearTool implements CTFunctions {
      **/
     @Override
     public String getSnapshotViewUuid(FilePath viewPath) throws ClearToolError, IOException {
-        Pattern viewUuidPattern = Pattern.compile("view_uuid:([^\\s]+)");
         String viewDatFile = viewDatFile(viewPath);
         Matcher matcher;
         try {
-            matcher = viewUuidPattern.matcher(viewPath.child(viewDatFile).readToString());
+            matcher = ViewProbe.VIEW_UUID_PATTERN.matcher(viewPath.child(viewDatFile).readToString());
             if (matcher.find()) {
                 return matcher.group(1);
             } else {
@@ -1243,6 +1565,72 @@ public abstract class ClearTool implements CTFunctions {
         return result.trim().length() > 0;
     }
 
+    /** implements {@link CTFunctions#getCheckoutBranches(List, View, List)} **/
+    @Override
+    public Set<String> getCheckoutBranches(List<String> branchNames, View view,
+            List<String> viewPaths) throws IOException, InterruptedException, ClearToolError
+    {
+        final Set<String> found = new LinkedHashSet<String>();
+        if (branchNames.isEmpty()) {
+            return found;
+        }
+
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        args.add("lscheckout");
+        args.add("-fmt", HistoryFormatHandler.NAME_VERSIONID + LINEEND);
+
+        if (view.isDynamic()) {
+            args.add("-avobs");
+        } else if (viewPaths != null && viewPaths.size() > 0) {
+            args.add("-r");
+            for (String pname : viewPaths) {
+                args.add(pname);
+            }
+        } else {
+            throw new ClearToolError(
+                    "Cannot search for checkouts in a snapshot view without load rules.");
+        }
+
+        FilePath viewPath;
+        if (view.getViewPath() != null) {
+            /* if viewPath is already defined, we use it */
+            viewPath = new FilePath(getViewRootPath().getChannel(), view.getViewPath());
+        } else {
+            /* else, we use a child directory in the workspace/viewRoot */
+            viewPath = getViewRootPath().child(view.getName());
+        }
+
+        final Set<String> wanted = new HashSet<String>(branchNames);
+        CTLauncher.LineHandler handler = new CTLauncher.LineHandler() {
+            @Override
+            public boolean handle(String line) {
+                String branch = checkoutBranch(line.trim());
+                if (branch != null && wanted.contains(branch)) {
+                    found.add(branch);
+                }
+                /* the walk is stopped once every branch has a checkout */
+                return found.size() < wanted.size();
+            }
+        };
+        launcher.run(args, viewPath, handler);
+
+        return found;
+    }
+
+    /**
+     * @return the branch of a checkout from its version identifier, e.g. <tt>dev</tt> for
+     *         <tt>/main/dev/CHECKEDOUT</tt>, or null if the identifier has no branch
+     */
+    private static String checkoutBranch(String versionId) {
+        int end = Math.max(versionId.lastIndexOf('/'), versionId.lastIndexOf('\\'));
+        if (end <= 0) {
+            return null;
+        }
+        int start = Math.max(versionId.lastIndexOf('/', end - 1),
+                versionId.lastIndexOf('\\', end - 1));
+        return versionId.substring(start + 1, end);
+    }
+
     /**
      * Adaptation to make it work on unix
      * 
@@ -0,0 +1,149 @@
+package hudson.plugins.clearcase.cleartool;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * Decodes the <tt>yyyyMMdd.HHmmss</tt> dates printed by <tt>lshistory -fmt %Nd</tt>, in the
+ * default time zone, as <tt>new SimpleDateFormat("yyyyMMdd.HHmmss").parse()</tt> would.
+ *
+ * The digits are read in place. The last decoded second and the start of the last decoded hour
+ * are remembered: the entries of a burst of checkins share their timestamp and are decoded
+ * without any allocation, the other entries of the same hour with one small allocation. A
+ * {@link Calendar} is only used once per hour, or for each date of the hours during which the
+ * offset of the time zone changes. The decoder can be used by several threads.
+ *
+ * The dates that do not have exactly that form are handed to a {@link SimpleDateFormat}.
+ */
+public final class HistoryDateDecoder {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final int LENGTH = "yyyyMMdd.HHmmss".length();
+    /* yyyyMMdd.HH */
+    private static final int HOUR_LENGTH = 11;
+
+    private static final HistoryDateDecoder INSTANCE = new HistoryDateDecoder();
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private volatile Memo lastSecond = null;
+    private volatile Memo lastHour = null;
+    private final SimpleDateFormat fallback = new SimpleDateFormat("yyyyMMdd.HHmmss");
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    private HistoryDateDecoder() {
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    public static HistoryDateDecoder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the date of <tt>s.substring(start, end)</tt>, in milliseconds since the epoch
+     * @throws ParseException
+     *             if the text is not a date
+     */
+    public long decode(String s, int start, int end) throws ParseException {
+        if (end - start != LENGTH || s.charAt(start + 8) != '.' || !digits(s, start, end)) {
+            return parseFallback(s.substring(start, end));
+        }
+
+        Memo second = lastSecond;
+        if (second != null && second.matches(s, start, LENGTH)) {
+            return second.millis;
+        }
+
+        Memo hour = lastHour;
+        if (hour == null || !hour.matches(s, start, HOUR_LENGTH)) {
+            long hourStart = toMillis(s, start, 0, 0);
+            if (toMillis(s, start, 59, 59) - hourStart != 3599000L) {
+                /* the offset of the time zone changes during that hour */
+                return toMillis(s, start, number(s, start + 11, 2), number(s, start + 13, 2));
+            }
+            hour = new Memo(s, start, HOUR_LENGTH, hourStart);
+            lastHour = hour;
+        }
+        int minutes = number(s, start + 11, 2);
+        int seconds = number(s, start + 13, 2);
+        long millis = hour.millis + minutes * 60000L + seconds * 1000L;
+        lastSecond = new Memo(s, start, LENGTH, millis);
+        return millis;
+    }
+
+    private long parseFallback(String text) throws ParseException {
+        synchronized (fallback) {
+            return fallback.parse(text).getTime();
+        }
+    }
+
+    /**
+     * The calendar is lenient and in the default time zone, like the one of
+     * {@link SimpleDateFormat}.
+     */
+    private static long toMillis(String s, int start, int minutes, int seconds) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.clear();
+        calendar.set(number(s, start, 4), number(s, start + 4, 2) - 1, number(s, start + 6, 2),
+                number(s, start + 9, 2), minutes, seconds);
+        return calendar.getTimeInMillis();
+    }
+
+    private static boolean digits(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && i != start + 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(String s, int start, int length) {
+        int n = 0;
+        for (int i = start; i < start + length; i++) {
+            n = n * 10 + (s.charAt(i) - '0');
+        }
+        return n;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * A decoded prefix of a date, immutable so that it can be shared between threads.
+     */
+    private static final class Memo {
+        final char[] key;
+        final long millis;
+
+        Memo(String s, int start, int length, long millis) {
+            this.key = new char[length];
+            s.getChars(start, start + length, key, 0);
+            this.millis = millis;
+        }
+
+        boolean matches(String s, int start, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (key[i] != s.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
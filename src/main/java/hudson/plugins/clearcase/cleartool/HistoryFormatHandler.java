@@ -28,6 +28,7 @@ import hudson.plugins.clearcase.objects.HistoryEntry;
 import hudson.plugins.clearcase.objects.UcmActivity;
 
 import java.text.ParseException;
+import java.util.Date;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +38,10 @@ import java.util.regex.Pattern;
  */
 public class HistoryFormatHandler {
 
+    private static final int SCAN_MATCH = 0;
+    private static final int SCAN_NO_MATCH = 1;
+    private static final int SCAN_AMBIGUOUS = 2;
+
     private String format;
     private String patternStr;
     private int groupCount;
@@ -79,11 +84,118 @@ public class HistoryFormatHandler {
         return null;
     }
     
+    /**
+     * Parses a line of the lshistory output without the regular expression when possible. The
+     * fields are located with one scan of the line, then each field is copied once.
+     * 
+     * A line printed with this format has exactly two quotes per field and only spaces between
+     * the closing quote of a field and the opening quote of the next one. Such a line has a
+     * single way to match the pattern, the scanner returns the same fields as it. A line with
+     * fewer quotes cannot match. A line with more quotes (a field containing a quote) is handed
+     * to {@link #checkLine(String)} and {@link #parseHistoryLine(Matcher, String)}.
+     * 
+     * @return the entry, or null if the line does not start an entry (e.g. a comment line)
+     */
+    public HistoryEntry scanHistoryLine(String line) throws ParseException {
+        int[] bounds = new int[groupCount * 2];
+        switch (scan(line, bounds)) {
+        case SCAN_MATCH:
+            return createEntry(line, bounds);
+        case SCAN_NO_MATCH:
+            return null;
+        default:
+            Matcher matcher = checkLine(line);
+            return matcher != null ? parseHistoryLine(matcher, line) : null;
+        }
+    }
+
+    /**
+     * Locates the fields of the line: <tt>bounds[2 * i]</tt> and <tt>bounds[2 * i + 1]</tt> are
+     * the start (after the opening quote) and the end (at the closing quote) of field i.
+     */
+    private int scan(String line, int[] bounds) {
+        int length = line.length();
+        int quotes = 0;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        if (quotes < 2 * groupCount) {
+            return SCAN_NO_MATCH;
+        }
+        if (quotes > 2 * groupCount) {
+            return SCAN_AMBIGUOUS;
+        }
+
+        int field = 0;
+        int closingQuote = -1;
+        boolean inField = false;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) != '"') {
+                continue;
+            }
+            if (inField) {
+                bounds[2 * field + 1] = i;
+                closingQuote = i;
+                field++;
+            } else {
+                /* only whitespace between the previous field and this one */
+                for (int j = closingQuote + 1; field > 0 && j < i; j++) {
+                    if (!isWhitespace(line.charAt(j))) {
+                        return SCAN_NO_MATCH;
+                    }
+                }
+                bounds[2 * field] = i + 1;
+            }
+            inField = !inField;
+        }
+        return SCAN_MATCH;
+    }
+
+    private HistoryEntry createEntry(String line, int[] bounds) throws ParseException {
+        HistoryEntry entry = new HistoryEntry();
+
+        entry.setDate(new Date(HistoryDateDecoder.getInstance().decode(line, bounds[0],
+                bounds[1])));
+        entry.setUser(field(line, bounds, 1));
+        entry.setElement(field(line, bounds, 2));
+        entry.setVersionId(field(line, bounds, 3));
+        entry.setEvent(field(line, bounds, 4));
+        entry.setOperation(field(line, bounds, 5));
+        if (groupCount == 7) {
+            entry.setActivityName(field(line, bounds, 6));
+        }
+        return entry;
+    }
+
+    /**
+     * @return the trimmed field
+     */
+    private static String field(String line, int[] bounds, int index) {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * @return true for the characters of <tt>\s</tt>
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\013' || c == '\f' || c == '\r';
+    }
+
     public HistoryEntry parseHistoryLine(Matcher matcher, String line) throws ParseException {
         HistoryEntry entry = new HistoryEntry();
-        entry.setLine(line);
 
-        entry.setDate(HistoryEntry.LSHISTORY_DATE_FORMAT.parse(matcher.group(1)));
+        String date = matcher.group(1);
+        entry.setDate(new Date(HistoryDateDecoder.getInstance().decode(date, 0, date.length())));
         entry.setUser(matcher.group(2).trim());
         entry.setElement(matcher.group(3).trim());
         entry.setVersionId(matcher.group(4).trim());
@@ -0,0 +1,128 @@
+package hudson.plugins.clearcase.cleartool;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds {@link HistoryEntry} objects from the output of <tt>cleartool lshistory</tt> as it is
+ * streamed by {@link CTLauncher#run(hudson.util.ArgumentListBuilder, hudson.FilePath,
+ * CTLauncher.LineHandler)}.
+ *
+ * Each entry starts with a line matching the {@link HistoryFormatHandler} pattern, the following
+ * lines are the comment of the entry. An entry is complete when the next one starts or when
+ * {@link #finish()} is called.
+ *
+ * Subclasses may override {@link #entryCompleted(HistoryEntry)} to process the entries as they
+ * come and stop reading the output early.
+ */
+public class LsHistoryParser implements CTLauncher.LineHandler {
+
+    private final HistoryFormatHandler formatHandler;
+    private final String extendedViewPath;
+    private final List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+    private HistoryEntry currentEntry = null;
+    private StringBuilder commentBuilder = new StringBuilder();
+    private ParseException parseException = null;
+    private boolean stopped = false;
+
+    public LsHistoryParser(HistoryFormatHandler formatHandler, String extendedViewPath) {
+        this.formatHandler = formatHandler;
+        this.extendedViewPath = extendedViewPath;
+    }
+
+    /** implements {@link CTLauncher.LineHandler#handle(String)} **/
+    @Override
+    public boolean handle(String line) {
+        HistoryEntry entry;
+        try {
+            entry = formatHandler.scanHistoryLine(line);
+        } catch (ParseException e) {
+            /* the line did start an entry */
+            endEntry();
+            parseException = e;
+            return false;
+        }
+
+        // finder find start of lshistory entry
+        if (entry != null) {
+            if (!endEntry()) {
+                return false;
+            }
+            currentEntry = entry;
+            String fileName = currentEntry.getElement();
+            // Trim the extended view path
+            if (extendedViewPath != null) {
+                if (fileName.startsWith(extendedViewPath)) {
+                    fileName = fileName.substring(extendedViewPath.length());
+                    currentEntry.setElement(fileName);
+                }
+            }
+        } else {
+            if (commentBuilder.length() > 0) {
+                commentBuilder.append("\n");
+            }
+            commentBuilder.append(line);
+        }
+        return true;
+    }
+
+    /**
+     * Completes the last entry, must be called once the whole output has been handled.
+     * 
+     * @throws ParseException
+     *             if a date could not be parsed, the output was not read entirely in that case
+     */
+    public void finish() throws ParseException {
+        if (parseException != null) {
+            throw parseException;
+        }
+        if (!stopped) {
+            endEntry();
+        }
+    }
+
+    /**
+     * Called with each entry once its comment is known. By default, the entry is added to
+     * {@link #getEntries()}.
+     * 
+     * @return false to stop reading the output
+     */
+    protected boolean entryCompleted(HistoryEntry entry) {
+        entries.add(entry);
+        return true;
+    }
+
+    /**
+     * @return the entries completed so far
+     */
+    public List<HistoryEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return true if {@link #entryCompleted(HistoryEntry)} asked to stop reading the output
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public HistoryFormatHandler getFormatHandler() {
+        return formatHandler;
+    }
+
+    private boolean endEntry() {
+        HistoryEntry entry = currentEntry;
+        currentEntry = null;
+        if (entry != null) {
+            entry.setComment(commentBuilder.toString());
+        }
+        commentBuilder = new StringBuilder();
+        if (entry != null && !entryCompleted(entry)) {
+            stopped = true;
+        }
+        return !stopped;
+    }
+}
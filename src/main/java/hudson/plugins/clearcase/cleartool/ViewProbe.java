@@ -0,0 +1,283 @@
+package hudson.plugins.clearcase.cleartool;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Launcher.LocalLauncher;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.objects.ConfigSpec;
+import hudson.plugins.clearcase.objects.Stream;
+import hudson.plugins.clearcase.objects.View;
+import hudson.remoting.VirtualChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * What a checkout needs to know about a snapshot view before it updates the view or creates it
+ * again: the registration of the view tag, the uuid found in the view directory, the stream of
+ * the view and its config spec. See {@link ClearTool#probeView(View, FilePath, boolean)}.
+ *
+ * The probe is collected by the node of the view in a single remoting call: the view directory
+ * is read there and the lsview, catcs and lsstream commands are sent to one interactive cleartool
+ * process. If that process cannot be started, the commands are forked one by one from the
+ * controller, as they used to be.
+ */
+public final class ViewProbe implements Serializable {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final long serialVersionUID = 1L;
+
+    static final Pattern VIEW_UUID_PATTERN = Pattern.compile("view_uuid:([^\\s]+)");
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    /* collected on the node */
+    private final String viewTag;
+    private boolean folderExisting = false;
+    private String viewDatUuid = null;
+    private String viewDatError = null;
+    /* the output and the exit status of each command, null if the node could not run them */
+    private String[] outputs = null;
+    private int[] codes = null;
+
+    /* read on the controller, see ClearTool#probeView(View, FilePath, boolean) */
+    private transient boolean registered = false;
+    private transient View viewInfo = null;
+    private transient Stream stream = null;
+    private transient String configSpec = null;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    ViewProbe(String viewTag) {
+        this.viewTag = viewTag;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return true if the view tag is registered, or if the server of the view did not answer
+     */
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * @return the registration of the view tag, null if it is not registered or if the server of
+     *         the view did not answer
+     */
+    public View getViewInfo() {
+        return viewInfo;
+    }
+
+    public boolean isFolderExisting() {
+        return folderExisting;
+    }
+
+    /**
+     * @return the uuid of the view.dat file of the view directory, null if it could not be read
+     */
+    public String getViewDatUuid() {
+        return viewDatUuid;
+    }
+
+    /**
+     * @return why the view.dat file could not be read, null if it was or if there is no view
+     *         directory
+     */
+    public String getViewDatError() {
+        return viewDatError;
+    }
+
+    /**
+     * @return true if the view directory belongs to the registered view tag
+     */
+    public boolean isExistingView() {
+        return registered && viewInfo != null && viewDatUuid != null
+                && viewDatUuid.equals(viewInfo.getUuid());
+    }
+
+    /**
+     * @return the stream the view is attached to, null if there is none or if it was not probed
+     */
+    public Stream getStream() {
+        return stream;
+    }
+
+    /**
+     * @return the config spec of the view, null if it could not be read
+     */
+    public String getConfigSpec() {
+        return configSpec;
+    }
+
+    /**
+     * @return the load rules of the config spec of the view, null if it could not be read
+     */
+    public List<String> getLoadRules() {
+        if (configSpec == null) {
+            return null;
+        }
+        return new ConfigSpec(configSpec).extractLoadRules();
+    }
+
+    /**
+     * Copies the registration of the view tag to a view, as {@link ClearTool#getViewInfo(View)}
+     * does.
+     */
+    public void copyTo(View view) {
+        if (viewInfo != null) {
+            view.setUuid(viewInfo.getUuid());
+            view.setGlobalPath(viewInfo.getGlobalPath());
+            view.setLocalPath(viewInfo.getLocalPath());
+            view.setDynamic(viewInfo.isDynamic());
+            view.setUcm(viewInfo.isUcm());
+        }
+    }
+
+    String getViewTag() {
+        return viewTag;
+    }
+
+    String[] getOutputs() {
+        return outputs;
+    }
+
+    int[] getCodes() {
+        return codes;
+    }
+
+    void setOutputs(String[] outputs, int[] codes) {
+        this.outputs = outputs;
+        this.codes = codes;
+    }
+
+    void setFolder(boolean folderExisting, String viewDatUuid, String viewDatError) {
+        this.folderExisting = folderExisting;
+        this.viewDatUuid = viewDatUuid;
+        this.viewDatError = viewDatError;
+    }
+
+    void setRegistration(boolean registered, View viewInfo) {
+        this.registered = registered;
+        this.viewInfo = viewInfo;
+    }
+
+    void setStream(Stream stream) {
+        this.stream = stream;
+    }
+
+    void setConfigSpec(String configSpec) {
+        this.configSpec = configSpec;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * Collects the probe on the node of the view directory.
+     */
+    static final class Collector implements FileCallable<ViewProbe> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String viewTag;
+        private final String executable;
+        private final EnvVars env;
+        private final String viewDatFile;
+        private final String[][] commands;
+
+        /**
+         * @param viewDatFile
+         *            the name of the view.dat file, which depends on the OS of the node
+         * @param commands
+         *            the arguments of the cleartool commands to run
+         */
+        Collector(String viewTag, String executable, EnvVars env, String viewDatFile,
+                String[][] commands)
+        {
+            this.viewTag = viewTag;
+            this.executable = executable;
+            this.env = env;
+            this.viewDatFile = viewDatFile;
+            this.commands = commands;
+        }
+
+        @Override
+        public ViewProbe invoke(File viewDir, VirtualChannel channel) throws IOException,
+                InterruptedException
+        {
+            ViewProbe probe = new ViewProbe(viewTag);
+            if (viewDir.exists()) {
+                readViewDat(probe, new File(viewDir, viewDatFile));
+            }
+
+            /* from the workspace, the view directory may not exist */
+            File pwd = viewDir.getAbsoluteFile().getParentFile();
+            CTSession session;
+            try {
+                session = CTSession.open(new LocalLauncher(TaskListener.NULL), executable, env,
+                        new FilePath(pwd));
+            } catch (IOException e) {
+                /* the commands are left to the controller */
+                return probe;
+            }
+            try {
+                String[] outputs = new String[commands.length];
+                int[] codes = new int[commands.length];
+                for (int i = 0; i < commands.length; i++) {
+                    if (!session.accepts(commands[i])) {
+                        return probe;
+                    }
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    /* the session is not shared, no need to lock it */
+                    codes[i] = session.execute(commands[i], out);
+                    outputs[i] = out.toString();
+                }
+                probe.setOutputs(outputs, codes);
+            } catch (IOException e) {
+                /* the session died, the commands are left to the controller */
+            } finally {
+                session.close();
+            }
+            return probe;
+        }
+
+        /**
+         * Reads the uuid of the view directory, as
+         * {@link ClearTool#getSnapshotViewUuid(FilePath)} does.
+         */
+        private void readViewDat(ViewProbe probe, File file) {
+            String uuid = null;
+            String error = null;
+            try {
+                Matcher matcher = VIEW_UUID_PATTERN.matcher(FileUtils.readFileToString(file));
+                if (matcher.find()) {
+                    uuid = matcher.group(1);
+                } else {
+                    error = viewDatFile + " file did not match the expected pattern";
+                }
+            } catch (IOException e) {
+                error = "Could not open " + viewDatFile + " file.";
+            }
+            probe.setFolder(true, uuid, error);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.XmlFile;
+import hudson.model.Hudson;
+import hudson.plugins.clearcase.objects.UcmActivity;
+import hudson.plugins.clearcase.objects.View;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide cache of the UCM activities listed by the history actions, kept on disk across
+ * builds and restarts.
+ *
+ * The headline, stream, owner and contributing activities of a delivered activity do not change,
+ * so the integration streams that show the same contributing activities build after build only
+ * list the new ones. The activities are keyed by their selector in their PVOB, see
+ * {@link #key(String, View)}.
+ *
+ * An activity is dropped when it was listed longer than the maximum age given to
+ * {@link #get(String, long)} ago, when it is the least recently used one of a full cache, or
+ * when it is invalidated. Only the activities that could be listed and parsed are cached.
+ */
+public final class ActivityCache {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final Logger LOGGER = Logger.getLogger(ActivityCache.class.getName());
+
+    static final String FILE_NAME = "hudson.plugins.clearcase.activities.xml";
+    static final int MAX_ENTRIES = 10000;
+
+    private static ActivityCache instance = null;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final XmlFile file;
+    private final int maxEntries;
+    /* in access order, the eldest is evicted first */
+    private Map<String, CachedActivity> activities = null;
+    private boolean dirty = false;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    /**
+     * @param file
+     *            where the activities are kept, read on first use
+     * @param maxEntries
+     *            the number of activities above which the least recently used ones are evicted
+     */
+    ActivityCache(File file, int maxEntries) {
+        this.file = new XmlFile(file);
+        this.maxEntries = maxEntries;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return the cache stored in the root directory of the controller
+     */
+    public static synchronized ActivityCache getInstance() {
+        if (instance == null) {
+            instance = new ActivityCache(new File(Hudson.getInstance().getRootDir(), FILE_NAME),
+                    MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the key of an activity selector, <tt>name@pvob</tt> with the PVOB of the stream of
+     *         the view if the selector has none, or null if the PVOB is unknown
+     */
+    public static String key(String activityName, View view) {
+        if (activityName == null || activityName.length() == 0) {
+            return null;
+        }
+        String key = activityName;
+        if (key.startsWith("activity:")) {
+            key = key.substring("activity:".length());
+        }
+        if (key.indexOf('@') != -1) {
+            return key;
+        }
+        if (view == null || view.getStream() == null || view.getStream().getPvob() == null) {
+            return null;
+        }
+        return key + "@" + view.getStream().getPvob();
+    }
+
+    /**
+     * @return a new copy of the cached activity, without files nor sub activities, or null if it
+     *         is not cached or was listed more than <tt>maxAgeMillis</tt> ago
+     */
+    public synchronized UcmActivity get(String key, long maxAgeMillis) {
+        if (key == null) {
+            return null;
+        }
+        CachedActivity cached = getActivities().get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.listedAt > maxAgeMillis) {
+            invalidate(key);
+            return null;
+        }
+        return cached.toActivity();
+    }
+
+    /**
+     * Caches the activity as listed by <tt>lsactivity</tt> now. Its files and sub activities are
+     * not cached.
+     */
+    public synchronized void put(String key, UcmActivity activity) {
+        if (key == null || activity == null) {
+            return;
+        }
+        getActivities().put(key, new CachedActivity(key, activity, System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    /**
+     * Drops an activity, e.g. because its headline was changed.
+     */
+    public synchronized void invalidate(String key) {
+        if (getActivities().remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops all the activities, on disk too.
+     */
+    public synchronized void clear() {
+        getActivities().clear();
+        dirty = true;
+        save();
+    }
+
+    public synchronized int size() {
+        return getActivities().size();
+    }
+
+    /**
+     * Writes the activities if they changed since they were read or written. A failure is only
+     * logged, the activities are listed again on the next builds.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            file.write(new ArrayList<CachedActivity>(activities.values()));
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write the activity cache " + file, e);
+        }
+    }
+
+    private Map<String, CachedActivity> getActivities() {
+        if (activities == null) {
+            activities = new LinkedHashMap<String, CachedActivity>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedActivity> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+            for (CachedActivity cached : load()) {
+                activities.put(cached.key, cached);
+            }
+        }
+        return activities;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CachedActivity> load() {
+        if (file.exists()) {
+            try {
+                return (List<CachedActivity>) file.read();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not read the activity cache " + file, e);
+            } catch (ClassCastException e) {
+                LOGGER.log(Level.WARNING, "Could not read the activity cache " + file, e);
+            }
+        }
+        return new ArrayList<CachedActivity>();
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * The fields of an activity listed by <tt>lsactivity</tt>, as stored on disk.
+     */
+    private static class CachedActivity {
+        String key;
+        String name;
+        String headline;
+        String stream;
+        String user;
+        String comment;
+        String contribActivitiesStr;
+        long listedAt;
+
+        CachedActivity(String key, UcmActivity activity, long listedAt) {
+            this.key = key;
+            this.name = activity.getName();
+            this.headline = activity.getHeadline();
+            this.stream = activity.getStream();
+            this.user = activity.getUser();
+            this.comment = activity.getComment();
+            this.contribActivitiesStr = activity.getContribActivitiesStr();
+            this.listedAt = listedAt;
+        }
+
+        UcmActivity toActivity() {
+            UcmActivity activity = new UcmActivity();
+            activity.setName(name);
+            activity.setHeadline(headline);
+            activity.setStream(stream);
+            activity.setUser(user);
+            activity.setComment(comment);
+            activity.setContribActivitiesStr(contribActivitiesStr);
+            return activity;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.HistoryFormatHandler;
+import hudson.plugins.clearcase.objects.UcmActivity;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lists the activities of a UCM changelog, and the activities that contribute to the integration
+ * ones, before the changelog is assembled.
+ *
+ * The activities are listed level by level: the activities of the changelog, then their
+ * contributing activities, and so on. The activities of a level are split in batches, one
+ * <tt>lsactivity</tt> command per batch, and the batches are run in parallel. The activities
+ * that a batch could not list are listed one by one, so that {@link #lsactivity(String)} gives
+ * the same result, or the same error, as {@link ClearTool#lsactivity(String,
+ * HistoryFormatHandler, View)}.
+ *
+ * With an {@link ActivityCache}, the cached activities are not listed again and the listed ones
+ * are cached.
+ */
+class ActivityResolver {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    /* activities per lsactivity command */
+    static final int BATCH_SIZE = 50;
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "lsactivity fan-out");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final ClearTool cleartool;
+    private final View view;
+    private final int parallelism;
+    private final HistoryFormatHandler formatHandler = new HistoryFormatHandler(
+            UcmHistoryAction.ACTIVITY_FORMAT);
+    private final Map<String, Record> records = new HashMap<String, Record>();
+    private ActivityCache cache = null;
+    private long cacheMaxAge;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    ActivityResolver(ClearTool cleartool, View view, int parallelism) {
+        this.cleartool = cleartool;
+        this.view = view;
+        this.parallelism = parallelism;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * Reads the activities listed less than <tt>maxAgeMillis</tt> ago from the cache, and adds
+     * the others to it.
+     */
+    void setCache(ActivityCache cache, long maxAgeMillis) {
+        this.cache = cache;
+        this.cacheMaxAge = maxAgeMillis;
+    }
+
+    /**
+     * Lists the activities and, for the integration activities, their contributing activities
+     * down to <tt>depth</tt> levels.
+     */
+    void resolve(Collection<String> activityNames, int depth) throws IOException,
+            InterruptedException
+    {
+        Set<String> level = new LinkedHashSet<String>();
+        for (String name : activityNames) {
+            if (name != null) {
+                level.add(name);
+            }
+        }
+        for (int i = 0; !level.isEmpty(); i++) {
+            fetch(readCache(level));
+            if (i == depth) {
+                break;
+            }
+            Set<String> next = new LinkedHashSet<String>();
+            for (String name : level) {
+                UcmActivity activity = getRecord(name).activity;
+                if (activity != null && activity.isIntegrationActivity()) {
+                    for (String contributing : activity.getContribActivitiesStr().split(" ")) {
+                        if (getRecord(contributing) == null) {
+                            next.add(contributing);
+                        }
+                    }
+                }
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * @return the activity as listed by {@link #resolve(Collection, int)}, or listed now if it
+     *         was not. The returned activity is shared and must not be modified.
+     * @throws ClearToolError
+     *             if the activity could not be listed
+     */
+    UcmActivity lsactivity(String activityName) throws IOException, InterruptedException,
+            ClearToolError
+    {
+        Record record = getRecord(activityName);
+        if (record == null) {
+            return cleartool.lsactivity(activityName, formatHandler, view);
+        }
+        if (record.error != null) {
+            throw record.error;
+        }
+        return record.activity;
+    }
+
+    /**
+     * @return the activities that are not cached
+     */
+    private List<String> readCache(Set<String> names) {
+        List<String> missing = new ArrayList<String>();
+        for (String name : names) {
+            UcmActivity activity = cache != null
+                    ? cache.get(ActivityCache.key(name, view), cacheMaxAge) : null;
+            if (activity != null) {
+                Record record = new Record();
+                record.activity = activity;
+                synchronized (records) {
+                    records.put(name, record);
+                }
+            } else {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    private void fetch(List<String> names) throws IOException, InterruptedException {
+        final List<List<String>> batches = new ArrayList<List<String>>();
+        for (int i = 0; i < names.size(); i += BATCH_SIZE) {
+            batches.add(names.subList(i, Math.min(names.size(), i + BATCH_SIZE)));
+        }
+        if (parallelism <= 1 || batches.size() <= 1) {
+            for (List<String> batch : batches) {
+                fetchBatch(batch);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, batches.size()), THREAD_FACTORY);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final List<String> batch : batches) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        fetchBatch(batch);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    rethrow(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void fetchBatch(List<String> batch) throws IOException, InterruptedException {
+        Map<String, UcmActivity> listed = new HashMap<String, UcmActivity>();
+        List<String> selectors = new ArrayList<String>();
+        for (String name : batch) {
+            /* an empty selector would change the meaning of the command */
+            if (name.length() > 0) {
+                selectors.add(name);
+            }
+        }
+        if (selectors.size() > 1) {
+            listed = cleartool.lsactivity(selectors, formatHandler, view);
+        }
+        for (String name : batch) {
+            Record record = new Record();
+            if (listed.containsKey(name)) {
+                record.activity = listed.get(name);
+            } else {
+                try {
+                    record.activity = cleartool.lsactivity(name, formatHandler, view);
+                } catch (ClearToolError e) {
+                    record.error = e;
+                }
+            }
+            if (cache != null && record.activity != null) {
+                cache.put(ActivityCache.key(name, view), record.activity);
+            }
+            synchronized (records) {
+                records.put(name, record);
+            }
+        }
+    }
+
+    private Record getRecord(String name) {
+        synchronized (records) {
+            return records.get(name);
+        }
+    }
+
+    private static void rethrow(Throwable t) throws IOException, InterruptedException {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new IOException(t);
+        }
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * The result of the lsactivity of an activity: the activity, null if its output could not
+     * be parsed, or the error.
+     */
+    private static class Record {
+        UcmActivity activity;
+        ClearToolError error;
+    }
+}
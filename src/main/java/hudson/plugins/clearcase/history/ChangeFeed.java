@@ -0,0 +1,346 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.HistoryFormatHandler;
+import hudson.plugins.clearcase.cleartool.LsHistoryParser;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Controller-wide cache of the history of the branches, shared by the jobs that poll the same
+ * branch of the same VOBs.
+ *
+ * The history is listed recursively from the root of the VOBs that contain the lookup paths of
+ * the job, so that one lshistory command answers all the jobs that load components of these VOBs.
+ * The result is kept in memory for a refresh interval, each job then applies its own filters,
+ * including its load rules, to the shared entries.
+ *
+ * The VOB roots must be visible in the view the history is listed from, so the feed is only used
+ * with dynamic views.
+ */
+public final class ChangeFeed {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final ChangeFeed INSTANCE = new ChangeFeed();
+
+    /* feeds that were not refreshed for that many intervals are dropped */
+    private static final int EXPIRY_INTERVALS = 10;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final Map<String, Feed> feeds = new HashMap<String, Feed>();
+    private List<String> vobTags = null;
+    private long vobTagsFetchedAt = 0;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    ChangeFeed() {
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    public static ChangeFeed getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the history of a branch since a date, from the shared cache if it was listed less
+     * than <tt>maxAgeMillis</tt> ago from the same date or from an earlier one. Otherwise, the
+     * history is listed again with the given cleartool and view and the cache is updated. The
+     * jobs that find the feed fresh do not lock it. A single command runs at a time for a feed:
+     * the jobs that find it stale meanwhile wait for that command if it lists the history from
+     * their date or from an earlier one.
+     *
+     * The element paths of the entries depend on the view and on the node they were listed from,
+     * so the feed is only shared by the jobs reading the history through the same view path on the
+     * same node. The returned entries are shared with these jobs and must not be modified.
+     *
+     * @param node
+     *            the name of the node the history is listed from, empty for the controller
+     * @param extendedViewPath
+     *            trimmed from the element paths, as in {@link LsHistoryParser}
+     * @param viewPaths
+     *            the lookup paths of the job, mapped to the root of their VOB
+     * @throws ParseException
+     *             if the output of lshistory could not be parsed, nothing is cached in that case
+     */
+    public List<HistoryEntry> getEntries(ClearTool cleartool, View view,
+            HistoryFormatHandler formatHandler, String node, String extendedViewPath,
+            String branch, List<String> viewPaths, Date since, long maxAgeMillis, int parallelism)
+            throws IOException, InterruptedException, ClearToolError, ParseException
+    {
+        List<String> roots = getVobRoots(cleartool, viewPaths, maxAgeMillis);
+        String key = formatHandler.getFormat() + "\n" + branch + "\n" + roots + "\n" + node
+                + "\n" + extendedViewPath;
+        Feed feed = getFeed(key, maxAgeMillis);
+
+        List<HistoryEntry> cached = feed.getEntries(since, maxAgeMillis);
+        while (cached == null) {
+            FutureTask<List<HistoryEntry>> task;
+            boolean owner = false;
+            synchronized (feed) {
+                cached = feed.getEntries(since, maxAgeMillis);
+                if (cached != null) {
+                    break;
+                }
+                if (feed.fetching != null && !feed.fetchingSince.after(since)) {
+                    task = feed.fetching;
+                } else {
+                    task = createFetch(feed, cleartool, view, formatHandler, extendedViewPath,
+                            branch, roots, since, parallelism);
+                    /* a fetch from a later date does not answer this job, it runs its own */
+                    if (feed.fetching == null) {
+                        feed.fetching = task;
+                        feed.fetchingSince = since;
+                    }
+                    owner = true;
+                }
+            }
+            if (owner) {
+                try {
+                    task.run();
+                } finally {
+                    synchronized (feed) {
+                        if (feed.fetching == task) {
+                            feed.fetching = null;
+                            feed.fetchingSince = null;
+                        }
+                    }
+                }
+            }
+            cached = await(task, owner);
+        }
+
+        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+        for (HistoryEntry entry : cached) {
+            if (!entry.getDate().before(since)) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Drops all the cached history.
+     */
+    public synchronized void clear() {
+        feeds.clear();
+        vobTags = null;
+    }
+
+    private synchronized Feed getFeed(String key, long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        Iterator<Feed> it = feeds.values().iterator();
+        while (it.hasNext()) {
+            Feed feed = it.next();
+            Snapshot snapshot = feed.snapshot;
+            if (snapshot != null && now - snapshot.fetchedAt > EXPIRY_INTERVALS * maxAgeMillis) {
+                it.remove();
+            }
+        }
+        Feed feed = feeds.get(key);
+        if (feed == null) {
+            feed = new Feed();
+            feeds.put(key, feed);
+        }
+        return feed;
+    }
+
+    private FutureTask<List<HistoryEntry>> createFetch(final Feed feed,
+            final ClearTool cleartool, final View view, final HistoryFormatHandler formatHandler,
+            final String extendedViewPath, final String branch, final List<String> roots,
+            final Date since, final int parallelism)
+    {
+        return new FutureTask<List<HistoryEntry>>(new Callable<List<HistoryEntry>>() {
+            @Override
+            public List<HistoryEntry> call() throws Exception {
+                long fetchedAt = System.currentTimeMillis();
+                List<HistoryEntry> entries = fetch(cleartool, view, formatHandler,
+                        extendedViewPath, branch, roots, since, parallelism);
+                feed.store(new Snapshot(since, fetchedAt, entries));
+                return entries;
+            }
+        });
+    }
+
+    /**
+     * Waits for a fetch and returns its entries, or <tt>null</tt> if the job that ran it was
+     * interrupted: the waiting jobs then try again.
+     */
+    private static List<HistoryEntry> await(FutureTask<List<HistoryEntry>> task, boolean owner)
+            throws IOException, InterruptedException, ClearToolError, ParseException
+    {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof InterruptedException && !owner) {
+                return null;
+            } else if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t instanceof InterruptedException) {
+                throw (InterruptedException) t;
+            } else if (t instanceof ClearToolError) {
+                throw (ClearToolError) t;
+            } else if (t instanceof ParseException) {
+                throw (ParseException) t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else {
+                throw new IOException(t);
+            }
+        }
+    }
+
+    private List<HistoryEntry> fetch(ClearTool cleartool, View view,
+            HistoryFormatHandler formatHandler, String extendedViewPath, String branch,
+            List<String> roots, Date since, int parallelism) throws IOException,
+            InterruptedException, ClearToolError, ParseException
+    {
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, parallelism);
+        List<LsHistoryFanOut.Shard> shards = fanOut.createShards(
+                Collections.singletonList(branch), roots);
+        for (LsHistoryFanOut.Shard shard : shards) {
+            shard.since = since;
+            shard.parser = new LsHistoryParser(formatHandler, extendedViewPath);
+        }
+        fanOut.run(shards, view);
+        return Collections.unmodifiableList(fanOut.merge(shards, null));
+    }
+
+    /**
+     * Maps each lookup path to the longest VOB tag it starts with. The paths that are in no known
+     * VOB are kept as is.
+     */
+    private List<String> getVobRoots(ClearTool cleartool, List<String> viewPaths,
+            long maxAgeMillis) throws IOException, InterruptedException, ClearToolError
+    {
+        List<String> tags = getVobTags(cleartool, maxAgeMillis);
+        TreeSet<String> roots = new TreeSet<String>();
+        for (String path : viewPaths) {
+            String root = path;
+            int rootLength = 0;
+            for (String tag : tags) {
+                if (tag.length() > rootLength && isInVob(path, tag)) {
+                    root = tag;
+                    rootLength = tag.length();
+                }
+            }
+            roots.add(root);
+        }
+        return new ArrayList<String>(roots);
+    }
+
+    private static boolean isInVob(String path, String tag) {
+        if (!path.startsWith(tag)) {
+            return false;
+        }
+        if (path.length() == tag.length()) {
+            return true;
+        }
+        char sep = path.charAt(tag.length());
+        return sep == '/' || sep == '\\';
+    }
+
+    /**
+     * @return the VOB tags without their leading separator, in the form of the load rules
+     */
+    private synchronized List<String> getVobTags(ClearTool cleartool, long maxAgeMillis)
+            throws IOException, InterruptedException, ClearToolError
+    {
+        long now = System.currentTimeMillis();
+        if (vobTags == null || now - vobTagsFetchedAt > EXPIRY_INTERVALS * maxAgeMillis) {
+            List<String> tags = new ArrayList<String>();
+            for (String tag : cleartool.lsvob()) {
+                tag = tag.trim();
+                while (tag.startsWith("/") || tag.startsWith("\\")) {
+                    tag = tag.substring(1);
+                }
+                if (tag.length() > 0) {
+                    tags.add(tag);
+                }
+            }
+            vobTags = tags;
+            vobTagsFetchedAt = now;
+        }
+        return vobTags;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * The cached history of a branch in a set of VOBs. The snapshot is read without locking, the
+     * other fields are guarded by the feed.
+     */
+    private static class Feed {
+        volatile Snapshot snapshot = null;
+        /* the lshistory command running for this feed, if any */
+        FutureTask<List<HistoryEntry>> fetching = null;
+        Date fetchingSince = null;
+
+        /**
+         * @return the cached entries if they are fresh and listed from that date or from an
+         *         earlier one, <tt>null</tt> otherwise
+         */
+        List<HistoryEntry> getEntries(Date since, long maxAgeMillis) {
+            Snapshot current = snapshot;
+            if (current != null && System.currentTimeMillis() - current.fetchedAt <= maxAgeMillis
+                    && !current.since.after(since)) {
+                return current.entries;
+            }
+            return null;
+        }
+
+        synchronized void store(Snapshot fetched) {
+            /* a job that listed the feed meanwhile may have stored a newer history */
+            if (snapshot == null || fetched.fetchedAt > snapshot.fetchedAt
+                    || fetched.fetchedAt == snapshot.fetchedAt
+                    && fetched.since.before(snapshot.since)) {
+                snapshot = fetched;
+            }
+        }
+    }
+
+    /**
+     * The history listed by one lshistory command, never modified.
+     */
+    private static class Snapshot {
+        final Date since;
+        final long fetchedAt;
+        final List<HistoryEntry> entries;
+
+        Snapshot(Date since, long fetchedAt, List<HistoryEntry> entries) {
+            this.since = since;
+            this.fetchedAt = fetchedAt;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Looks for the checkouts of the branches of a job before a poll reports changes, with a single
+ * lscheckout command for all the branches, see
+ * {@link ClearTool#getCheckoutBranches(List, View, List)}.
+ *
+ * The command can be started in the background, so that it runs at the same time as the history
+ * commands, and checked once they are done.
+ */
+class CheckoutProbe {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "lscheckout probe");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final ClearTool cleartool;
+    private final View view;
+    private final List<String> branchNames;
+    private final List<String> viewPaths;
+    private ExecutorService executor = null;
+    private Future<Set<String>> future = null;
+    private boolean checked = false;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    CheckoutProbe(ClearTool cleartool, View view, List<String> branchNames,
+            List<String> viewPaths)
+    {
+        this.cleartool = cleartool;
+        this.view = view;
+        this.branchNames = branchNames;
+        this.viewPaths = viewPaths;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * Starts the lscheckout command in the background.
+     */
+    void start() {
+        executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+        future = executor.submit(new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() throws Exception {
+                return cleartool.getCheckoutBranches(branchNames, view, viewPaths);
+            }
+        });
+    }
+
+    /**
+     * Waits for the command if it was started, otherwise runs it now. Does nothing once the
+     * probe was checked.
+     *
+     * @throws ClearToolError
+     *             if there are checkouts in one of the branches, or if the command failed
+     */
+    void check() throws IOException, InterruptedException, ClearToolError {
+        if (checked) {
+            return;
+        }
+        checked = true;
+        Set<String> branches;
+        if (future == null) {
+            branches = cleartool.getCheckoutBranches(branchNames, view, viewPaths);
+        } else {
+            try {
+                branches = future.get();
+            } catch (ExecutionException e) {
+                rethrow(e.getCause());
+                return;
+            } finally {
+                stop();
+            }
+        }
+        for (String branch : branchNames) {
+            if (branches.contains(branch)) {
+                String message = "There are checkouts in the branch: %s. No build has been triggered.";
+                throw new ClearToolError(String.format(message, branch));
+            }
+        }
+    }
+
+    /**
+     * Interrupts the command if it is still running.
+     */
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void rethrow(Throwable t) throws IOException, InterruptedException,
+            ClearToolError
+    {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof ClearToolError) {
+            throw (ClearToolError) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new IOException(t);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.objects.Stream;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller-wide cache of the child streams of the integration streams, shared by the polls and
+ * builds of the jobs that deliver the baselines of the child streams.
+ *
+ * The child streams of a stream rarely change, they are listed once per stream and listed again
+ * after {@link #MAX_AGE}, so that new child streams are seen, or once invalidated, e.g. because
+ * a child stream could not be read anymore. The jobs asking for the same stream meanwhile wait
+ * for that single command.
+ */
+public final class ChildStreamCache {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final ChildStreamCache INSTANCE = new ChildStreamCache();
+
+    static final long MAX_AGE = 10 * 60 * 1000L;
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final Map<String, Topology> topologies = new HashMap<String, Topology>();
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    private ChildStreamCache() {
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    public static ChildStreamCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the child streams of the stream, as listed by
+     *         {@link ClearTool#getChildStreams(Stream)} less than {@link #MAX_AGE} ago. The list
+     *         is shared and cannot be modified.
+     */
+    public List<Stream> getChildStreams(ClearTool cleartool, Stream parent) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        Topology topology;
+        synchronized (this) {
+            topology = topologies.get(parent.toString());
+            if (topology == null) {
+                topology = new Topology();
+                topologies.put(parent.toString(), topology);
+            }
+        }
+        synchronized (topology) {
+            long now = System.currentTimeMillis();
+            if (topology.streams == null || now - topology.listedAt > MAX_AGE) {
+                topology.streams = Collections.unmodifiableList(cleartool.getChildStreams(parent));
+                topology.listedAt = now;
+            }
+            return topology.streams;
+        }
+    }
+
+    /**
+     * Lists the child streams of the stream again on next use.
+     */
+    public synchronized void invalidate(Stream parent) {
+        topologies.remove(parent.toString());
+    }
+
+    /**
+     * Drops all the cached streams.
+     */
+    public synchronized void clear() {
+        topologies.clear();
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * The cached child streams of a stream.
+     */
+    private static class Topology {
+        long listedAt;
+        List<Stream> streams = null;
+    }
+}
@@ -0,0 +1,144 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.scm.SCMRevisionState;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers, for each branch, the date of the newest history event known by a build or by a poll
+ * (the "high-water mark") and the events recorded since that date minus the multi-site buffer.
+ *
+ * The next poll only lists the history past the mark and ignores the events already recorded,
+ * even if the multi-site buffer makes lshistory print them again.
+ *
+ * The marks are only valid for the load rules they were computed with, see
+ * {@link #isCompatible(String)}.
+ */
+public class ClearCaseRevisionState extends SCMRevisionState {
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final String loadRules;
+    /* mark of the branches that have no recorded event */
+    private final long defaultMark;
+    /* multi-site poll buffer */
+    private final long bufferMillis;
+    private final Map<String, Long> marks = new HashMap<String, Long>();
+    /* branch -> (event key -> event date) */
+    private final Map<String, Map<String, Long>> seenEvents =
+            new HashMap<String, Map<String, Long>>();
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    /**
+     * @param loadRules
+     *            the load rules of the job, the state is discarded when they change
+     * @param defaultMark
+     *            the mark of the branches for which no event is recorded, usually the date of the
+     *            build
+     * @param bufferMillis
+     *            the multi-site poll buffer, in milliseconds. The history is listed from that much
+     *            time before the mark.
+     */
+    public ClearCaseRevisionState(String loadRules, Date defaultMark, long bufferMillis) {
+        this.loadRules = loadRules;
+        this.defaultMark = defaultMark.getTime();
+        this.bufferMillis = bufferMillis;
+    }
+
+    /**
+     * Copy constructor, a poll records its events in a copy of the baseline.
+     */
+    public ClearCaseRevisionState(ClearCaseRevisionState other) {
+        this.loadRules = other.loadRules;
+        this.defaultMark = other.defaultMark;
+        this.bufferMillis = other.bufferMillis;
+        this.marks.putAll(other.marks);
+        for (Map.Entry<String, Map<String, Long>> e : other.seenEvents.entrySet()) {
+            this.seenEvents.put(e.getKey(), new HashMap<String, Long>(e.getValue()));
+        }
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return true if the state was computed with the same load rules
+     */
+    public boolean isCompatible(String loadRules) {
+        if (this.loadRules == null) {
+            return loadRules == null;
+        }
+        return this.loadRules.equals(loadRules);
+    }
+
+    /**
+     * @return the date of the newest event recorded on the branch
+     */
+    public Date getMark(String branch) {
+        Long mark = marks.get(branch);
+        return new Date(mark != null ? mark : defaultMark);
+    }
+
+    /**
+     * @return the date from which the history of the branch must be listed
+     */
+    public Date getSince(String branch) {
+        return new Date(getMark(branch).getTime() - bufferMillis);
+    }
+
+    /**
+     * @return true if the event has already been recorded on the branch
+     */
+    public boolean isSeen(String branch, HistoryEntry entry) {
+        Map<String, Long> events = seenEvents.get(branch);
+        return events != null && events.containsKey(eventKey(entry));
+    }
+
+    /**
+     * Records the events listed on a branch and moves its mark to the newest one. The events older
+     * than the new mark minus the buffer are forgotten, they will not be listed again.
+     */
+    public void record(String branch, List<HistoryEntry> entries) {
+        long mark = getMark(branch).getTime();
+        Map<String, Long> events = seenEvents.get(branch);
+        if (events == null) {
+            events = new HashMap<String, Long>();
+            seenEvents.put(branch, events);
+        }
+        for (HistoryEntry entry : entries) {
+            long date = entry.getDate().getTime();
+            events.put(eventKey(entry), date);
+            mark = Math.max(mark, date);
+        }
+        marks.put(branch, mark);
+
+        Iterator<Long> it = events.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() < mark - bufferMillis) {
+                it.remove();
+            }
+        }
+        if (events.isEmpty()) {
+            seenEvents.remove(branch);
+        }
+    }
+
+    /**
+     * Identifies an event regardless of the view it was listed from.
+     */
+    private static String eventKey(HistoryEntry entry) {
+        return entry.getDate().getTime() + " " + entry.getElement() + "@@"
+                + entry.getVersionId() + " " + entry.getEvent() + " " + entry.getOperation();
+    }
+}
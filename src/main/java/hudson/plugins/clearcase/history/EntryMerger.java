@@ -27,6 +27,7 @@ package hudson.plugins.clearcase.history;
 import hudson.plugins.clearcase.objects.BaseChangeLogEntry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -34,10 +35,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Class that merges clearcase log entries considering the time window specified 
  * in the global configuration. 
+ * 
+ * An entry is merged into the first entry created before it with the same user and comment,
+ * whose oldest or newest date is within the time window. The entries with the same user and
+ * comment are indexed by date in a {@link Bucket}, so that this first entry is found in
+ * logarithmic time instead of comparing the entry with all the entries of the user.
  */
 public class EntryMerger {
 
@@ -70,18 +77,19 @@ public class EntryMerger {
      */
     public List<BaseChangeLogEntry> getMergedList(List<BaseChangeLogEntry> orgList) {
         userEntries.clear();
+        Map<BucketKey, Bucket> buckets = createBuckets(orgList);
         for (BaseChangeLogEntry entry : orgList) {
-            boolean wasMerged = false;
             List<MergedEntry> entries = getUserEntries(entry.getUser());
-            for (MergedEntry storedEntry : entries) {
-                if (canBeMerged(storedEntry, entry)) {
-                    storedEntry.merge(entry);
-                    wasMerged = true;
-                    break;
-                }
-            }
-            if (!wasMerged) {
-                entries.add(new MergedEntry(entry));
+            Bucket bucket = buckets.get(new BucketKey(entry));
+            long date = entry.getDate().getTime();
+            MergedEntry storedEntry = bucket.find(date - maxTimeDifference, 
+                                                  date + maxTimeDifference);
+            if (storedEntry != null) {
+                bucket.merge(storedEntry, entry);
+            } else {
+                MergedEntry mergedEntry = new MergedEntry(entry);
+                bucket.add(mergedEntry);
+                entries.add(mergedEntry);
             }
         }
         List<BaseChangeLogEntry> list = getList();
@@ -93,6 +101,27 @@ public class EntryMerger {
         return list;
     }
 
+    /**
+     * Groups the dates of the entries by user and comment.
+     */
+    private Map<BucketKey, Bucket> createBuckets(List<BaseChangeLogEntry> orgList) {
+        Map<BucketKey, List<Long>> dates = new HashMap<BucketKey, List<Long>>();
+        for (BaseChangeLogEntry entry : orgList) {
+            BucketKey key = new BucketKey(entry);
+            List<Long> bucketDates = dates.get(key);
+            if (bucketDates == null) {
+                bucketDates = new ArrayList<Long>();
+                dates.put(key, bucketDates);
+            }
+            bucketDates.add(entry.getDate().getTime());
+        }
+        Map<BucketKey, Bucket> buckets = new HashMap<BucketKey, Bucket>();
+        for (Map.Entry<BucketKey, List<Long>> e : dates.entrySet()) {
+            buckets.put(e.getKey(), new Bucket(e.getValue()));
+        }
+        return buckets;
+    }
+
     /**
      * Get all entries.
      */
@@ -118,19 +147,6 @@ public class EntryMerger {
         }
         return userEntries.get(user);
     }
-
-    /**
-     * If the two entries have the same comment, we check if they were created 
-     * in the same time window (as specified in the global configuration)
-     */
-    private boolean canBeMerged(MergedEntry entryOne, BaseChangeLogEntry entryTwo) {
-        if (entryOne.entry.getComment().equals(entryTwo.getComment())) {
-            long oldestDiff = Math.abs(entryOne.oldest.getTime() - entryTwo.getDate().getTime());
-            long newestDiff = Math.abs(entryOne.newest.getTime() - entryTwo.getDate().getTime());
-            return (oldestDiff < maxTimeDifference) || (newestDiff < maxTimeDifference);
-        }
-        return false;
-    }
     
     
     /**
@@ -145,6 +161,8 @@ public class EntryMerger {
         private BaseChangeLogEntry entry;
         private Date oldest;
         private Date newest;
+        /* creation order in the bucket */
+        private int index;
         
         /*******************
          *** CONSTRUCTOR ***
@@ -169,4 +187,172 @@ public class EntryMerger {
             entry.getAffectedFiles().addAll(newEntry.getAffectedFiles());
         }
     }
+
+    /**
+     * The user and the comment of an entry, only entries with the same ones can be merged.
+     */
+    private static class BucketKey {
+        
+        private final String user;
+        private final String comment;
+        private final int hash;
+        
+        public BucketKey(BaseChangeLogEntry entry) {
+            this.user = entry.getUser();
+            this.comment = entry.getComment();
+            this.hash = 31 * (user != null ? user.hashCode() : 0) 
+                        + (comment != null ? comment.hashCode() : 0);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) obj;
+            return hash == other.hash 
+                   && (user == null ? other.user == null : user.equals(other.user))
+                   && (comment == null ? other.comment == null : comment.equals(other.comment));
+        }
+    }
+
+    /**
+     * The merged entries of a user with the same comment, indexed by the dates they start or 
+     * end at.
+     * 
+     * The dates of the bucket are known in advance and sorted. For each date, the bucket keeps 
+     * the merged entries whose oldest or newest date it is, and a segment tree gives the first 
+     * created of them over a range of dates.
+     */
+    private class Bucket {
+        
+        /**************
+         *** FIELDS ***
+         **************/
+        
+        private final long[] dates;
+        private final List<TreeSet<Integer>> entriesAt;
+        private final int[] tree;
+        private final int leaves;
+        private final List<MergedEntry> entries = new ArrayList<MergedEntry>();
+        
+        /*******************
+         *** CONSTRUCTOR ***
+         *******************/
+        
+        public Bucket(List<Long> allDates) {
+            long[] sorted = new long[allDates.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = allDates.get(i);
+            }
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[count++] = sorted[i];
+                }
+            }
+            this.dates = Arrays.copyOf(sorted, count);
+            this.entriesAt = new ArrayList<TreeSet<Integer>>(
+                    Collections.<TreeSet<Integer>>nCopies(count, null));
+            int size = 1;
+            while (size < count) {
+                size *= 2;
+            }
+            this.leaves = size;
+            this.tree = new int[2 * size];
+            Arrays.fill(tree, Integer.MAX_VALUE);
+        }
+        
+        /***************
+         *** METHODS ***
+         ***************/
+        
+        /**
+         * @return the first created entry whose oldest or newest date is strictly between the 
+         *         bounds, null if there is none
+         */
+        public MergedEntry find(long after, long before) {
+            int lo = position(after, false);
+            int hi = position(before, true) - 1;
+            int first = Integer.MAX_VALUE;
+            for (lo += leaves, hi += leaves; lo <= hi; lo /= 2, hi /= 2) {
+                if ((lo & 1) == 1) {
+                    first = Math.min(first, tree[lo++]);
+                }
+                if ((hi & 1) == 0) {
+                    first = Math.min(first, tree[hi--]);
+                }
+            }
+            return first == Integer.MAX_VALUE ? null : entries.get(first);
+        }
+        
+        public void add(MergedEntry entry) {
+            entry.index = entries.size();
+            entries.add(entry);
+            put(entry.oldest, entry.index);
+        }
+        
+        public void merge(MergedEntry storedEntry, BaseChangeLogEntry entry) {
+            Date oldest = storedEntry.oldest;
+            Date newest = storedEntry.newest;
+            storedEntry.merge(entry);
+            if (storedEntry.oldest != oldest && !oldest.equals(newest)) {
+                remove(oldest, storedEntry.index);
+            }
+            if (storedEntry.newest != newest && !newest.equals(oldest)) {
+                remove(newest, storedEntry.index);
+            }
+            put(entry.getDate(), storedEntry.index);
+        }
+        
+        /**
+         * @return the position of the first date greater than (or equal to if inclusive) the 
+         *         given one
+         */
+        private int position(long date, boolean inclusive) {
+            int lo = 0;
+            int hi = dates.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (dates[mid] < date || (!inclusive && dates[mid] == date)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+        
+        private void put(Date date, int index) {
+            int pos = Arrays.binarySearch(dates, date.getTime());
+            TreeSet<Integer> at = entriesAt.get(pos);
+            if (at == null) {
+                at = new TreeSet<Integer>();
+                entriesAt.set(pos, at);
+            }
+            at.add(index);
+            update(pos);
+        }
+        
+        private void remove(Date date, int index) {
+            int pos = Arrays.binarySearch(dates, date.getTime());
+            entriesAt.get(pos).remove(index);
+            update(pos);
+        }
+        
+        private void update(int pos) {
+            TreeSet<Integer> at = entriesAt.get(pos);
+            int node = pos + leaves;
+            tree[node] = at == null || at.isEmpty() ? Integer.MAX_VALUE : at.first();
+            for (node /= 2; node > 0; node /= 2) {
+                tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
 }
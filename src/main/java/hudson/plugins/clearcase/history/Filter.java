@@ -25,7 +25,9 @@
 package hudson.plugins.clearcase.history;
 
 import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.plugins.clearcase.util.LoadRuleMatcher;
 
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +51,11 @@ public interface Filter {
                 return false;
             return true;
         }
+
+        @Override
+        public String toString() {
+            return "DefaultFilter";
+        }
     }
 
     public class DestroySubBranchFilter implements Filter {
@@ -56,10 +63,16 @@ public interface Filter {
                 .compile("destroy sub-branch \".+\" of branch");
         @Override
         public boolean accept(HistoryEntry entry) {
-            if (DESTROYED_SUB_BRANCH_PATTERN.matcher(entry.getEvent()).matches())
+            if (entry.getEvent().startsWith("destroy sub-branch ")
+                    && DESTROYED_SUB_BRANCH_PATTERN.matcher(entry.getEvent()).matches())
                 return false;
             return true;
         }
+
+        @Override
+        public String toString() {
+            return "DestroySubBranchFilter";
+        }
     }
 
     public abstract class FieldFilter implements Filter {
@@ -82,14 +95,19 @@ public interface Filter {
 
             case EqualsIgnoreCase:
             case NotEqualsIgnoreCase:
-            case ContainsIgnoreCase:
-            case DoesNotContainIgnoreCase:
             case StartsWithIgnoreCase:
             case EndsWithIgnoreCase:
-                this.patternText = patternText.toLowerCase();
+                this.patternText = patternText;
                 this.pattern = null;
                 break;
 
+            case ContainsIgnoreCase:
+            case DoesNotContainIgnoreCase:
+                this.patternText = patternText;
+                this.pattern = Pattern.compile(Pattern.quote(patternText),
+                        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+                break;
+
             case ContainsRegxp:
             case DoesNotContainRegxp:
                 this.patternText = patternText;
@@ -98,33 +116,37 @@ public interface Filter {
             }
         }
 
+        /**
+         * The case-insensitive comparisons do not lower-case the value, they compare it in place.
+         */
         public boolean accept(String value) {
             switch (type) {
             case Equals:
                 return value.equals(patternText);
             case EqualsIgnoreCase:
-                return value.toLowerCase().equals(patternText);
+                return value.equalsIgnoreCase(patternText);
             case NotEquals:
                 return !(value.equals(patternText));
             case NotEqualsIgnoreCase:
-                return !(value.toLowerCase().equals(patternText));
+                return !(value.equalsIgnoreCase(patternText));
             case StartsWith:
                 return value.startsWith(patternText);
             case StartsWithIgnoreCase:
-                return value.toLowerCase().startsWith(patternText);
+                return value.regionMatches(true, 0, patternText, 0, patternText.length());
             case EndsWith:
                 return value.endsWith(patternText);
             case EndsWithIgnoreCase:
-                return value.toLowerCase().endsWith(patternText);
+                return value.length() >= patternText.length()
+                        && value.regionMatches(true, value.length() - patternText.length(),
+                                patternText, 0, patternText.length());
             case Contains:
                 return value.contains(patternText);
             case ContainsIgnoreCase:
-                return value.toLowerCase().contains(patternText);
+                return pattern.matcher(value).find();
             case DoesNotContain:
                 return !(value.contains(patternText));
             case DoesNotContainIgnoreCase:
-                System.out.println(value.toLowerCase() + " <>" + patternText);
-                return !(value.toLowerCase().contains(patternText));
+                return !pattern.matcher(value).find();
             case ContainsRegxp:
                 Matcher m = pattern.matcher(value);
                 return m.find();
@@ -135,6 +157,19 @@ public interface Filter {
             return true;
         }
 
+        public Type getType() {
+            return type;
+        }
+
+        public String getPatternText() {
+            return patternText;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " " + type + " " + patternText;
+        }
+
         public enum Type {
             Equals, 
             EqualsIgnoreCase, 
@@ -153,6 +188,27 @@ public interface Filter {
         }
     }
     
+    /**
+     * Accepts the elements under one of the load rules, see {@link LoadRuleMatcher}.
+     */
+    public class LoadRuleFilter implements Filter {
+        private final LoadRuleMatcher matcher;
+
+        public LoadRuleFilter(List<String> loadRules) {
+            this.matcher = new LoadRuleMatcher(loadRules);
+        }
+
+        @Override
+        public boolean accept(HistoryEntry entry) {
+            return matcher.isContainedIn(entry.getElement());
+        }
+
+        @Override
+        public String toString() {
+            return "LoadRuleFilter " + matcher.size() + " rules";
+        }
+    }
+
     public class FileFilter extends FieldFilter {
         public FileFilter(Type type, String patternText) {
             super(type, patternText);
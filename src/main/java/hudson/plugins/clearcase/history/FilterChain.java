@@ -0,0 +1,245 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.history.Filter.DefaultFilter;
+import hudson.plugins.clearcase.history.Filter.DestroySubBranchFilter;
+import hudson.plugins.clearcase.history.Filter.FieldFilter;
+import hudson.plugins.clearcase.history.Filter.FileFilter;
+import hudson.plugins.clearcase.history.Filter.LoadRuleFilter;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * The filters of a job, compiled once and applied in a single pass:
+ * <ul>
+ * <li>the excluded regions (<tt>DoesNotContainRegxp</tt> file filters) are merged into one
+ * pattern, so that an element path is scanned once whatever the number of regions;</li>
+ * <li>the cheap filters run first, and among filters of the same cost, the ones that reject the
+ * most entries;</li>
+ * <li>the chain stops at the first filter that rejects the entry.</li>
+ * </ul>
+ * The filters are conjunctive and have no side effect, so their order does not change the result.
+ *
+ * The chain counts how many entries each filter evaluated and rejected, see
+ * {@link #getStatistics()}. It can be used by several threads at the same time.
+ */
+public class FilterChain implements Filter {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    /* the filters are reordered by rejection rate every that many evaluations */
+    private static final long REORDER_PERIOD = 1024;
+
+    private static final int COST_CHEAP = 0;
+    private static final int COST_STRING = 1;
+    private static final int COST_REGEXP = 2;
+
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]|\\\\k<");
+
+    private static final Comparator<Stage> STAGE_ORDER = new Comparator<Stage>() {
+        @Override
+        public int compare(Stage a, Stage b) {
+            if (a.cost != b.cost) {
+                return a.cost < b.cost ? -1 : 1;
+            }
+            return Double.compare(b.sortRate, a.sortRate);
+        }
+    };
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final List<Stage> stages;
+    private volatile Stage[] order;
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    private FilterChain(List<Stage> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+        Stage[] initial = stages.toArray(new Stage[stages.size()]);
+        Arrays.sort(initial, STAGE_ORDER);
+        this.order = initial;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @param filters
+     *            the filters of the job, may be null
+     */
+    public static FilterChain compile(List<Filter> filters) {
+        List<Stage> stages = new ArrayList<Stage>();
+        List<String> excluded = new ArrayList<String>();
+        if (filters != null) {
+            for (Filter filter : filters) {
+                if (filter instanceof FilterChain) {
+                    for (Stage stage : ((FilterChain) filter).stages) {
+                        stages.add(new Stage(stage.filter, stage.cost));
+                    }
+                } else if (isMergeableExclusion(filter)) {
+                    excluded.add(((FileFilter) filter).getPatternText());
+                } else {
+                    stages.add(new Stage(filter, costOf(filter)));
+                }
+            }
+        }
+        if (excluded.size() == 1) {
+            stages.add(new Stage(new FileFilter(FieldFilter.Type.DoesNotContainRegxp,
+                    excluded.get(0)), COST_REGEXP));
+        } else if (!excluded.isEmpty()) {
+            StringBuilder merged = new StringBuilder();
+            for (String regexp : excluded) {
+                if (merged.length() > 0) {
+                    merged.append('|');
+                }
+                merged.append("(?:").append(regexp).append(')');
+            }
+            stages.add(new Stage(new FileFilter(FieldFilter.Type.DoesNotContainRegxp,
+                    merged.toString()), COST_REGEXP));
+        }
+        return new FilterChain(stages);
+    }
+
+    /** implements {@link Filter#accept(HistoryEntry)} **/
+    @Override
+    public boolean accept(HistoryEntry entry) {
+        if (evaluations.incrementAndGet() % REORDER_PERIOD == 0) {
+            reorder();
+        }
+        for (Stage stage : order) {
+            stage.evaluated.incrementAndGet();
+            if (!stage.filter.accept(entry)) {
+                stage.rejected.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of entries evaluated and rejected by each filter, in the order of the
+     *         filters given to {@link #compile(List)}, the excluded regions being merged last
+     */
+    public List<Statistic> getStatistics() {
+        List<Statistic> statistics = new ArrayList<Statistic>();
+        for (Stage stage : stages) {
+            statistics.add(new Statistic(stage.filter.toString(), stage.evaluated.get(),
+                    stage.rejected.get()));
+        }
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterChain" + getStatistics();
+    }
+
+    private synchronized void reorder() {
+        /* the rates are frozen while sorting, the other threads keep counting */
+        for (Stage stage : stages) {
+            stage.sortRate = stage.rejectRate();
+        }
+        Stage[] next = order.clone();
+        Arrays.sort(next, STAGE_ORDER);
+        order = next;
+    }
+
+    /**
+     * The merged pattern is an alternation of the excluded regions, a region using a back
+     * reference would refer to the wrong group once merged.
+     */
+    private static boolean isMergeableExclusion(Filter filter) {
+        return filter instanceof FileFilter
+                && ((FileFilter) filter).getType() == FieldFilter.Type.DoesNotContainRegxp
+                && !BACK_REFERENCE.matcher(((FileFilter) filter).getPatternText()).find();
+    }
+
+    private static int costOf(Filter filter) {
+        if (filter instanceof DefaultFilter || filter instanceof DestroySubBranchFilter) {
+            return COST_CHEAP;
+        }
+        if (filter instanceof LoadRuleFilter) {
+            return COST_STRING;
+        }
+        if (filter instanceof FieldFilter) {
+            switch (((FieldFilter) filter).getType()) {
+            case ContainsRegxp:
+            case DoesNotContainRegxp:
+            case ContainsIgnoreCase:
+            case DoesNotContainIgnoreCase:
+                return COST_REGEXP;
+            default:
+                return COST_STRING;
+            }
+        }
+        return COST_REGEXP;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    private static class Stage {
+        final Filter filter;
+        final int cost;
+        final AtomicLong evaluated = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        double sortRate = 0;
+
+        Stage(Filter filter, int cost) {
+            this.filter = filter;
+            this.cost = cost;
+        }
+
+        double rejectRate() {
+            long e = evaluated.get();
+            return e == 0 ? 0 : (double) rejected.get() / e;
+        }
+    }
+
+    /**
+     * How many entries a filter of the chain evaluated and rejected.
+     */
+    public static class Statistic {
+        private final String filter;
+        private final long evaluated;
+        private final long rejected;
+
+        Statistic(String filter, long evaluated, long rejected) {
+            this.filter = filter;
+            this.evaluated = evaluated;
+            this.rejected = rejected;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        public long getEvaluated() {
+            return evaluated;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return filter + ": " + rejected + "/" + evaluated + " rejected";
+        }
+    }
+}
@@ -33,6 +33,7 @@ import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.changelog.ClearCaseChangeLogSet;
 import hudson.plugins.clearcase.cleartool.ClearTool;
 import hudson.plugins.clearcase.cleartool.HistoryFormatHandler;
+import hudson.plugins.clearcase.cleartool.LsHistoryParser;
 import hudson.plugins.clearcase.objects.HistoryEntry;
 import hudson.plugins.clearcase.objects.View;
 import hudson.plugins.clearcase.util.ClearToolError;
@@ -42,7 +43,10 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
@@ -52,7 +56,15 @@ public abstract class HistoryAction {
 
     protected ClearTool cleartool;
     protected List<Filter> filters;
+    protected FilterChain filterChain;
     protected String extendedViewPath;
+    protected ClearCaseRevisionState revisionState;
+    protected int parallelism = 1;
+    protected ChangeFeed changeFeed;
+    protected long changeFeedMaxAge;
+    protected String changeFeedNode;
+    protected ActivityCache activityCache;
+    protected long activityCacheMaxAge;
 
     public HistoryAction(ClearTool cleartool) {
         this.cleartool = cleartool;
@@ -61,6 +73,7 @@ public abstract class HistoryAction {
     public HistoryAction(ClearTool cleartool, List<Filter> filters) {
         this.cleartool = cleartool;
         this.filters = filters != null ? filters : new ArrayList<Filter>();
+        this.filterChain = FilterChain.compile(this.filters);
     }
     
     /**
@@ -85,45 +98,159 @@ public abstract class HistoryAction {
 
 
     /**
-     * Returns if the repository has any changes since the specified time
-     * @param time check for changes since this time
-     * @param view the name of the view
-     * @param branchNames the branch names
-     * @param viewPaths optional vob paths
-     * @return true, if the ClearCase repository has changes; false, otherwise.
-     * @throws ClearToolError 
+     * Returns if the repository has any changes past the marks of a revision state. The events
+     * already recorded in the baseline are ignored.
+     * 
+     * @param baseline
+     *            the state of the last build or poll
+     * @param remote
+     *            a copy of the baseline. If no change is found, the listed events are recorded in
+     *            it so that the next poll starts from there.
+     * @return true if an entry accepted by the filters and not recorded in the baseline was found
+     * @throws ClearToolError
      */
-    public boolean pollChanges(Date time, View view, List<String> branchNames, List<String> viewPaths) 
-            throws IOException, InterruptedException, ClearToolError 
+    public boolean pollChanges(final ClearCaseRevisionState baseline,
+            ClearCaseRevisionState remote, View view, List<String> branchNames,
+            List<String> viewPaths) throws IOException, InterruptedException, ClearToolError
+    {
+        CheckoutProbe probe = startCheckoutProbe(view, branchNames, viewPaths);
+        try {
+            boolean changed = pollHistory(baseline, remote, view, branchNames, viewPaths);
+            probe.check();
+            return changed;
+        } finally {
+            probe.stop();
+        }
+    }
+
+    private boolean pollHistory(final ClearCaseRevisionState baseline,
+            ClearCaseRevisionState remote, View view, List<String> branchNames,
+            List<String> viewPaths) throws IOException, InterruptedException, ClearToolError
+    {
+        if (changeFeed != null && view.isDynamic() && viewPaths != null && !viewPaths.isEmpty()) {
+            return pollChangeFeed(baseline, remote, view, branchNames, viewPaths);
+        }
+
+        HistoryFormatHandler historyHandler = getHistoryFormatHandler();
+        final AtomicBoolean found = new AtomicBoolean(false);
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, parallelism);
+        List<LsHistoryFanOut.Shard> shards = fanOut.createShards(branchNames, viewPaths);
+        for (final LsHistoryFanOut.Shard shard : shards) {
+            shard.since = baseline.getSince(shard.branch);
+            shard.parser = new LsHistoryParser(historyHandler, extendedViewPath) {
+                @Override
+                protected boolean entryCompleted(HistoryEntry entry) {
+                    if (found.get()) {
+                        /* another command found a change */
+                        return false;
+                    }
+                    if (baseline.isSeen(shard.branch, entry)) {
+                        return true;
+                    }
+                    super.entryCompleted(entry);
+                    if (isAccepted(entry)) {
+                        /* stop at the first accepted entry */
+                        found.set(true);
+                        return false;
+                    }
+                    return true;
+                }
+            };
+        }
+        try {
+            fanOut.run(shards, view);
+        } catch (ParseException ex) {
+            /* the branches listed before the error are recorded */
+        }
+
+        if (found.get()) {
+            /* a build will record a new state */
+            return true;
+        }
+        Map<String, List<HistoryEntry>> listed = new LinkedHashMap<String, List<HistoryEntry>>();
+        fanOut.merge(shards, listed);
+        for (Map.Entry<String, List<HistoryEntry>> e : listed.entrySet()) {
+            remote.record(e.getKey(), e.getValue());
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #pollChanges(ClearCaseRevisionState, ClearCaseRevisionState, View, List, List)}
+     * with the entries of the shared {@link ChangeFeed}.
+     */
+    private boolean pollChangeFeed(ClearCaseRevisionState baseline, ClearCaseRevisionState remote,
+            View view, List<String> branchNames, List<String> viewPaths) throws IOException,
+            InterruptedException, ClearToolError
     {
-        for (String branch : branchNames) {
-            if (cleartool.hasCheckouts(branch, view, viewPaths)) {
-                String message = "There are checkouts in the branch: %s. No build has been triggered.";
-                throw new ClearToolError(String.format(message, branch));
+        Map<String, List<HistoryEntry>> listed = new LinkedHashMap<String, List<HistoryEntry>>();
+        try {
+            for (String branch : branchNames) {
+                List<HistoryEntry> entries = changeFeed.getEntries(cleartool, view,
+                        getHistoryFormatHandler(), changeFeedNode, extendedViewPath, branch,
+                        viewPaths, baseline.getSince(branch), changeFeedMaxAge, parallelism);
+                List<HistoryEntry> branchEntries = new ArrayList<HistoryEntry>();
+                for (HistoryEntry entry : entries) {
+                    if (baseline.isSeen(branch, entry)) {
+                        continue;
+                    }
+                    if (isAccepted(entry)) {
+                        /* a build will record a new state */
+                        return true;
+                    }
+                    branchEntries.add(entry);
+                }
+                listed.put(branch, branchEntries);
             }
+        } catch (ParseException ex) {
+            /* the branches listed so far are recorded */
         }
-        List<HistoryEntry> entries = runLsHistory(time, view, branchNames, viewPaths); 
-        List<HistoryEntry> filtered = filterEntries(entries);
+        for (Map.Entry<String, List<HistoryEntry>> e : listed.entrySet()) {
+            remote.record(e.getKey(), e.getValue());
+        }
+        return false;
+    }
 
-        return filtered.size() > 0;
+    /**
+     * Looks for the checkouts of all the branches with one lscheckout command. Above a
+     * parallelism of 1, the command runs in the background while the history is listed,
+     * otherwise it runs now and a checkout stops the poll before the history is listed.
+     */
+    private CheckoutProbe startCheckoutProbe(View view, List<String> branchNames,
+            List<String> viewPaths) throws IOException, InterruptedException, ClearToolError
+    {
+        CheckoutProbe probe = new CheckoutProbe(cleartool, view, branchNames, viewPaths);
+        if (parallelism > 1) {
+            probe.start();
+        } else {
+            probe.check();
+        }
+        return probe;
     }
-    
-    
-    
+
     protected List<HistoryEntry> runLsHistory(Date time, View view, List<String> branchNames,
             List<String> viewPaths) 
             throws IOException, InterruptedException, ClearToolError 
     {
         HistoryFormatHandler historyHandler = getHistoryFormatHandler();
-        List<HistoryEntry> fullList = new ArrayList<HistoryEntry>();
-
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, parallelism);
+        List<LsHistoryFanOut.Shard> shards = fanOut.createShards(branchNames, viewPaths);
+        for (LsHistoryFanOut.Shard shard : shards) {
+            shard.since = time;
+            shard.parser = new LsHistoryParser(historyHandler, extendedViewPath);
+        }
         try {
-            for (String branchName : branchNames) {
-                fullList.addAll(cleartool.lshistory(historyHandler, time, view, branchName, 
-                                viewPaths, extendedViewPath));
-            }
+            fanOut.run(shards, view);
         } catch (ParseException ex) {
-            /* empty by design */
+            /* the entries of this command and of the next ones are ignored */
+        }
+
+        Map<String, List<HistoryEntry>> branches = new LinkedHashMap<String, List<HistoryEntry>>();
+        List<HistoryEntry> fullList = fanOut.merge(shards, branches);
+        if (revisionState != null) {
+            for (Map.Entry<String, List<HistoryEntry>> e : branches.entrySet()) {
+                revisionState.record(e.getKey(), e.getValue());
+            }
         }
         return fullList;
     }
@@ -133,17 +260,27 @@ public abstract class HistoryAction {
         List<HistoryEntry> filtered = new ArrayList<HistoryEntry>();
 
         for (HistoryEntry entry : unfiltered) {
-            boolean accepted = true;
-            for (Filter filter : filters) {
-                accepted = accepted && filter.accept(entry);
-            }
-            if (accepted) {
+            if (isAccepted(entry)) {
                 filtered.add(entry);
             }
         }
         return filtered;
     }
 
+    protected boolean isAccepted(HistoryEntry entry) {
+        if (filterChain == null) {
+            filterChain = FilterChain.compile(filters);
+        }
+        return filterChain.accept(entry);
+    }
+
+    /**
+     * @return the compiled filters, with the number of entries each one evaluated and rejected
+     */
+    public FilterChain getFilterChain() {
+        return filterChain;
+    }
+
     protected abstract 
     ClearCaseChangeLogSet<? extends ChangeLogSet.Entry> 
     buildChangelog(AbstractBuild<?, ?> build, View view, List<HistoryEntry> entries) 
@@ -169,4 +306,42 @@ public abstract class HistoryAction {
     public String getExtendedViewPath() {
         return extendedViewPath;
     }
+
+    /**
+     * Sets how many lshistory commands may run at the same time. Above 1, there is one command per
+     * branch and per lookup path.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Polls with the entries of a feed shared by the jobs polling the same branches, listed at
+     * most once per <tt>maxAgeMillis</tt>. Only used with dynamic views.
+     * 
+     * @param node
+     *            the name of the node the history is listed from, empty for the controller
+     */
+    public void setChangeFeed(ChangeFeed changeFeed, long maxAgeMillis, String node) {
+        this.changeFeed = changeFeed;
+        this.changeFeedMaxAge = maxAgeMillis;
+        this.changeFeedNode = node;
+    }
+
+    /**
+     * Reads the UCM activities listed less than <tt>maxAgeMillis</tt> ago from a cache instead of
+     * listing them again. The listed activities are added to the cache.
+     */
+    public void setActivityCache(ActivityCache activityCache, long maxAgeMillis) {
+        this.activityCache = activityCache;
+        this.activityCacheMaxAge = maxAgeMillis;
+    }
+
+    /**
+     * Sets the state in which the events listed by
+     * {@link #getChanges(AbstractBuild, Date, View, List, List)} are recorded. Optional.
+     */
+    public void setRevisionState(ClearCaseRevisionState revisionState) {
+        this.revisionState = revisionState;
+    }
 }
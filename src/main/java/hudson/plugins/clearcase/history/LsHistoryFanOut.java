@@ -0,0 +1,250 @@
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.LsHistoryParser;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the lshistory commands of a {@link HistoryAction}, at most <tt>parallelism</tt> at a time.
+ *
+ * With a parallelism of 1, there is one command per branch with all the lookup paths, as before.
+ * Otherwise, there is one command per branch and per lookup path. In both cases, the entries are
+ * merged in the order of the branches and of the paths, whatever the order in which the commands
+ * end.
+ */
+class LsHistoryFanOut {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "lshistory fan-out");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final ClearTool cleartool;
+    private final int parallelism;
+    /* index of the first shard that stopped early or could not be parsed */
+    private final AtomicInteger haltedAt = new AtomicInteger(Integer.MAX_VALUE);
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    LsHistoryFanOut(ClearTool cleartool, int parallelism) {
+        this.cleartool = cleartool;
+        this.parallelism = parallelism;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * The caller must set the {@link Shard#since} date and the {@link Shard#parser} of each shard
+     * before calling {@link #run(List, View)}.
+     */
+    List<Shard> createShards(List<String> branchNames, List<String> viewPaths) {
+        List<Shard> shards = new ArrayList<Shard>();
+        for (String branch : branchNames) {
+            if (parallelism > 1 && viewPaths != null && viewPaths.size() > 1) {
+                for (String path : viewPaths) {
+                    shards.add(new Shard(branch, Collections.singletonList(path)));
+                }
+            } else {
+                shards.add(new Shard(branch, viewPaths));
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Runs the lshistory command of each shard. Once a command has stopped early or could not be
+     * parsed, the commands of the next shards are skipped or interrupted, the commands of the
+     * previous shards run to their end.
+     *
+     * @throws ClearToolError
+     *             the first error in the order of the shards
+     * @throws ParseException
+     *             if the output of a command could not be parsed, the shards before it are
+     *             completed
+     */
+    void run(List<Shard> shards, final View view) throws IOException, InterruptedException,
+            ClearToolError, ParseException
+    {
+        if (parallelism <= 1 || shards.size() <= 1) {
+            for (int i = 0; i < shards.size(); i++) {
+                runShard(i, shards.get(i), view);
+                if (haltedAt.get() <= i) {
+                    break;
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, shards.size()), THREAD_FACTORY);
+        final List<Future<Void>> futures = Collections.synchronizedList(
+                new ArrayList<Future<Void>>());
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                final int index = i;
+                final Shard shard = shards.get(i);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (haltedAt.get() > index) {
+                            try {
+                                runShard(index, shard, view);
+                            } finally {
+                                if (haltedAt.get() == index) {
+                                    cancelAfter(futures, index);
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            /* a shard may have halted before the next ones were submitted */
+            cancelAfter(futures, haltedAt.get());
+            for (int i = 0; i < futures.size() && i <= haltedAt.get(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (CancellationException e) {
+                    /* a previous shard halted the run */
+                    break;
+                } catch (ExecutionException e) {
+                    if (i > haltedAt.get()) {
+                        /* interrupted because a previous shard halted the run */
+                        break;
+                    }
+                    rethrow(e.getCause());
+                }
+            }
+        } finally {
+            /* interrupts the commands still running if one of them failed */
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the entries of the shards in their order, up to the first shard that did not
+     * complete.
+     *
+     * @param completeBranches
+     *            optional, receives the entries of the branches whose commands all completed
+     */
+    List<HistoryEntry> merge(List<Shard> shards, Map<String, List<HistoryEntry>> completeBranches) {
+        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+        List<HistoryEntry> branchEntries = new ArrayList<HistoryEntry>();
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            if (!shard.completed) {
+                break;
+            }
+            entries.addAll(shard.parser.getEntries());
+            branchEntries.addAll(shard.parser.getEntries());
+            boolean lastOfBranch = i == shards.size() - 1
+                    || !shards.get(i + 1).branch.equals(shard.branch);
+            if (lastOfBranch) {
+                if (completeBranches != null) {
+                    completeBranches.put(shard.branch, branchEntries);
+                }
+                branchEntries = new ArrayList<HistoryEntry>();
+            }
+        }
+        return entries;
+    }
+
+    private void runShard(int index, Shard shard, View view) throws IOException,
+            InterruptedException, ClearToolError, ParseException
+    {
+        try {
+            cleartool.lshistory(shard.parser, shard.since, view, shard.branch, shard.paths);
+            shard.completed = true;
+        } finally {
+            if (!shard.completed || shard.parser.isStopped()) {
+                int halted = haltedAt.get();
+                while (index < halted && !haltedAt.compareAndSet(halted, index)) {
+                    halted = haltedAt.get();
+                }
+            }
+        }
+    }
+
+    private static void cancelAfter(List<Future<Void>> futures, int index) {
+        synchronized (futures) {
+            for (int i = futures.size() - 1; i > index; i--) {
+                futures.get(i).cancel(true);
+            }
+        }
+    }
+
+    private static void rethrow(Throwable t) throws IOException, InterruptedException,
+            ClearToolError, ParseException
+    {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof ClearToolError) {
+            throw (ClearToolError) t;
+        } else if (t instanceof ParseException) {
+            throw (ParseException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            throw new IOException(t);
+        }
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    /**
+     * One lshistory command: a branch and the lookup paths to list.
+     */
+    static class Shard {
+        final String branch;
+        final List<String> paths;
+        Date since;
+        LsHistoryParser parser;
+        volatile boolean completed = false;
+
+        Shard(String branch, List<String> paths) {
+            this.branch = branch;
+            this.paths = paths;
+        }
+    }
+}
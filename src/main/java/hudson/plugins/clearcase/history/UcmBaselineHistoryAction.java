@@ -16,11 +16,29 @@ import hudson.scm.ChangeLogSet.Entry;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class UcmBaselineHistoryAction extends HistoryAction {
 
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "lsbl fan-out");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
     private PromotionLevel baselineLevelThreshold;
 
     public UcmBaselineHistoryAction(ClearTool cleartool, PromotionLevel threshold) {
@@ -36,11 +54,31 @@ public class UcmBaselineHistoryAction extends HistoryAction {
 
         if (!baselineActivities.isEmpty()) {
             List<UcmActivity> activities = new ArrayList<UcmActivity>();
-            for (String activityName : baselineActivities) {
-                HistoryFormatHandler handler = new HistoryFormatHandler(UcmHistoryAction.ACTIVITY_FORMAT);
-                UcmActivity act = cleartool.lsactivity(activityName, handler, view);
-                act.setFiles(cleartool.getActivityChangelog(act, view));
-                activities.add(act);
+            try {
+                /* the activities and their versions are listed together, in a few commands */
+                Map<String, UcmActivity> listed = new HashMap<String, UcmActivity>();
+                for (int i = 0; i < baselineActivities.size(); i += ActivityResolver.BATCH_SIZE) {
+                    listed.putAll(cleartool.getActivitiesChangelog(baselineActivities.subList(i,
+                            Math.min(baselineActivities.size(), i + ActivityResolver.BATCH_SIZE)),
+                            view));
+                }
+                for (String activityName : baselineActivities) {
+                    UcmActivity act = listed.get(activityName);
+                    if (act == null) {
+                        /* listed alone, so that its error if any is raised */
+                        act = lsactivity(activityName, view);
+                        act.setFiles(cleartool.getActivityChangelog(act, view));
+                    }
+                    /*
+                     * the combined command does not list the contributing activities, its
+                     * activities are not put in the activity cache shared with the UCM jobs
+                     */
+                    activities.add(act);
+                }
+            } finally {
+                if (activityCache != null) {
+                    activityCache.save();
+                }
             }
             changeLog = new BaselineChangeLogSet(build, baseline, activities);
         }
@@ -48,26 +86,152 @@ public class UcmBaselineHistoryAction extends HistoryAction {
         return changeLog;
     }
 
+    /**
+     * @return the activity from the cache if any, otherwise as listed by cleartool. The cached
+     *         activities are copies, their files can be set.
+     */
+    private UcmActivity lsactivity(String activityName, View view) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        String key = ActivityCache.key(activityName, view);
+        if (activityCache != null) {
+            UcmActivity cached = activityCache.get(key, activityCacheMaxAge);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        HistoryFormatHandler handler = new HistoryFormatHandler(UcmHistoryAction.ACTIVITY_FORMAT);
+        UcmActivity act = cleartool.lsactivity(activityName, handler, view);
+        if (activityCache != null) {
+            activityCache.put(key, act);
+        }
+        return act;
+    }
+
+    /**
+     * @return the first baseline of the first child stream that has one, in the order of the
+     *         child streams
+     */
     public Baseline findBaseline(View view) throws IOException, InterruptedException,
             ClearToolError
     {
-        Baseline deliveredBaseline = null;
-        for (Stream stream : cleartool.getChildStreams(view.getStream())) {
-            List<Baseline> baselines = cleartool
-                    .getBaselines(stream, baselineLevelThreshold, false);
-            if (!baselines.isEmpty()) {
-                deliveredBaseline = baselines.get(0);
-                break;
+        return findBaseline(view, true);
+    }
+
+    /**
+     * Looks for a baseline to deliver in the child streams of the stream of the view. The child
+     * streams are cached by {@link ChildStreamCache}. Above a parallelism of 1, their baselines
+     * are listed concurrently and the commands still running are interrupted once the result is
+     * known.
+     * 
+     * @param inOrder
+     *            true to return the baseline of the first child stream that has one, as a build
+     *            delivers it. False to return the first baseline found, which is enough for a
+     *            poll.
+     */
+    private Baseline findBaseline(View view, boolean inOrder) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        List<Stream> streams = ChildStreamCache.getInstance().getChildStreams(cleartool,
+                view.getStream());
+        try {
+            if (parallelism <= 1 || streams.size() <= 1) {
+                for (Stream stream : streams) {
+                    List<Baseline> baselines = cleartool.getBaselines(stream,
+                            baselineLevelThreshold, false);
+                    if (!baselines.isEmpty()) {
+                        return baselines.get(0);
+                    }
+                }
+                return null;
+            }
+            return findBaselineConcurrently(streams, inOrder);
+        } catch (ClearToolError e) {
+            /* a child stream may have been removed */
+            ChildStreamCache.getInstance().invalidate(view.getStream());
+            throw e;
+        }
+    }
+
+    private Baseline findBaselineConcurrently(List<Stream> streams, boolean inOrder)
+            throws IOException, InterruptedException, ClearToolError
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, streams.size()), THREAD_FACTORY);
+        try {
+            CompletionService<List<Baseline>> completion =
+                    new ExecutorCompletionService<List<Baseline>>(executor);
+            List<Future<List<Baseline>>> futures = new ArrayList<Future<List<Baseline>>>();
+            for (final Stream stream : streams) {
+                futures.add(completion.submit(new Callable<List<Baseline>>() {
+                    @Override
+                    public List<Baseline> call() throws Exception {
+                        return cleartool.getBaselines(stream, baselineLevelThreshold, false);
+                    }
+                }));
+            }
+
+            boolean[] done = new boolean[futures.size()];
+            /* the first stream whose baselines are not known yet */
+            int next = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<List<Baseline>> future = completion.take();
+                done[futures.indexOf(future)] = true;
+                if (!inOrder) {
+                    try {
+                        if (!future.get().isEmpty()) {
+                            return future.get().get(0);
+                        }
+                    } catch (ExecutionException e) {
+                        /* raised below if no child stream has a baseline */
+                    }
+                }
+                while (inOrder && next < futures.size() && done[next]) {
+                    List<Baseline> baselines = get(futures.get(next++));
+                    if (!baselines.isEmpty()) {
+                        return baselines.get(0);
+                    }
+                }
+            }
+            /* raises the error of the first child stream that failed, if any */
+            for (Future<List<Baseline>> future : futures) {
+                get(future);
+            }
+            return null;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Baseline> get(Future<List<Baseline>> future) throws IOException,
+            InterruptedException, ClearToolError
+    {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t instanceof InterruptedException) {
+                throw (InterruptedException) t;
+            } else if (t instanceof ClearToolError) {
+                throw (ClearToolError) t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else {
+                throw new IOException(t);
             }
         }
-        return deliveredBaseline;
     }
 
     @Override
-    public boolean pollChanges(Date time, View view, List<String> branchNames,
-            List<String> viewPaths) throws IOException, InterruptedException, ClearToolError
+    public boolean pollChanges(ClearCaseRevisionState baseline, ClearCaseRevisionState remote,
+            View view, List<String> branchNames, List<String> viewPaths) throws IOException,
+            InterruptedException, ClearToolError
     {
-        return findBaseline(view) != null;
+        return findBaseline(view, false) != null;
     }
 
     @Override
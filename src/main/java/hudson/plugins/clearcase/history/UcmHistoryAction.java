@@ -65,6 +65,8 @@ public class UcmHistoryAction extends HistoryAction {
         HistoryFormatHandler.NAME_ELEMENTNAME
     };
 
+    /* levels of contributing activities listed below the integration activities */
+    private static final int RECURSION_DEPTH = 3;
    
 
     private HistoryFormatHandler historyHandler = new HistoryFormatHandler(HISTORY_FORMAT);
@@ -112,10 +114,27 @@ public class UcmHistoryAction extends HistoryAction {
             activity.getFiles().add(currentFile);
         }
 
+        /* all the lsactivity commands are run first, in batches, then the tree is assembled */
+        List<String> activityNames = new ArrayList<String>();
+        for (UcmActivity activity : activities) {
+            activityNames.add(activity.getName());
+        }
+        ActivityResolver resolver = new ActivityResolver(cleartool, view, parallelism);
+        if (activityCache != null) {
+            resolver.setCache(activityCache, activityCacheMaxAge);
+        }
+        try {
+            resolver.resolve(activityNames, RECURSION_DEPTH);
+        } finally {
+            if (activityCache != null) {
+                activityCache.save();
+            }
+        }
+
         try {
             for (UcmActivity activity : activities) {
-                int recursionDepth = 3;
-                callLsActivity(activityMap, activity, view, recursionDepth);
+                int recursionDepth = RECURSION_DEPTH;
+                callLsActivity(resolver, activityMap, activity, recursionDepth);
             }
         } catch (ClearToolError e) {
             /* empty by design */
@@ -124,12 +143,11 @@ public class UcmHistoryAction extends HistoryAction {
         return new UcmChangeLogSet(build, activities);
     }
 
-    private void callLsActivity(Map<String,UcmActivity> activityMap, UcmActivity activity,
-                                View view, int recursionDepth) 
+    private void callLsActivity(ActivityResolver resolver, Map<String,UcmActivity> activityMap, 
+                                UcmActivity activity, int recursionDepth) 
             throws IOException, InterruptedException, ClearToolError 
     {
-        HistoryFormatHandler handler = new HistoryFormatHandler(ACTIVITY_FORMAT);
-        UcmActivity act = cleartool.lsactivity(activity.getName(), handler, view);
+        UcmActivity act = resolver.lsactivity(activity.getName());
         
         if (act != null) {
             activity.setHeadline(act.getHeadline());
@@ -146,7 +164,7 @@ public class UcmHistoryAction extends HistoryAction {
                     if (cachedActivity ==null) {
                         subActivity = new UcmActivity();
                         subActivity.setName(contributing);
-                        callLsActivity(activityMap, subActivity, view, --recursionDepth);
+                        callLsActivity(resolver, activityMap, subActivity, --recursionDepth);
                         activityMap.put(contributing, subActivity);
                     } else {
                         /* do deep copy */
@@ -1,20 +1,30 @@
 package hudson.plugins.clearcase.objects;
 
+import hudson.plugins.clearcase.util.StringPool;
 import hudson.plugins.clearcase.util.Tools;
 import hudson.scm.EditType;
 
 import java.util.Date;
 
+/**
+ * A version in a changelog entry.
+ *
+ * The strings are pooled with {@link StringPool}. The name and the version are kept as a pooled
+ * directory (or branch) and a pooled last segment, so that the files of the same directory share
+ * it.
+ */
 public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
 
     /**************
      *** FIELDS ***
      **************/
     
-    private String name = "";
+    private String nameDirectory = null;
+    private String nameLeaf = "";
     private Date date = null;
     private String dateStr = "";
-    private String version = "";
+    private String versionBranch = null;
+    private String versionLeaf = "";
     private String action = "";
     private String operation = "checkin";
     private String event = "";
@@ -44,7 +54,7 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
 
     @Override
     public String getPath() {
-        return this.name;
+        return getName();
     }
     
     /*************************
@@ -52,11 +62,12 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
      *************************/
 
     public String getName() {
-        return name;
+        return join(nameDirectory, nameLeaf);
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.nameDirectory = directory(name);
+        this.nameLeaf = leaf(name);
     }
 
     public Date getDate() {
@@ -76,7 +87,9 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
     
     public String getDateStr() {
         if (date != null) {
-            return ClearCaseChangeLogEntry.OUTPUT_FORMAT.format(date);
+            synchronized (ClearCaseChangeLogEntry.OUTPUT_FORMAT) {
+                return ClearCaseChangeLogEntry.OUTPUT_FORMAT.format(date);
+            }
         } else {
             return dateStr;
         }
@@ -88,15 +101,16 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
         } catch (Exception e) {
             /* pass */
         }
-        this.dateStr = dateStr;
+        this.dateStr = StringPool.intern(dateStr);
     }
     
     public String getVersion() {
-        return version;
+        return join(versionBranch, versionLeaf);
     }
 
     public void setVersion(String version) {
-        this.version = version;
+        this.versionBranch = directory(version);
+        this.versionLeaf = leaf(version);
     }
 
     public String getAction() {
@@ -104,7 +118,7 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
     }
 
     public void setAction(String action) {
-        this.action = action;
+        this.action = StringPool.intern(action);
     }
 
     public String getOperation() {
@@ -112,7 +126,7 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
     }
 
     public void setOperation(String operation) {
-        this.operation = operation;
+        this.operation = StringPool.intern(operation);
     }
 
     public String getEvent() {
@@ -120,7 +134,7 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
     }
 
     public void setEvent(String event) {
-        this.event = event;
+        this.event = StringPool.intern(event);
     }
 
     public String getComment() {
@@ -128,6 +142,32 @@ public class AffectedFile implements hudson.scm.ChangeLogSet.AffectedFile {
     }
 
     public void setComment(String comment) {
-        this.comment = comment;
+        this.comment = StringPool.intern(comment);
+    }
+
+    /***********************
+     *** UTILITY METHODS ***
+     ***********************/
+
+    /**
+     * @return the path up to its last separator included, null if it has none
+     */
+    private static String directory(String path) {
+        if (path == null) {
+            return null;
+        }
+        int sep = StringPool.lastSeparator(path);
+        return sep < 0 ? null : StringPool.intern(path.substring(0, sep + 1));
+    }
+
+    private static String leaf(String path) {
+        if (path == null) {
+            return null;
+        }
+        return StringPool.intern(path.substring(StringPool.lastSeparator(path) + 1));
+    }
+
+    private static String join(String directory, String leaf) {
+        return directory == null ? leaf : directory + leaf;
     }
 }
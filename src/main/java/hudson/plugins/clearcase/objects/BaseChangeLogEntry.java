@@ -24,6 +24,8 @@
  */
 package hudson.plugins.clearcase.objects;
 
+import hudson.plugins.clearcase.util.StringPool;
+
 
 /**
  * ClearCase change log entry.
@@ -72,6 +74,6 @@ public class BaseChangeLogEntry extends ClearCaseChangeLogEntry {
     }
 
     public void setComment(String comment) {
-        this.comment = comment;
+        this.comment = StringPool.intern(comment);
     }
 }
@@ -1,6 +1,7 @@
 package hudson.plugins.clearcase.objects;
 
 import hudson.model.User;
+import hudson.plugins.clearcase.util.StringPool;
 import hudson.plugins.clearcase.util.Tools;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.ChangeLogSet.Entry;
@@ -96,7 +97,7 @@ public abstract class ClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     }
 
     public void setUser(String user) {
-        this.user = user;
+        this.user = StringPool.intern(user);
     }
 
     public List<AffectedFile> getFiles() {
@@ -128,7 +129,9 @@ public abstract class ClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     
     public String getDateStr() {
         if (date != null) {
-            return OUTPUT_FORMAT.format(date);
+            synchronized (OUTPUT_FORMAT) {
+                return OUTPUT_FORMAT.format(date);
+            }
         } else {
             return dateStr;
         }
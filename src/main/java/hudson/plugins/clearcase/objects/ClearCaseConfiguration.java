@@ -15,14 +15,16 @@ public final class ClearCaseConfiguration {
     private final String stgloc;
     private final int changeLogMergeTimeWindow;
     private final int ccCmdDelay;
+    private final int lsHistoryParallelism;
     
     @DataBoundConstructor
-    public ClearCaseConfiguration(String name, String cleartoolExe, String stgloc, int changeLogMergeTimeWindow, int ccCmdDelay) {
+    public ClearCaseConfiguration(String name, String cleartoolExe, String stgloc, int changeLogMergeTimeWindow, int ccCmdDelay, int lsHistoryParallelism) {
         this.name = name;
         this.cleartoolExe = cleartoolExe;
         this.stgloc = stgloc;
         this.changeLogMergeTimeWindow = changeLogMergeTimeWindow;
         this.ccCmdDelay = ccCmdDelay;
+        this.lsHistoryParallelism = lsHistoryParallelism;
     }
 
     public String getName() {
@@ -45,4 +47,12 @@ public final class ClearCaseConfiguration {
         return ccCmdDelay;
     }
 
+    /**
+     * @return how many lshistory commands may run at the same time, at least 1. The
+     *         configurations saved before this setting existed get 1.
+     */
+    public int getLsHistoryParallelism() {
+        return Math.max(1, lsHistoryParallelism);
+    }
+
 }
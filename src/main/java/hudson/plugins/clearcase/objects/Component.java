@@ -1,12 +1,15 @@
 package hudson.plugins.clearcase.objects;
 
+import java.io.Serializable;
 
-public class Component {
+public class Component implements Serializable {
 
     /*******************************
      **** FIELDS *******************
      *******************************/
     
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private String pvob;
     private String rootPath;
@@ -24,6 +24,8 @@ public class ConfigSpec {
 
     private static final Pattern LOAD_RULE_PATTERN = Pattern.compile("^\\s*load\\s+(.+)\\s*$",
             Pattern.MULTILINE);
+    private static final Pattern INCLUDE_RULE_PATTERN = Pattern.compile("^\\s*include\\s+\\S",
+            Pattern.MULTILINE);
     /*
      * This regular expression is quite tricky. It matches any config spec line that contains a
      * "LATEST" and allows to isolate any existing "-time XXXXXXXXX" rule.
@@ -89,6 +91,14 @@ public class ConfigSpec {
         value = LOAD_RULE_PATTERN.matcher(value).replaceAll("").trim();
     }
 
+    /**
+     * @return true if the config spec includes other files, which are only read again when the
+     *         config spec is set
+     */
+    public boolean hasIncludeRules() {
+        return INCLUDE_RULE_PATTERN.matcher(value).find();
+    }
+
     public boolean loadRulesDiffer(List<String> loadRules) {
         List<String> thisLoadRules = extractLoadRules();
         for (String loadRule : thisLoadRules) {
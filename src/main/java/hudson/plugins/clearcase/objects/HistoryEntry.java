@@ -24,20 +24,38 @@
  */
 package hudson.plugins.clearcase.objects;
 
+import hudson.plugins.clearcase.util.StringPool;
+
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
  * An instance of this class represents a line in the lshistory output
+ *
+ * The strings are pooled with {@link StringPool}, the entries of a large history repeat the same
+ * users, events, operations, activities and elements.
  */
 public class HistoryEntry {
     
+    /**
+     * Not thread safe, the lshistory dates are decoded by
+     * {@link hudson.plugins.clearcase.cleartool.HistoryDateDecoder}.
+     */
     public static final SimpleDateFormat LSHISTORY_DATE_FORMAT = 
                                                         new SimpleDateFormat("yyyyMMdd.HHmmss");
 
-    private static final SimpleDateFormat OUTPUT_DATE_FORMAT = 
-                                                        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    /* SimpleDateFormat is not thread safe, one per thread */
+    private static final ThreadLocal<SimpleDateFormat> OUTPUT_DATE_FORMAT = 
+                                                        new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        }
+    };
+
     Date date;
+    /* getDateText() formatted on first use */
+    String dateText;
     String element;
     String versionId;
     String event;
@@ -53,7 +71,7 @@ public class HistoryEntry {
     }
 
     public void setComment(String comment) {
-        this.comment = comment;
+        this.comment = StringPool.intern(comment);
     }
     
     public String getActivityHeadline() {
@@ -61,7 +79,7 @@ public class HistoryEntry {
     }
 
     public void setActivityHeadline(String activityHeadline) {
-        this.activityHeadline = activityHeadline;
+        this.activityHeadline = StringPool.intern(activityHeadline);
     }
 
     public String getActivityName() {
@@ -69,12 +87,17 @@ public class HistoryEntry {
     }
 
     public void setActivityName(String activityName) {
-        this.activityName = activityName;
+        this.activityName = StringPool.intern(activityName);
     }
     
 
     public String getDateText() {
-        return OUTPUT_DATE_FORMAT.format(date);
+        String text = dateText;
+        if (text == null && date != null) {
+            text = OUTPUT_DATE_FORMAT.get().format(date);
+            dateText = text;
+        }
+        return text;
     }
     
     public Date getDate() {
@@ -83,6 +106,7 @@ public class HistoryEntry {
     
     public void setDate(Date date) {
         this.date = date;
+        this.dateText = null;
     }
 
     public String getElement() {
@@ -90,7 +114,7 @@ public class HistoryEntry {
     }
 
     public void setElement(String element) {
-        this.element = element;
+        this.element = StringPool.intern(element);
     }
 
     public String getEvent() {
@@ -98,7 +122,7 @@ public class HistoryEntry {
     }
 
     public void setEvent(String event) {
-        this.event = event;
+        this.event = StringPool.intern(event);
     }
 
     public String getLine() {
@@ -114,7 +138,7 @@ public class HistoryEntry {
     }
 
     public void setOperation(String operation) {
-        this.operation = operation;
+        this.operation = StringPool.intern(operation);
     }
 
     public String getVersionId() {
@@ -122,7 +146,7 @@ public class HistoryEntry {
     }
 
     public void setVersionId(String versionId) {
-        this.versionId = versionId;
+        this.versionId = StringPool.intern(versionId);
     }
 
 
@@ -132,7 +156,7 @@ public class HistoryEntry {
     }
 
     public void setUser(String user) {
-        this.user = user;
+        this.user = StringPool.intern(user);
     }
 
 
@@ -146,17 +170,24 @@ public class HistoryEntry {
             return false;
         }
         final HistoryEntry other = (HistoryEntry) obj;
-        if ((this.line == null) ? (other.line != null) : !this.line.equals(other.line)) {
-            return false;
-        }
-        return true;
+        /* the fields of the lshistory line, which is no longer kept */
+        return equal(this.date, other.date) && equal(this.user, other.user)
+                && equal(this.element, other.element) && equal(this.versionId, other.versionId)
+                && equal(this.event, other.event) && equal(this.operation, other.operation)
+                && equal(this.activityName, other.activityName);
     }
 
     @Override
     public int hashCode() {
         int hash = 5;
-        hash = 17 * hash + (this.line != null ? this.line.hashCode() : 0);
+        hash = 17 * hash + (this.date != null ? this.date.hashCode() : 0);
+        hash = 17 * hash + (this.element != null ? this.element.hashCode() : 0);
+        hash = 17 * hash + (this.versionId != null ? this.versionId.hashCode() : 0);
         return hash;
     }
 
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
 }
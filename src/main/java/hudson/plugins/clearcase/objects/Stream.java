@@ -1,9 +1,10 @@
 package hudson.plugins.clearcase.objects;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Stream {
+public class Stream implements Serializable {
 
     public enum LockState {
         UNLOCKED, LOCKED, OBSOLETE, NONE;
@@ -21,6 +22,8 @@ public class Stream {
      **** FIELDS *******************
      *******************************/
     
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private String pvob;
     private LockState lockState;
@@ -24,12 +24,14 @@
  */
 package hudson.plugins.clearcase.objects;
 
+import hudson.plugins.clearcase.util.StringPool;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 /**
- * Changelog entry for UCM ClearCase
+ * Changelog entry for UCM ClearCase. The strings are pooled with {@link StringPool}.
  *
  * @author Henrik L. Hansen
  */
@@ -129,7 +131,7 @@ public class UcmActivity extends ClearCaseChangeLogEntry {
     }
 
     public void setHeadline(String headline) {
-        this.headline = headline;
+        this.headline = StringPool.intern(headline);
     }
 
     public String getName() {
@@ -137,7 +139,7 @@ public class UcmActivity extends ClearCaseChangeLogEntry {
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = StringPool.intern(name);
     }
 
     public String getStream() {
@@ -145,7 +147,7 @@ public class UcmActivity extends ClearCaseChangeLogEntry {
     }
 
     public void setStream(String stream) {
-        this.stream = stream;
+        this.stream = StringPool.intern(stream);
     }
 
     public List<UcmActivity> getSubActivities() {
@@ -153,7 +155,7 @@ public class UcmActivity extends ClearCaseChangeLogEntry {
     }
 
     public void setComment(String comment) {
-        this.comment = comment;
+        this.comment = StringPool.intern(comment);
     }
 
     public String getComment() {
@@ -164,7 +166,7 @@ public class UcmActivity extends ClearCaseChangeLogEntry {
     }
 
     public void setContribActivitiesStr(String contribActivitiesStr) {
-        this.contribActivitiesStr = contribActivitiesStr;
+        this.contribActivitiesStr = StringPool.intern(contribActivitiesStr);
     }
 
 }
@@ -1,11 +1,15 @@
 package hudson.plugins.clearcase.objects;
 
-public class View {
+import java.io.Serializable;
+
+public class View implements Serializable {
 
     /*******************************
      **** FIELDS *******************
      *******************************/
     
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private Stream stream;
     private String viewPath;
@@ -0,0 +1,34 @@
+package hudson.plugins.clearcase.trigger;
+
+import hudson.model.Cause;
+
+/**
+ * A build started by an event of a ClearCase trigger.
+ */
+public class ClearCaseTriggerCause extends Cause {
+
+    private final String event;
+
+    public ClearCaseTriggerCause(TriggerEvent event) {
+        this.event = event.toString();
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    @Override
+    public String getShortDescription() {
+        return "Started by a ClearCase trigger: " + event;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClearCaseTriggerCause && event.equals(((ClearCaseTriggerCause) o).event);
+    }
+
+    @Override
+    public int hashCode() {
+        return event.hashCode();
+    }
+}
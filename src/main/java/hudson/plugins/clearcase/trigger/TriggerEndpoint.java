@@ -0,0 +1,137 @@
+package hudson.plugins.clearcase.trigger;
+
+import hudson.Extension;
+import hudson.model.UnprotectedRootAction;
+import hudson.plugins.clearcase.ClearCaseBaseSCM;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.Secret;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Receives the events of the ClearCase postop triggers at <tt>JENKINS_URL/clearcase-trigger/notify</tt>.
+ * The CLEARCASE_* variables of the trigger are POSTed as request parameters, with the trigger
+ * token of the global configuration, e.g.
+ * 
+ * <pre>
+ * curl -d token=$TOKEN -d CLEARCASE_OP_KIND=$CLEARCASE_OP_KIND -d CLEARCASE_PN=$CLEARCASE_PN ... \
+ *      JENKINS_URL/clearcase-trigger/notify
+ * </pre>
+ * 
+ * The endpoint only exists if enabled in the global configuration. The requests without the
+ * token are rejected; since a forged request cannot know it, the token also replaces the crumb of
+ * the CSRF protection.
+ */
+@Extension
+public class TriggerEndpoint implements UnprotectedRootAction {
+
+    public static final String URL_NAME = "clearcase-trigger";
+
+    static final String TOKEN_PARAMETER = "token";
+
+    private static final Logger LOGGER = Logger.getLogger(TriggerEndpoint.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        if (!ClearCaseBaseSCM.BASE_DESCRIPTOR.isAcceptTriggerEvents()) {
+            return null;
+        }
+        return URL_NAME;
+    }
+
+    @RequirePOST
+    public void doNotify(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        if (!ClearCaseBaseSCM.BASE_DESCRIPTOR.isAcceptTriggerEvents()) {
+            rsp.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        String token = Secret.toString(ClearCaseBaseSCM.BASE_DESCRIPTOR.getTriggerToken());
+        if (!isValidToken(token, req.getParameter(TOKEN_PARAMETER))) {
+            rsp.sendError(StaplerResponse.SC_FORBIDDEN);
+            return;
+        }
+        Map<String, String> variables = new HashMap<String, String>();
+        for (Object name : req.getParameterMap().keySet()) {
+            if (!TOKEN_PARAMETER.equals(name)) {
+                variables.put((String) name, req.getParameter((String) name));
+            }
+        }
+        TriggerEvent event = new TriggerEvent(variables, new Date());
+        if (!event.isValid()) {
+            rsp.sendError(StaplerResponse.SC_BAD_REQUEST, "The operation kind and the branch "
+                    + "or stream of the event are required.");
+            return;
+        }
+        List<String> scheduled = TriggerEventDispatcher.dispatch(event);
+        LOGGER.fine(event + " scheduled " + scheduled);
+
+        /* the jobs are not listed to the caller, who is not authenticated */
+        rsp.setContentType("text/plain;charset=UTF-8");
+        rsp.getWriter().println("Accepted " + event);
+    }
+
+    /**
+     * Compares the token of a request to the configured one in a time that does not depend on
+     * where they differ.
+     *
+     * @param expected
+     *            the configured token, empty if none: then no token is valid
+     */
+    static boolean isValidToken(String expected, String actual) {
+        if (expected == null || expected.length() == 0 || actual == null) {
+            return false;
+        }
+        byte[] a = expected.getBytes(UTF_8);
+        byte[] b = actual.getBytes(UTF_8);
+        int diff = a.length ^ b.length;
+        for (int i = 0; i < b.length; i++) {
+            diff |= a[i % a.length] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Lets the triggers POST their events without a crumb, the token authenticates them.
+     */
+    @Extension
+    public static class TriggerCrumbExclusion extends CrumbExclusion {
+
+        @Override
+        public boolean process(HttpServletRequest req, HttpServletResponse rsp, FilterChain chain)
+                throws IOException, ServletException
+        {
+            String path = req.getPathInfo();
+            if (path != null && path.equals("/" + URL_NAME + "/notify")) {
+                chain.doFilter(req, rsp);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package hudson.plugins.clearcase.trigger;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An operation reported by a ClearCase <tt>mktrtype -postop</tt> trigger, e.g. a checkin, a
+ * deliver or a baseline creation.
+ *
+ * The event is made of the environment variables that ClearCase passes to the trigger scripts
+ * (<tt>CLEARCASE_OP_KIND</tt>, <tt>CLEARCASE_PN</tt>, <tt>CLEARCASE_ID_STR</tt>,
+ * <tt>CLEARCASE_BRTYPE</tt>, <tt>CLEARCASE_STREAM</tt>, ...), so that a trigger script only has
+ * to forward them.
+ */
+public class TriggerEvent {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    public static final String OP_KIND = "CLEARCASE_OP_KIND";
+    public static final String PATH = "CLEARCASE_PN";
+    public static final String VERSION_ID = "CLEARCASE_ID_STR";
+    public static final String BRANCH_TYPE = "CLEARCASE_BRTYPE";
+    public static final String STREAM = "CLEARCASE_STREAM";
+    public static final String USER = "CLEARCASE_USER";
+    public static final String ACTIVITY = "CLEARCASE_ACTIVITY";
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final Map<String, String> variables;
+    private final Date date;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    /**
+     * @param variables
+     *            the CLEARCASE_* variables of the trigger, the others are ignored
+     * @param date
+     *            the date at which the event was received
+     */
+    public TriggerEvent(Map<String, String> variables, Date date) {
+        Map<String, String> vars = new HashMap<String, String>();
+        for (Map.Entry<String, String> e : variables.entrySet()) {
+            String value = e.getValue() != null ? e.getValue().trim() : "";
+            if (e.getKey().startsWith("CLEARCASE_") && value.length() > 0) {
+                vars.put(e.getKey(), value);
+            }
+        }
+        this.variables = Collections.unmodifiableMap(vars);
+        this.date = date;
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return true if the event has enough information to be matched against the jobs
+     */
+    public boolean isValid() {
+        return getOperationKind() != null && !getBranchNames().isEmpty();
+    }
+
+    /**
+     * @return the branches and streams on which the operation was made. The branch is taken from
+     *         the branch type, the stream selector and the version identifier of the event.
+     */
+    public Set<String> getBranchNames() {
+        Set<String> branches = new LinkedHashSet<String>();
+        String branchType = variables.get(BRANCH_TYPE);
+        if (branchType != null) {
+            branches.add(branchType);
+        }
+        String stream = variables.get(STREAM);
+        if (stream != null) {
+            if (stream.startsWith("stream:")) {
+                stream = stream.substring("stream:".length());
+            }
+            int at = stream.indexOf('@');
+            if (at > 0) {
+                stream = stream.substring(0, at);
+            }
+            branches.add(stream);
+        }
+        String versionId = getVersionId();
+        if (versionId != null) {
+            /* /main/dev/3 -> dev */
+            String[] parts = versionId.split("[/\\\\]");
+            if (parts.length >= 2 && parts[parts.length - 2].length() > 0) {
+                branches.add(parts[parts.length - 2]);
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * @return true if the event concerns an element, false for the events on streams or
+     *         baselines
+     */
+    public boolean hasElement() {
+        return getPath() != null;
+    }
+
+    /**
+     * Converts the event to a history entry so that it can be checked with the filters of a job.
+     */
+    public HistoryEntry toHistoryEntry() {
+        HistoryEntry entry = new HistoryEntry();
+        entry.setDate(date);
+        entry.setElement(getPath() != null ? getPath() : "");
+        entry.setVersionId(getVersionId() != null ? getVersionId() : "");
+        entry.setEvent("checkin".equals(getOperationKind()) ? "create version" : getOperationKind());
+        entry.setOperation(getOperationKind());
+        entry.setUser(variables.get(USER) != null ? variables.get(USER) : "");
+        entry.setActivityName(variables.get(ACTIVITY));
+        entry.setComment("");
+        return entry;
+    }
+
+    public String getOperationKind() {
+        return variables.get(OP_KIND);
+    }
+
+    public String getPath() {
+        return variables.get(PATH);
+    }
+
+    public String getVersionId() {
+        return variables.get(VERSION_ID);
+    }
+
+    public String getUser() {
+        return variables.get(USER);
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.valueOf(getOperationKind()));
+        if (getPath() != null) {
+            sb.append(" of ").append(getPath());
+            if (getVersionId() != null) {
+                sb.append("@@").append(getVersionId());
+            }
+        } else if (variables.get(STREAM) != null) {
+            sb.append(" on ").append(variables.get(STREAM));
+        }
+        if (getUser() != null) {
+            sb.append(" by ").append(getUser());
+        }
+        return sb.toString();
+    }
+}
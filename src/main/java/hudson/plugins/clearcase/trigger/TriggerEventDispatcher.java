@@ -0,0 +1,82 @@
+package hudson.plugins.clearcase.trigger;
+
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.plugins.clearcase.AbstractClearCaseSCM;
+import hudson.scm.SCM;
+import hudson.security.ACL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+/**
+ * Schedules the builds of the jobs affected by a {@link TriggerEvent}, see
+ * {@link AbstractClearCaseSCM#isAffectedBy(AbstractProject, TriggerEvent)}.
+ */
+public class TriggerEventDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(TriggerEventDispatcher.class.getName());
+
+    private TriggerEventDispatcher() {
+    }
+
+    /**
+     * Matches the event against all the jobs as SYSTEM: the events received over HTTP come from
+     * an anonymous request, which cannot read the jobs of a secured Jenkins. The caller must
+     * have authenticated the event.
+     * 
+     * @return the names of the jobs whose build was scheduled
+     */
+    public static List<String> dispatch(TriggerEvent event) {
+        return dispatch(event, Hudson.getInstance());
+    }
+
+    @SuppressWarnings("rawtypes")
+    static List<String> dispatch(TriggerEvent event, Hudson hudson) {
+        List<String> scheduled = new ArrayList<String>();
+        if (!event.isValid()) {
+            LOGGER.warning("Ignoring incomplete ClearCase trigger event: " + event);
+            return scheduled;
+        }
+        SecurityContext previous = ACL.impersonate(ACL.SYSTEM);
+        try {
+            dispatch(event, hudson.getAllItems(AbstractProject.class), scheduled);
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+        LOGGER.fine(event + " scheduled " + scheduled);
+        return scheduled;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void dispatch(TriggerEvent event, List<AbstractProject> projects,
+            List<String> scheduled)
+    {
+        for (AbstractProject project : projects) {
+            SCM scm = project.getScm();
+            if (!(scm instanceof AbstractClearCaseSCM) || project.isDisabled()) {
+                continue;
+            }
+            try {
+                if (((AbstractClearCaseSCM) scm).isAffectedBy(project, event)
+                        && project.scheduleBuild(project.getQuietPeriod(),
+                                new ClearCaseTriggerCause(event)))
+                {
+                    scheduled.add(project.getFullName());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                /* a misconfigured job must not prevent the others from being triggered */
+                LOGGER.log(Level.WARNING, "Could not match " + event + " against "
+                        + project.getFullName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package hudson.plugins.clearcase.trigger;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearCaseBaseSCM;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watches a spool directory in which the ClearCase postop triggers drop their events, one
+ * <tt>.event</tt> file per event with the CLEARCASE_* variables of the trigger, e.g.
+ * 
+ * <pre>
+ * env | grep '^CLEARCASE_' &gt; $SPOOL/$$.tmp &amp;&amp; mv $SPOOL/$$.tmp $SPOOL/$$.event
+ * </pre>
+ * 
+ * The files are processed in the order of their names and deleted. The directory is only watched
+ * if configured in the global configuration.
+ */
+@Extension
+public class TriggerSpool extends AsyncPeriodicWork {
+
+    private static final long RECURRENCE_PERIOD = 10 * 1000L;
+
+    private static final FileFilter EVENT_FILES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.isFile() && file.getName().endsWith(".event");
+        }
+    };
+
+    public TriggerSpool() {
+        super("ClearCase trigger spool");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        String spoolDir = ClearCaseBaseSCM.BASE_DESCRIPTOR.getTriggerSpoolDir();
+        if (!ClearCaseBaseSCM.BASE_DESCRIPTOR.isAcceptTriggerEvents() || spoolDir == null) {
+            return;
+        }
+        File[] files = new File(spoolDir).listFiles(EVENT_FILES);
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            TriggerEvent event = read(file);
+            if (!file.delete()) {
+                listener.error("Could not delete " + file + ", it will be read again.");
+            }
+            if (event != null) {
+                List<String> scheduled = TriggerEventDispatcher.dispatch(event);
+                listener.getLogger().println(event + " scheduled " + scheduled);
+            } else {
+                listener.error("Could not read " + file);
+            }
+        }
+    }
+
+    /**
+     * Reads the <tt>NAME=value</tt> lines of an event file. The values are not unescaped as in a
+     * properties file, so that the Windows paths are kept as is.
+     */
+    private static TriggerEvent read(File file) {
+        Map<String, String> variables = new HashMap<String, String>();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int eq = line.indexOf('=');
+                    if (eq > 0) {
+                        variables.put(line.substring(0, eq).trim(), line.substring(eq + 1));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new TriggerEvent(variables, new Date(file.lastModified()));
+    }
+}
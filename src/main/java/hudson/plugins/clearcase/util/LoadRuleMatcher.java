@@ -0,0 +1,202 @@
+package hudson.plugins.clearcase.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches paths against a set of load rules (or component roots) in time linear in the length of
+ * the path, whatever the number of rules.
+ *
+ * The rules are stored in a trie whose nodes are linked to their longest proper suffix that is
+ * also a prefix of a rule (Aho-Corasick), so that {@link #isContainedIn(String)} finds any rule
+ * occurring in the path in a single pass. {@link #isPrefixOf(String)} only walks the trie from
+ * its root.
+ *
+ * The separators are normalized while walking, '\' and '/' are the same character for the
+ * matcher. The rules are matched literally.
+ */
+public class LoadRuleMatcher {
+
+    /*******************************
+     **** FIELDS *******************
+     *******************************/
+
+    private final Node root = new Node();
+    private final boolean matchAll;
+    private final boolean emptyRule;
+    private final int size;
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    /**
+     * @param rules
+     *            the load rules. The empty ones are ignored by {@link #isContainedIn(String)}:
+     *            if all of them are empty, every path matches, as with
+     *            {@link Tools#createFileFilterPattern(List, boolean)}. For
+     *            {@link #isPrefixOf(String)}, an empty rule is a prefix of every path.
+     */
+    public LoadRuleMatcher(Collection<String> rules) {
+        int count = 0;
+        boolean empty = false;
+        for (String rule : rules) {
+            if (rule != null && rule.length() > 0) {
+                insert(rule);
+                count++;
+            } else if (rule != null) {
+                empty = true;
+            }
+        }
+        this.size = count;
+        this.matchAll = count == 0;
+        this.emptyRule = empty;
+        link();
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return true if one of the rules occurs anywhere in the path, as the unanchored
+     *         <tt>find()</tt> of the regular expression built by
+     *         {@link Tools#createFileFilterPattern(List, boolean)}
+     */
+    public boolean isContainedIn(String path) {
+        if (matchAll) {
+            return true;
+        }
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            char c = normalize(path.charAt(i));
+            Node next = node.child(c);
+            while (next == null && node != root) {
+                node = node.fail;
+                next = node.child(c);
+            }
+            node = next != null ? next : root;
+            if (node.output) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the path starts with one of the rules, always true if one of the rules is
+     *         empty, e.g. the root of a rootless component
+     */
+    public boolean isPrefixOf(String path) {
+        if (matchAll || emptyRule) {
+            return true;
+        }
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.child(normalize(path.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of non-empty rules
+     */
+    public int size() {
+        return size;
+    }
+
+    private void insert(String rule) {
+        Node node = root;
+        for (int i = 0; i < rule.length(); i++) {
+            char c = normalize(rule.charAt(i));
+            Node next = node.child(c);
+            if (next == null) {
+                next = node.addChild(c);
+            }
+            node = next;
+        }
+        node.terminal = true;
+        node.output = true;
+    }
+
+    /**
+     * Computes the suffix links breadth first, a node matches if it ends a rule or if its suffix
+     * does.
+     */
+    private void link() {
+        List<Node> level = new ArrayList<Node>();
+        for (int i = 0; i < root.size; i++) {
+            root.children[i].fail = root;
+            level.add(root.children[i]);
+        }
+        while (!level.isEmpty()) {
+            List<Node> nextLevel = new ArrayList<Node>();
+            for (Node node : level) {
+                for (int i = 0; i < node.size; i++) {
+                    char c = node.keys[i];
+                    Node child = node.children[i];
+                    Node fail = node.fail;
+                    while (fail.child(c) == null && fail != root) {
+                        fail = fail.fail;
+                    }
+                    Node target = fail.child(c);
+                    child.fail = target != null ? target : root;
+                    child.output |= child.fail.output;
+                    nextLevel.add(child);
+                }
+            }
+            level = nextLevel;
+        }
+    }
+
+    private static char normalize(char c) {
+        return c == '\\' ? '/' : c;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    private static class Node {
+        /* the paths have few distinct characters per position, a linear scan is enough */
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int size = 0;
+        Node fail;
+        boolean terminal = false;
+        boolean output = false;
+
+        Node child(char c) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            if (size == keys.length) {
+                int capacity = Math.max(2, size * 2);
+                char[] newKeys = new char[capacity];
+                Node[] newChildren = new Node[capacity];
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(children, 0, newChildren, 0, size);
+                keys = newKeys;
+                children = newChildren;
+            }
+            Node child = new Node();
+            keys[size] = c;
+            children[size] = child;
+            size++;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package hudson.plugins.clearcase.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical copies of the strings that large histories repeat over and over: user names, events,
+ * operations, activity names, comments, directories of the elements...
+ *
+ * Unlike {@link String#intern()}, the pool holds its strings weakly and does not fill the
+ * permanent generation, a string is dropped once no history or changelog entry refers to it. The
+ * pooled copies are compact: a field cut from a long cleartool output line does not retain the
+ * whole line.
+ *
+ * The pool is split in stripes so that the lshistory shards parsed in parallel rarely wait for
+ * each other.
+ */
+public final class StringPool {
+
+    /*******************************
+     **** CONSTANTS ****************
+     *******************************/
+
+    private static final Stripe[] STRIPES = new Stripe[16];
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new Stripe();
+        }
+    }
+
+    /*******************************
+     **** CONSTRUCTOR **************
+     *******************************/
+
+    private StringPool() {
+    }
+
+    /*******************************
+     **** METHODS ******************
+     *******************************/
+
+    /**
+     * @return the pooled string equal to <tt>s</tt>, null if <tt>s</tt> is null
+     */
+    public static String intern(String s) {
+        if (s == null || s.length() == 0) {
+            return s == null ? null : "";
+        }
+        int hash = s.hashCode();
+        Stripe stripe = STRIPES[(hash ^ (hash >>> 16)) & (STRIPES.length - 1)];
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.strings.get(s);
+            String pooled = ref != null ? ref.get() : null;
+            if (pooled == null) {
+                pooled = new String(s);
+                stripe.strings.put(pooled, new WeakReference<String>(pooled));
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * @return the index of the last '/' or '\' of the path, -1 if there is none
+     */
+    public static int lastSeparator(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    }
+
+    /**
+     * @return the number of strings currently pooled
+     */
+    public static int size() {
+        int size = 0;
+        for (Stripe stripe : STRIPES) {
+            synchronized (stripe) {
+                size += stripe.strings.size();
+            }
+        }
+        return size;
+    }
+
+    /*******************************
+     **** INNER TYPES **************
+     *******************************/
+
+    private static class Stripe {
+        /* the value refers to the key weakly, so that the key can be collected */
+        final Map<String, WeakReference<String>> strings =
+                new WeakHashMap<String, WeakReference<String>>();
+    }
+}
@@ -35,10 +35,13 @@ public class Tools {
 
     public static Date parseDate(String dateStr) throws ParseException {
         for (DateFormat format : DATE_FORMATS) {
-            try {
-                return format.parse(dateStr);
-            } catch (ParseException e) {
-                /* pass */
+            /* the formats are shared, DateFormat is not thread safe */
+            synchronized (format) {
+                try {
+                    return format.parse(dateStr);
+                } catch (ParseException e) {
+                    /* pass */
+                }
             }
         }
         throw new ParseException(dateStr + " couldn't be parsed", 0);
@@ -46,7 +49,10 @@ public class Tools {
 
     public static String formatCleartoolDate(Date date) {
         int offset = TimeZone.getDefault().getOffset(date.getTime()) / MILLISECS_IN_ONE_HOUR;
-        String dateStr = CLEARTOOL_DATE_FORMAT.format(date).toLowerCase();
+        String dateStr;
+        synchronized (CLEARTOOL_DATE_FORMAT) {
+            dateStr = CLEARTOOL_DATE_FORMAT.format(date).toLowerCase();
+        }
         dateStr += String.format("UTC%+d", offset);
         return dateStr;
     }
@@ -101,6 +107,11 @@ public class Tools {
         return sb.toString();
     }
 
+    /**
+     * Joins the load rules into one regular expression. The rules are not quoted: '.' and the
+     * other metacharacters they contain are interpreted by the regular expression. The history
+     * filters use a {@link LoadRuleMatcher} instead, which matches the rules literally.
+     */
     public static String createFileFilterPattern(List<String> loadRules, boolean windows) {
         StringBuilder pattern = new StringBuilder("(");
 
@@ -0,0 +1,35 @@
+package hudson.plugins.clearcase;
+
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.FilePath;
+import hudson.model.Hudson;
+import hudson.model.Node;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class ClearCaseBaseSCMDescriptorTest {
+
+    @Test
+    public void resolvePollingNodeTest() throws Exception {
+        Hudson hudson = mock(Hudson.class);
+        when(hudson.getRootPath()).thenReturn(new FilePath(new File("/jenkins")));
+        Node online = mock(Node.class);
+        when(online.getRootPath()).thenReturn(new FilePath(new File("/node")));
+        /* the root path of a node without channel is null */
+        Node offline = mock(Node.class);
+        when(hudson.getNode("online")).thenReturn(online);
+        when(hudson.getNode("offline")).thenReturn(offline);
+
+        /* the master polls if no node is configured */
+        assertSame(hudson, ClearCaseBaseSCMDescriptor.resolvePollingNode(hudson, null));
+        assertSame(online, ClearCaseBaseSCMDescriptor.resolvePollingNode(hudson, "online"));
+        assertNull(ClearCaseBaseSCMDescriptor.resolvePollingNode(hudson, "offline"));
+        assertNull(ClearCaseBaseSCMDescriptor.resolvePollingNode(hudson, "removed"));
+    }
+}
@@ -5,6 +5,7 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Functions;
 import hudson.plugins.clearcase.changelog.UcmChangeLogParser;
+import hudson.plugins.clearcase.objects.View;
 import hudson.plugins.clearcase.util.Tools;
 
 import java.io.File;
@@ -19,16 +20,24 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest( { Functions.class, Tools.class })
+@SuppressStaticInitializationFor("hudson.plugins.clearcase.ClearCaseBaseSCM")
 public class ClearCaseUcmSCMTest {
 
     private static ClearCaseUcmSCM scm;
+    private static ClearCaseBaseSCMDescriptor descriptor;
 
     @BeforeClass
     public static void setUp() {
+        /* the global configuration is loaded from the Jenkins home */
+        descriptor = Mockito.mock(ClearCaseBaseSCMDescriptor.class);
+        Whitebox.setInternalState(ClearCaseBaseSCM.class, "BASE_DESCRIPTOR", descriptor);
+
         String viewName = "${USER} ${MACHINE} hudson";
         String mkviewOptionalParam = "-stgloc storage1";
         boolean filteringOutDestroySubBranchEvent = true;
@@ -157,4 +166,56 @@ public class ClearCaseUcmSCMTest {
         Assert.assertEquals(list, scm.getViewPaths(workspace));
     }
 
+    @Test
+    public void requiresWorkspaceForPollingTest() throws Exception {
+        ClearCaseUcmSCM snapshot = new ClearCaseUcmSCM("viewName", null, false, false, null,
+                null, false, "/view", 0, null, false, "", "stream@/vobtag");
+        ClearCaseUcmSCM dynamic = new ClearCaseUcmSCM("viewName", null, false, false, null,
+                null, true, "/view", 0, null, false, "", "stream@/vobtag");
+        try {
+            Assert.assertTrue(dynamic.requiresWorkspaceForPolling());
+
+            when(descriptor.isPollWithoutWorkspace()).thenReturn(true);
+            Assert.assertFalse(dynamic.requiresWorkspaceForPolling());
+            /* without polling view tag, a snapshot view is polled in the workspace */
+            Assert.assertTrue(snapshot.requiresWorkspaceForPolling());
+
+            when(descriptor.getPollingViewTag()).thenReturn("polling_view");
+            Assert.assertFalse(snapshot.requiresWorkspaceForPolling());
+        } finally {
+            Mockito.reset(descriptor);
+        }
+    }
+
+    @Test
+    public void createPollingViewTest() throws Exception {
+        FilePath nodeRoot = new FilePath(new File("/path/to/node"));
+
+        PowerMockito.mockStatic(Tools.class);
+        when(Tools.isWindows(nodeRoot)).thenReturn(false);
+        when(Tools.convertPathForOS(Mockito.anyString(), Mockito.anyBoolean()))
+                .thenCallRealMethod();
+
+        ClearCaseUcmSCM snapshot = new ClearCaseUcmSCM("viewName", null, false, false, null,
+                null, false, "/view/", 0, null, false, "", "stream@/vobtag");
+        snapshot.setEnv(new EnvVars());
+        /* without polling view tag, the caller reads the view of the last build */
+        Assert.assertNull(snapshot.createPollingView(nodeRoot, "build_view", null));
+
+        View view = snapshot.createPollingView(nodeRoot, "build_view", "polling_view");
+        Assert.assertEquals("polling_view", view.getName());
+        Assert.assertTrue(view.isDynamic());
+        Assert.assertEquals(new FilePath(new File("/view")).child("polling_view").getRemote(),
+                view.getViewPath());
+
+        /* a dynamic view is read through its own tag */
+        ClearCaseUcmSCM dynamic = new ClearCaseUcmSCM("viewName", null, false, false, null,
+                null, true, "/view/", 0, null, false, "", "stream@/vobtag");
+        dynamic.setEnv(new EnvVars());
+        view = dynamic.createPollingView(nodeRoot, "build_view", null);
+        Assert.assertEquals("build_view", view.getName());
+        Assert.assertEquals(new FilePath(new File("/view")).child("build_view").getRemote(),
+                view.getViewPath());
+    }
+
 }
@@ -0,0 +1,124 @@
+package hudson.plugins.clearcase.checkout;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.cleartool.CTLauncher;
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeCheckoutTest {
+
+    private File workspace;
+    private File logFile;
+    private ClearTool cleartool;
+    private ByteArrayOutputStream console;
+    private TaskListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("cleartool", ".log");
+        workspace = new File(logFile.getParentFile(), logFile.getName() + ".ws");
+        workspace.mkdirs();
+
+        CTLauncher launcher = mock(CTLauncher.class);
+        when(launcher.getExecutable()).thenReturn("cleartool");
+        when(launcher.getNodeRoot()).thenReturn(new FilePath(workspace));
+        cleartool = mock(ClearTool.class);
+        when(cleartool.getLauncher()).thenReturn(launcher);
+        when(cleartool.getEnv()).thenReturn(new EnvVars());
+        when(cleartool.getLogFile()).thenReturn(logFile);
+
+        console = new ByteArrayOutputStream();
+        listener = mock(TaskListener.class);
+        when(listener.getLogger()).thenReturn(new PrintStream(console, true));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        logFile.delete();
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    /**
+     * Logs a command and fails, with the cleartool of the node.
+     */
+    private static class FailingAction extends CheckoutAction implements NodeCheckable {
+        private static final long serialVersionUID = 1L;
+        ClearTool controllerCleartool;
+        FilePath nodeWorkspace = null;
+
+        FailingAction(ClearTool cleartool, ClearCaseLogger logger) {
+            super(cleartool, logger, new View("view_tag"), null, null, true, 0);
+            this.controllerCleartool = cleartool;
+        }
+
+        @SuppressWarnings("rawtypes")
+        @Override
+        public boolean checkout(AbstractBuild build, TaskListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean checkoutOnNode(FilePath workspace) throws IOException,
+                InterruptedException, ClearToolError
+        {
+            assertNotSame(controllerCleartool, cleartool);
+            nodeWorkspace = workspace;
+            logger.log("Updating view...");
+            cleartool.getLauncher().log(new ArgumentListBuilder("update"), "Loading files");
+            throw new ClearToolError("update failed");
+        }
+    }
+
+    @Test
+    public void checkoutTest() throws Exception {
+        FailingAction action = new FailingAction(cleartool, new ClearCaseLogger(listener,
+                logFile));
+        assertTrue(action.isNodeCheckoutSupported());
+        try {
+            NodeCheckout.checkout(action, new FilePath(workspace), listener, false);
+            fail("the error of the checkout must be raised");
+        } catch (ClearToolError e) {
+            assertEquals("update failed", e.getMessage());
+        }
+        assertEquals(workspace.getPath(), action.nodeWorkspace.getRemote());
+
+        // the messages are printed once the checkout is over
+        assertTrue(console.toString().contains("[ClearCase] Updating view..."));
+        // the cleartool log of the node is added to the log of the build
+        String log = FileUtils.readFileToString(logFile);
+        assertTrue(log.contains("[ClearCase] Updating view..."));
+        assertTrue(log.contains(">>> cleartool update\nLoading files"));
+    }
+
+    @Test
+    public void notSupportedTest() {
+        /* the view pool stays on the controller */
+        FailingAction pooled = new FailingAction(cleartool, null);
+        pooled.setViewPool(new ViewPool(new File(workspace, ViewPool.FILE_NAME)), 1, 0);
+        assertFalse(pooled.isNodeCheckoutSupported());
+    }
+}
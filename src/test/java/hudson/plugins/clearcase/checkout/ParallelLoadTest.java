@@ -0,0 +1,94 @@
+package hudson.plugins.clearcase.checkout;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelLoadTest {
+
+    private ClearTool cleartool;
+    private ClearCaseLogger logger;
+    private List<String> messages;
+    private View view;
+
+    @Before
+    public void setUp() {
+        cleartool = mock(ClearTool.class);
+        messages = new ArrayList<String>();
+        logger = new ClearCaseLogger(mock(TaskListener.class), null) {
+            @Override
+            public void log(String message) {
+                messages.add(message);
+            }
+        };
+        view = new View("view_tag");
+    }
+
+    @Test
+    public void partitionTest() {
+        ParallelLoad load = new ParallelLoad(cleartool, logger, 2);
+        List<List<String>> partitions = load.partition(Arrays.asList("vob/a/sub", "vob/b",
+                "vob/a", "vob/ab", "vob/c"));
+        /* a load rule under another one stays with it */
+        assertEquals(2, partitions.size());
+        assertEquals(Arrays.asList("vob/a/sub", "vob/a", "vob/ab"), partitions.get(0));
+        assertEquals(Arrays.asList("vob/b", "vob/c"), partitions.get(1));
+
+        partitions = new ParallelLoad(cleartool, logger, 8).partition(Arrays.asList("vob\\a",
+                "vob\\a\\sub"));
+        assertEquals(1, partitions.size());
+    }
+
+    @Test
+    public void loadTest() throws Exception {
+        List<String> first = Arrays.asList("vob/a");
+        List<String> second = Arrays.asList("vob/b");
+        when(cleartool.update(view, first)).thenReturn(
+                "Done loading \"/vob/a\" (12 objects, copied 1 KB).\n");
+        when(cleartool.update(view, second)).thenReturn(
+                "Done loading \"/vob/b\" (30 objects, copied 4 KB).\n");
+
+        new ParallelLoad(cleartool, logger, 4).load(view, Arrays.asList("vob/a", "vob/b"));
+        verify(cleartool).update(eq(view), eq(first));
+        verify(cleartool).update(eq(view), eq(second));
+        assertTrue(messages.get(messages.size() - 1).startsWith(
+                "Loaded 42 objects in 2 partitions"));
+    }
+
+    @Test
+    public void loadErrorTest() throws Exception {
+        List<String> first = Arrays.asList("vob/a");
+        List<String> second = Arrays.asList("vob/b");
+        when(cleartool.update(view, first)).thenThrow(new ClearToolError("no space"));
+        when(cleartool.update(view, second)).thenReturn("");
+
+        try {
+            new ParallelLoad(cleartool, logger, 2).load(view, Arrays.asList("vob/a", "vob/b"));
+            fail("the error of the first partition must be raised");
+        } catch (ClearToolError e) {
+            assertEquals("no space", e.getMessage());
+        }
+        /* the other partitions are still updated and reported */
+        verify(cleartool).update(eq(view), eq(second));
+        assertTrue(messages.contains("Partition 2 [vob/b]: done in 0s"));
+        assertTrue(messages.get(messages.size() - 1).startsWith(
+                "Load failed for 1 of 2 partitions"));
+    }
+}
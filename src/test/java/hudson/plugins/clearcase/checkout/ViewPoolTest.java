@@ -0,0 +1,114 @@
+package hudson.plugins.clearcase.checkout;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import hudson.FilePath;
+import hudson.plugins.clearcase.checkout.ViewPool.PooledView;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ViewPoolTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private File file;
+    private FilePath poolDir;
+    private String key;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("viewpool", ".xml");
+        file.delete();
+        poolDir = new FilePath(new File(file.getParentFile(), ViewPool.POOL_DIR));
+        key = ViewPool.key("int_stream@/pvob", Arrays.asList("vobs/b", "vobs/a"));
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void keyTest() {
+        assertEquals("int_stream@/pvob\nvobs/a\nvobs/b", key);
+        assertEquals(key, ViewPool.key("int_stream@/pvob\n", Arrays.asList("vobs/a", "vobs/b")));
+    }
+
+    @Test
+    public void isPooledPathTest() {
+        assertTrue(ViewPool.isPooledPath("/home/jenkins/clearcase-view-pool/ccpool_1"));
+        assertTrue(ViewPool.isPooledPath("D:\\jenkins\\clearcase-view-pool\\ccpool_1"));
+        assertFalse(ViewPool.isPooledPath("/home/jenkins/workspace/job/view"));
+        assertFalse(ViewPool.isPooledPath(null));
+    }
+
+    @Test
+    public void leaseTest() {
+        ViewPool pool = new ViewPool(file);
+        PooledView first = pool.add("node", key, poolDir, "job#1");
+        PooledView second = pool.add("node", key, poolDir, "job#2");
+        assertNotSame(first.tag, second.tag);
+        assertTrue(first.tag.startsWith("ccpool_node_"));
+        assertEquals(poolDir.child(first.tag).getRemote(), first.path);
+
+        /* both views are leased */
+        assertNull(pool.lease("node", key, "job#3"));
+
+        pool.release("job#1");
+        assertNull(pool.lease("other", key, "job#3"));
+        assertNull(pool.lease("node", "other", "job#3"));
+        assertSame(first, pool.lease("node", key, "job#3"));
+        assertTrue(pool.contains(first.tag));
+
+        pool.discard(first);
+        assertFalse(pool.contains(first.tag));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void evictTest() throws Exception {
+        ViewPool pool = new ViewPool(file);
+        PooledView[] views = new PooledView[4];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = pool.add("node", key, poolDir, "job#" + i);
+        }
+        pool.add("other", key, poolDir, "job#1");
+        for (int i = 0; i < 3; i++) {
+            pool.release("job#" + i);
+            Thread.sleep(5);
+        }
+
+        /* the least recently released idle views beyond the size are evicted */
+        List<PooledView> evicted = pool.evict("node", 2, HOUR);
+        assertEquals(Arrays.asList(views[0]), evicted);
+        assertEquals(4, pool.size());
+
+        /* the leased views are never evicted */
+        Thread.sleep(5);
+        evicted = pool.evict("node", 2, 1);
+        assertEquals(2, evicted.size());
+        assertTrue(pool.contains(views[3].tag));
+    }
+
+    @Test
+    public void persistenceTest() {
+        ViewPool pool = new ViewPool(file);
+        PooledView view = pool.add("node", key, poolDir, "job#1");
+
+        /* the leases are lost with the builds on restart */
+        ViewPool reloaded = new ViewPool(file);
+        assertEquals(1, reloaded.size());
+        assertEquals(view.path, reloaded.lease("node", key, "job#2").path);
+    }
+}
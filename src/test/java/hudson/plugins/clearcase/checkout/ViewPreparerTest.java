@@ -0,0 +1,135 @@
+package hudson.plugins.clearcase.checkout;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import hudson.model.AbstractProject;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.log.ClearCaseLogger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ViewPreparerTest {
+
+    private static final String ID = ViewPreparer.id("node", "view");
+
+    private ScheduledExecutorService executor;
+    private ViewPreparer preparer;
+    private AbstractProject<?, ?> project;
+    private ClearCaseLogger logger;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(2);
+        preparer = new ViewPreparer(executor);
+        project = mock(AbstractProject.class);
+        TaskListener listener = mock(TaskListener.class);
+        logger = new ClearCaseLogger(listener, null) {
+            @Override
+            public void log(String message) {
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A preparation that runs until it is released or interrupted.
+     */
+    private static class BlockingTask implements Runnable {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final AtomicBoolean ended = new AtomicBoolean(false);
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            ended.set(true);
+        }
+    }
+
+    @Test
+    public void checkoutWaitsForStartedPreparationTest() throws Exception {
+        final BlockingTask task = new BlockingTask();
+        assertTrue(preparer.schedule(project, ID, task, 0));
+        assertTrue(task.started.await(5, TimeUnit.SECONDS));
+
+        Thread release = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.release.countDown();
+            }
+        };
+        release.start();
+        preparer.beginCheckout(ID, logger);
+        /* the checkout starts once the preparation ended */
+        assertTrue(task.ended.get());
+        assertFalse(task.interrupted.get());
+        preparer.endCheckout(ID);
+    }
+
+    @Test
+    public void checkoutCancelsScheduledPreparationTest() throws Exception {
+        BlockingTask task = new BlockingTask();
+        assertTrue(preparer.schedule(project, ID, task, 60));
+        preparer.beginCheckout(ID, logger);
+        assertFalse(preparer.isScheduled(ID));
+        preparer.endCheckout(ID);
+        assertEquals(1, task.started.getCount());
+    }
+
+    @Test
+    public void noPreparationDuringCheckoutTest() throws Exception {
+        preparer.beginCheckout(ID, logger);
+        assertFalse(preparer.schedule(project, ID, new BlockingTask(), 0));
+        /* other views can be prepared */
+        assertTrue(preparer.schedule(project, ViewPreparer.id("other", "view"),
+                new BlockingTask(), 60));
+        preparer.endCheckout(ID);
+        assertTrue(preparer.schedule(project, ID, new BlockingTask(), 60));
+        assertFalse(preparer.schedule(project, ID, new BlockingTask(), 60));
+    }
+
+    @Test
+    public void cancelTest() throws Exception {
+        BlockingTask scheduled = new BlockingTask();
+        preparer.schedule(project, ID, scheduled, 60);
+        preparer.cancel(project, false);
+        assertFalse(preparer.isScheduled(ID));
+
+        BlockingTask started = new BlockingTask();
+        preparer.schedule(project, ID, started, 0);
+        assertTrue(started.started.await(5, TimeUnit.SECONDS));
+        /* a started preparation is only interrupted if the build was cancelled */
+        preparer.cancel(project, false);
+        assertTrue(preparer.isScheduled(ID));
+        preparer.cancel(project, true);
+        preparer.beginCheckout(ID, logger);
+        assertTrue(started.interrupted.get());
+        assertEquals(1, scheduled.started.getCount());
+    }
+}
@@ -0,0 +1,208 @@
+package hudson.plugins.clearcase.cleartool;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.plugins.clearcase.cleartool.CTSession.SessionDiedException;
+import hudson.plugins.clearcase.util.ClearToolError;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CTSessionTest {
+
+    private static final String DIR = new File(".").getAbsolutePath();
+
+    /**
+     * Answers each command line as "cleartool -status" does: its output after the prompt, then
+     * the status line.
+     */
+    private static class FakeCleartool extends Proc {
+        final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+        final Map<String, String> outputs = new HashMap<String, String>();
+        /* the process dies once it has read this command */
+        String dieOn = null;
+        boolean stdinClosed = false;
+        private final PipedInputStream stdout = new PipedInputStream();
+        private final PipedOutputStream toStdout;
+        private int count = 0;
+
+        FakeCleartool() throws IOException {
+            toStdout = new PipedOutputStream(stdout);
+        }
+
+        private void answer(String command) throws IOException {
+            if (command.equals("quit")) {
+                return;
+            }
+            commands.add(command);
+            if (command.equals(dieOn)) {
+                toStdout.close();
+                return;
+            }
+            count++;
+            String output = outputs.get(command);
+            int status = command.startsWith("fail") ? 1 : 0;
+            toStdout.write(("cleartool> " + (output == null ? "" : output) + "Command " + count
+                    + " returned status " + status + "\n").getBytes());
+            toStdout.flush();
+        }
+
+        @Override
+        public OutputStream getStdin() {
+            return new OutputStream() {
+                private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+                @Override
+                public void write(int b) throws IOException {
+                    if (stdinClosed) {
+                        throw new IOException("Broken pipe");
+                    }
+                    if (b == '\n') {
+                        answer(line.toString());
+                        line.reset();
+                    } else {
+                        line.write(b);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream getStdout() {
+            return stdout;
+        }
+
+        @Override
+        public InputStream getStderr() {
+            return null;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void kill() throws IOException {
+            toStdout.close();
+        }
+
+        @Override
+        public int join() {
+            return 0;
+        }
+    }
+
+    @Test
+    public void quoteTest() throws Exception {
+        assertEquals("lshistory", CTSession.quote("lshistory"));
+        assertEquals("\"\"", CTSession.quote(""));
+        assertEquals("\"path with spaces\"", CTSession.quote("path with spaces"));
+        assertEquals("'\\\"%Nd\\\" \\n'", CTSession.quote("\\\"%Nd\\\" \\n"));
+        assertEquals("\"it's\"", CTSession.quote("it's"));
+        assertNull(CTSession.quote("both \" and '"));
+        assertNull(CTSession.quote("line\nbreak"));
+    }
+
+    @Test
+    public void executeTest() throws Exception {
+        FakeCleartool cleartool = new FakeCleartool();
+        cleartool.outputs.put("lsview -s \"a view\"", "a view\ncleartool> other\n");
+        CTSession session = new CTSession(cleartool, DIR);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, session.execute(new String[] { "lsview", "-s", "a view" }, out));
+        /* the prompts are stripped, the status line is not part of the output */
+        assertEquals("a view\nother\n", out.toString());
+
+        out.reset();
+        assertEquals(1, session.execute(new String[] { "fail" }, out));
+        assertEquals("", out.toString());
+        assertTrue(session.accepts(new String[] { "pwd" }));
+    }
+
+    @Test
+    public void changeDirTest() throws Exception {
+        FakeCleartool cleartool = new FakeCleartool();
+        CTSession session = new CTSession(cleartool, DIR);
+
+        assertTrue(session.changeDir(new FilePath(new File(DIR))));
+        assertTrue(cleartool.commands.isEmpty());
+        assertTrue(session.changeDir(new FilePath(new File("/tmp/a dir"))));
+        assertEquals("cd \"" + new File("/tmp/a dir").getPath() + "\"", cleartool.commands.get(0));
+    }
+
+    @Test
+    public void diedAfterSendTest() throws Exception {
+        FakeCleartool cleartool = new FakeCleartool();
+        cleartool.dieOn = "mkview -tag v";
+        CTSession session = new CTSession(cleartool, DIR);
+
+        try {
+            session.execute(new String[] { "mkview", "-tag", "v" }, new ByteArrayOutputStream());
+            fail("the death of the session must be raised");
+        } catch (SessionDiedException e) {
+            assertTrue(e.isCommandSent());
+        }
+        assertFalse(session.accepts(new String[] { "pwd" }));
+    }
+
+    @Test
+    public void diedBeforeSendTest() throws Exception {
+        FakeCleartool cleartool = new FakeCleartool();
+        cleartool.stdinClosed = true;
+        CTSession session = new CTSession(cleartool, DIR);
+
+        try {
+            session.execute(new String[] { "mkview", "-tag", "v" }, new ByteArrayOutputStream());
+            fail("the death of the session must be raised");
+        } catch (SessionDiedException e) {
+            assertFalse(e.isCommandSent());
+        }
+        assertTrue(cleartool.commands.isEmpty());
+    }
+
+    @Test
+    public void launcherDoesNotRunAgainTest() throws Exception {
+        FakeCleartool cleartool = new FakeCleartool();
+        cleartool.dieOn = "mkview -tag v";
+        Launcher launcher = mock(Launcher.class);
+        CTLauncher ctLauncher = new CTLauncher("cleartool", null, new FilePath(new File(DIR)),
+                new EnvVars(), null, launcher);
+        ctLauncher.attachSession(new CTSession(cleartool, DIR));
+
+        try {
+            ctLauncher.run(new ArgumentListBuilder("mkview", "-tag", "v"), null);
+            fail("the death of the session must be raised");
+        } catch (ClearToolError e) {
+            assertEquals("cleartool mkview -tag v", e.getCommandLine());
+        }
+        /* the command may have run, it is not forked again */
+        verify(launcher, never()).launch();
+        assertEquals(1, cleartool.commands.size());
+    }
+}
@@ -4,13 +4,16 @@ import static hudson.plugins.clearcase.cleartool.HistoryFormatHandler.COMMENT;
 import static hudson.plugins.clearcase.cleartool.HistoryFormatHandler.LINEEND;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import hudson.EnvVars;
@@ -20,6 +23,7 @@ import hudson.plugins.clearcase.objects.Baseline;
 import hudson.plugins.clearcase.objects.Baseline.PromotionLevel;
 import hudson.plugins.clearcase.objects.Component;
 import hudson.plugins.clearcase.objects.CompositeComponent;
+import hudson.plugins.clearcase.objects.ConfigSpec;
 import hudson.plugins.clearcase.objects.HistoryEntry;
 import hudson.plugins.clearcase.objects.Stream;
 import hudson.plugins.clearcase.objects.Stream.LockState;
@@ -38,8 +42,11 @@ import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 import org.hamcrest.Description;
@@ -47,6 +54,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareOnlyThisForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -119,6 +128,21 @@ public class ClearToolTest {
         verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace));
     }
 
+    @Test
+    public void mkviewWithViewPathTest() throws Exception {
+        View v = new View("viewName", null, false);
+        v.setViewPath("/pool/viewName");
+        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
+                ctResult("mkview"));
+
+        ct.mkview(v, null, null);
+
+        // verify command line
+        ArgumentListBuilder args = new ArgumentListBuilder("mkview", "-snapshot", "-ptime", "-tag",
+                v.getName(), "/pool/viewName");
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace));
+    }
+
     @Test
     public void mkviewDynamicUcmWithStglocTest() throws Exception {
         Stream stream = new Stream("stream@/vobtag");
@@ -543,8 +567,7 @@ public class ClearToolTest {
 
     @Test
     public void lsHistoryUcmTest() throws Exception {
-        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
-                ctResult("lshistory_ucm"));
+        streamCtResult("lshistory_ucm");
 
         // test setup
         View v = new View("viewName", new Stream("stream@vobtag"), false);
@@ -570,7 +593,8 @@ public class ClearToolTest {
         for (String path : lookupPaths) {
             args.add(path);
         }
-        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())));
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())),
+                any(CTLauncher.LineHandler.class));
 
         assertEquals(5, entries.size());
         assertEquals("user", entries.get(0).getUser());
@@ -582,10 +606,33 @@ public class ClearToolTest {
         assertEquals("deliver.devbranch.20101018.120019", entries.get(2).getActivityName());
     }
 
+    @Test
+    public void lsHistoryStopTest() throws Exception {
+        streamCtResult("lshistory_ucm");
+
+        View v = new View("viewName", new Stream("stream@vobtag"), false);
+        HistoryFormatHandler formatHandler = new HistoryFormatHandler(
+                UcmHistoryAction.HISTORY_FORMAT);
+        final List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+        LsHistoryParser parser = new LsHistoryParser(formatHandler, "/extended/view/path") {
+            @Override
+            protected boolean entryCompleted(HistoryEntry entry) {
+                entries.add(entry);
+                return !entry.getElement().endsWith("/file2");
+            }
+        };
+
+        ct.lshistory(parser, new Date(0), v, "branch", new ArrayList<String>());
+
+        assertTrue(parser.isStopped());
+        assertEquals(2, entries.size());
+        assertEquals("/vobs/vob/component/path/file2", entries.get(1).getElement());
+        assertTrue(parser.getEntries().isEmpty());
+    }
+
     @Test
     public void lsIntegActivityTest() throws Exception {
-        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
-                ctResult("lsactivity"));
+        streamCtResult("lsactivity");
         // test setup
         View v = new View("viewName", new Stream("stream@vobtag"), false);
         HistoryFormatHandler formatHandler = new HistoryFormatHandler(
@@ -597,7 +644,8 @@ public class ClearToolTest {
         // verify command line
         ArgumentListBuilder args = new ArgumentListBuilder("lsactivity", "-fmt", fmt_ccase,
                 activityName);
-        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())));
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())),
+                any(CTLauncher.LineHandler.class));
 
         assertEquals("user", actual.getUser());
         assertEquals("activity1 activity2 activity3", actual.getContribActivitiesStr());
@@ -608,8 +656,7 @@ public class ClearToolTest {
 
     @Test
     public void lsNormalActivityTest() throws Exception {
-        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
-                ctResult("lsactivity_normal"));
+        streamCtResult("lsactivity_normal");
         // test setup
         View v = new View("viewName", new Stream("stream@vobtag"), false);
         HistoryFormatHandler formatHandler = new HistoryFormatHandler(
@@ -621,7 +668,8 @@ public class ClearToolTest {
         // verify command line
         ArgumentListBuilder args = new ArgumentListBuilder("lsactivity", "-fmt", fmt_ccase,
                 activityName);
-        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())));
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())),
+                any(CTLauncher.LineHandler.class));
 
         assertEquals("user", actual.getUser());
         assertEquals("", actual.getContribActivitiesStr());
@@ -630,6 +678,73 @@ public class ClearToolTest {
         assertEquals("", actual.getComment());
     }
 
+    @Test
+    public void lsActivityBatchTest() throws Exception {
+        streamCtResult("lsactivity_batch");
+        // test setup
+        View v = new View("viewName", new Stream("stream@vobtag"), false);
+        HistoryFormatHandler formatHandler = new HistoryFormatHandler(
+                UcmHistoryAction.ACTIVITY_FORMAT);
+        String fmt_ccase = formatHandler.getFormat();
+        List<String> activityNames = Arrays.asList("activity1", "activity:activity2@/pvob",
+                "activity3", "activity4");
+
+        Map<String, UcmActivity> actual = ct.lsactivity(activityNames, formatHandler, v);
+        // verify command line
+        ArgumentListBuilder args = new ArgumentListBuilder("lsactivity", "-fmt",
+                "##activity:%En##" + fmt_ccase, "activity1", "activity:activity2@/pvob",
+                "activity3", "activity4");
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(v.getName())),
+                any(CTLauncher.LineHandler.class));
+
+        assertEquals(2, actual.size());
+        assertEquals("activity1 headline", actual.get("activity1").getHeadline());
+        assertEquals("user1", actual.get("activity1").getUser());
+        assertEquals("activity2 headline", actual.get("activity:activity2@/pvob").getHeadline());
+        assertEquals("activity1 activity5", actual.get("activity:activity2@/pvob")
+                .getContribActivitiesStr());
+        /* not found, and cut in two by an error */
+        assertFalse(actual.containsKey("activity3"));
+        assertFalse(actual.containsKey("activity4"));
+    }
+
+    @Test
+    public void getActivitiesChangelogTest() throws Exception {
+        streamCtResult("lsactivity_changelog");
+        // test setup
+        View v = new View("viewName", new Stream("stream@vobtag"), false);
+        v.setViewPath("/view/viewName");
+        List<String> activityNames = Arrays.asList("activity1", "activity2", "activity3",
+                "activity:activity4@/pvob");
+
+        Map<String, UcmActivity> actual = ct.getActivitiesChangelog(activityNames, v);
+        // verify command line
+        ArgumentListBuilder args = new ArgumentListBuilder("lsactivity", "-fmt",
+                "##activity:%En##%[versions]CQp##fields##"
+                        + "\\\"%[headline]p\\\" \\\"%[stream]p\\\" \\\"%u\\\" \\\"%Nc\\\" \\n",
+                "activity1", "activity2", "activity3", "activity:activity4@/pvob");
+        verify(launcher).run(argThat(new IsSameArgs(args)),
+                eq(new FilePath(workspace.getChannel(), "/view/viewName")),
+                any(CTLauncher.LineHandler.class));
+
+        assertEquals(2, actual.size());
+        UcmActivity activity1 = actual.get("activity1");
+        assertEquals("activity1", activity1.getName());
+        assertEquals("activity1 headline", activity1.getHeadline());
+        assertEquals("stream", activity1.getStream());
+        assertEquals("user1", activity1.getUser());
+        assertEquals("comment1", activity1.getComment());
+        assertEquals(2, activity1.getFiles().size());
+        assertEquals("/vob/dir/file1", activity1.getFiles().get(0).getName());
+        assertEquals("/main/dev/3", activity1.getFiles().get(0).getVersion());
+        assertEquals("/vob/dir/file2", activity1.getFiles().get(1).getName());
+        assertEquals("activity4 headline", actual.get("activity:activity4@/pvob").getHeadline());
+        assertTrue(actual.get("activity:activity4@/pvob").getFiles().isEmpty());
+        /* not found, and cut in two by an error */
+        assertFalse(actual.containsKey("activity2"));
+        assertFalse(actual.containsKey("activity3"));
+    }
+
     @Test
     public void catcsTest() throws Exception {
         when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
@@ -657,6 +772,17 @@ public class ClearToolTest {
         ct.setcs(v, configSpec);
     }
 
+    @Test
+    public void setcsWithoutLoadingTest() throws Exception {
+        String configSpec = ctResult("configspec");
+        View v = new View("viewName", false);
+
+        ct.setcsWithoutLoading(v, configSpec);
+
+        // the view is not updated if setcs is run outside of it
+        verify(launcher).run(any(ArgumentListBuilder.class), (FilePath) isNull());
+    }
+
     @Test
     public void getComponentFromBLTest() throws Exception {
         when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
@@ -860,15 +986,15 @@ public class ClearToolTest {
 
     @Test
     public void getViewsFromStreamTest() throws Exception {
-        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
-                ctResult("views_from_stream"));
+        streamCtResult("views_from_stream");
         Stream s = new Stream("stream@vobtag");
         List<View> views = ct.getViewsFromStream(s);
 
         // verify command line
         ArgumentListBuilder args = new ArgumentListBuilder("lsstream", "-fmt", "%[views]p", s
                 .toString());
-        verify(launcher).run(argThat(new IsSameArgs(args)), (FilePath) isNull());
+        verify(launcher).run(argThat(new IsSameArgs(args)), (FilePath) isNull(),
+                any(CTLauncher.LineHandler.class));
 
         assertEquals(5, views.size());
         for (View v : views) {
@@ -914,6 +1040,61 @@ public class ClearToolTest {
         viewDatFile.delete();
     }
 
+    @Test
+    public void readProbeTest() throws Exception {
+        ViewProbe probe = new ViewProbe("view_tag");
+        probe.setFolder(true, "86fa47219e1a11df9917000183dd5c77", null);
+        probe.setOutputs(new String[] { ctResult("view_info"), ctResult("configspec"),
+                "stream:stream@/pvob\n" }, new int[] { 0, 0, 0 });
+
+        ct.readProbe(probe, true);
+
+        // the commands run on the node are only logged
+        ArgumentListBuilder args = new ArgumentListBuilder("lsview", "-l", "-prop", "view_tag");
+        verify(launcher).log(argThat(new IsSameArgs(args)), eq(ctResult("view_info")));
+        verify(launcher, never()).run(any(ArgumentListBuilder.class), any(FilePath.class));
+
+        assertTrue(probe.isRegistered());
+        assertTrue(probe.isExistingView());
+        assertTrue(probe.getViewInfo().isUcm());
+        assertEquals(new Stream("stream@/pvob"), probe.getStream());
+        assertEquals(ctResult("configspec"), probe.getConfigSpec());
+        assertEquals(new ConfigSpec(ctResult("configspec")).extractLoadRules(),
+                probe.getLoadRules());
+    }
+
+    @Test
+    public void readProbeErrorsTest() throws Exception {
+        ViewProbe probe = new ViewProbe("view_tag");
+        probe.setOutputs(new String[] { "cleartool: Error: Unable to contact albd_server\n",
+                "cleartool: Error: Unable to contact albd_server\n", "" }, new int[] { 1, 1, 1 });
+
+        ct.readProbe(probe, true);
+
+        // the view is considered as registered when its server is not reachable
+        assertTrue(probe.isRegistered());
+        assertFalse(probe.isExistingView());
+        assertNull(probe.getConfigSpec());
+        assertNull(probe.getStream());
+    }
+
+    @Test
+    public void readProbeForkedTest() throws Exception {
+        when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenThrow(
+                new ClearToolError("lsview", "cleartool: Error: No matching entries found for "
+                        + "view tag \"view_tag\".", 1, null));
+        ViewProbe probe = new ViewProbe("view_tag");
+
+        // the node could not run the commands
+        ct.readProbe(probe, true);
+
+        ArgumentListBuilder args = new ArgumentListBuilder("lsview", "-l", "-prop", "view_tag");
+        verify(launcher).run(argThat(new IsSameArgs(args)), (FilePath) isNull());
+        // the view does not exist, the other commands are not forked
+        verify(launcher).run(any(ArgumentListBuilder.class), any(FilePath.class));
+        assertFalse(probe.isRegistered());
+    }
+
     @Test
     public void lsStglocTest() throws Exception {
         when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
@@ -994,6 +1175,25 @@ public class ClearToolTest {
         verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(view.getName())));
     }
     
+    @Test
+    public void getCheckoutBranchesTest() throws Exception {
+        streamCtResult("lscheckout_branches");
+
+        View view = new View("viewname");
+        List<String> viewPaths = Arrays.asList("vobs/vob1/comp1", "vobs/vob2/comp2");
+        List<String> branches = Arrays.asList("other", "int", "dev");
+
+        Set<String> actual = ct.getCheckoutBranches(branches, view, viewPaths);
+        ArgumentListBuilder args = new ArgumentListBuilder("lscheckout", "-fmt", "%Vn\\n", "-r",
+                "vobs/vob1/comp1", "vobs/vob2/comp2");
+        verify(launcher).run(argThat(new IsSameArgs(args)), eq(workspace.child(view.getName())),
+                any(CTLauncher.LineHandler.class));
+
+        assertEquals(new HashSet<String>(Arrays.asList("dev", "int")), actual);
+        /* no command without branches */
+        assertTrue(ct.getCheckoutBranches(new ArrayList<String>(), view, null).isEmpty());
+    }
+
     @Test
     public void deliverOkTest() throws Exception {
         when(launcher.run(any(ArgumentListBuilder.class), any(FilePath.class))).thenReturn(
@@ -1037,6 +1237,30 @@ public class ClearToolTest {
         return sb.toString();
     }
 
+    /**
+     * Feeds the content of a result file to the line handler given to
+     * {@link CTLauncher#run(ArgumentListBuilder, FilePath, CTLauncher.LineHandler)}, the same way
+     * the launcher does.
+     */
+    void streamCtResult(final String commandName) throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                CTLauncher.LineHandler handler = (CTLauncher.LineHandler) invocation
+                        .getArguments()[2];
+                CTLauncher.LineDispatcher dispatcher = new CTLauncher.LineDispatcher(handler);
+                dispatcher.write(ctResult(commandName).getBytes());
+                dispatcher.close();
+                dispatcher.rethrowFailure();
+                if (dispatcher.hasErrors()) {
+                    throw new ClearToolError(commandName, dispatcher.getErrors(), 1, null);
+                }
+                return null;
+            }
+        }).when(launcher).run(any(ArgumentListBuilder.class), any(FilePath.class),
+                any(CTLauncher.LineHandler.class));
+    }
+
     static class IsSameArgs extends ArgumentMatcher<ArgumentListBuilder> {
 
         List<String> arg;
@@ -63,6 +63,13 @@ public class ConfigSpecTest {
         assertEquals(loadRules, cs.extractLoadRules());
     }
 
+    @Test
+    public void testHasIncludeRules() {
+        assertFalse(new ConfigSpec(SELECT_RULES + LOAD_RULES).hasIncludeRules());
+        assertTrue(new ConfigSpec("element * CHECKEDOUT\n  include /vobs/cs/common.cs\n"
+                + LOAD_RULES).hasIncludeRules());
+    }
+
     @Test
     public void testLoadRulesDiffer() {
         ConfigSpec cs = new ConfigSpec(SELECT_RULES + LOAD_RULES);
@@ -0,0 +1,55 @@
+package hudson.plugins.clearcase.cleartool;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class HistoryDateDecoderTest {
+
+    private static void assertDecoded(String date) throws Exception {
+        long expected = new SimpleDateFormat("yyyyMMdd.HHmmss").parse(date).getTime();
+        String line = "\"" + date + "\" \"user\"";
+        assertEquals(date, expected, HistoryDateDecoder.getInstance().decode(line, 1, 1 + date.length()));
+    }
+
+    @Test
+    public void testSameAsSimpleDateFormat() throws Exception {
+        assertDecoded("20100324.144301");
+        assertDecoded("20100324.144301");
+        assertDecoded("20100324.144359");
+        assertDecoded("20100324.150000");
+        assertDecoded("20100325.000001");
+        assertDecoded("20101231.235959");
+        assertDecoded("20110101.000000");
+    }
+
+    @Test
+    public void testOffsetChangesDuringTheHour() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            /* half an hour of daylight saving time, ending at 02:00 */
+            TimeZone.setDefault(TimeZone.getTimeZone("Australia/Lord_Howe"));
+            assertDecoded("20100404.012000");
+            assertDecoded("20100404.015537");
+            assertDecoded("20100404.015959");
+            assertDecoded("20100404.020000");
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    public void testOtherFormsUseSimpleDateFormat() throws Exception {
+        assertDecoded("2010324.144301");
+        assertDecoded("20100324.1443011");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testNotADate() throws Exception {
+        HistoryDateDecoder.getInstance().decode("user", 0, 4);
+    }
+}
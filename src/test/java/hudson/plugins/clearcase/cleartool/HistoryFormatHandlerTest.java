@@ -0,0 +1,65 @@
+package hudson.plugins.clearcase.cleartool;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+public class HistoryFormatHandlerTest {
+
+    private static final String[] FORMAT = { HistoryFormatHandler.DATE_NUMERIC,
+            HistoryFormatHandler.USER_ID, HistoryFormatHandler.NAME_ELEMENTNAME,
+            HistoryFormatHandler.NAME_VERSIONID, HistoryFormatHandler.EVENT,
+            HistoryFormatHandler.OPERATION, HistoryFormatHandler.UCM_VERSION_ACTIVITY };
+
+    private static void assertSameAsRegexp(HistoryFormatHandler handler, String line)
+            throws Exception
+    {
+        HistoryEntry scanned = handler.scanHistoryLine(line);
+        Matcher matcher = handler.checkLine(line);
+        if (matcher == null) {
+            assertNull(line, scanned);
+            return;
+        }
+        HistoryEntry parsed = handler.parseHistoryLine(matcher, line);
+        assertNotNull(line, scanned);
+        assertEquals(parsed.getDate(), scanned.getDate());
+        assertEquals(parsed.getUser(), scanned.getUser());
+        assertEquals(parsed.getElement(), scanned.getElement());
+        assertEquals(parsed.getVersionId(), scanned.getVersionId());
+        assertEquals(parsed.getEvent(), scanned.getEvent());
+        assertEquals(parsed.getOperation(), scanned.getOperation());
+        assertEquals(parsed.getActivityName(), scanned.getActivityName());
+    }
+
+    @Test
+    public void scanTest() throws Exception {
+        HistoryFormatHandler handler = new HistoryFormatHandler(FORMAT);
+        String line = "\"20101018.115752\" \"user\" \"/vobs/vob/component/file1\" "
+                + "\"/main/branch/18\" \"create version\" \"checkin\" \"deliver.dev.1\" ";
+
+        HistoryEntry entry = handler.scanHistoryLine(line);
+        assertEquals("user", entry.getUser());
+        assertEquals("/vobs/vob/component/file1", entry.getElement());
+        assertEquals("/main/branch/18", entry.getVersionId());
+        assertEquals("deliver.dev.1", entry.getActivityName());
+
+        assertSameAsRegexp(handler, line);
+        /* empty activity, padded fields, no space between the fields */
+        assertSameAsRegexp(handler, "\"20101018.115752\" \"user\" \" /vobs/a b \" "
+                + "\"/main/1\"\"create version\" \"checkin\" \"\" ");
+        /* a quote in the element falls back to the regular expression */
+        assertSameAsRegexp(handler, "\"20101018.115752\" \"user\" \"/vobs/a\"b\" "
+                + "\"/main/1\" \"create version\" \"checkin\" \"\" ");
+        /* comment lines */
+        assertSameAsRegexp(handler, "a comment");
+        assertSameAsRegexp(handler, "a \"quoted\" comment");
+        assertSameAsRegexp(handler, "\"a\" x \"b\" \"c\" \"d\" \"e\" \"f\" \"g\"");
+        assertSameAsRegexp(handler, "");
+    }
+}
@@ -0,0 +1,110 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+
+import hudson.plugins.clearcase.objects.Stream;
+import hudson.plugins.clearcase.objects.UcmActivity;
+import hudson.plugins.clearcase.objects.View;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActivityCacheTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("activities", ".xml");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static UcmActivity createActivity(String name) {
+        UcmActivity activity = new UcmActivity();
+        activity.setName(name);
+        activity.setHeadline("headline of " + name);
+        activity.setStream("dev_stream");
+        activity.setUser("user");
+        activity.setComment("comment");
+        activity.setContribActivitiesStr("activity:a1@/pvob activity:a2@/pvob");
+        return activity;
+    }
+
+    @Test
+    public void keyTest() {
+        View view = new View("view", new Stream("int_stream", "/pvob"));
+        assertEquals("act@/pvob", ActivityCache.key("act", view));
+        assertEquals("act@/other", ActivityCache.key("act@/other", view));
+        assertEquals("act@/other", ActivityCache.key("activity:act@/other", view));
+        assertNull(ActivityCache.key("act", new View("view")));
+        assertNull(ActivityCache.key("", view));
+    }
+
+    @Test
+    public void getTest() {
+        ActivityCache cache = new ActivityCache(file, 10);
+        cache.put("act@/pvob", createActivity("act"));
+
+        UcmActivity first = cache.get("act@/pvob", DAY);
+        assertEquals("act", first.getName());
+        assertEquals("headline of act", first.getHeadline());
+        assertEquals("dev_stream", first.getStream());
+        assertEquals("user", first.getUser());
+        assertEquals("comment", first.getComment());
+        assertEquals("activity:a1@/pvob activity:a2@/pvob", first.getContribActivitiesStr());
+        assertNotSame(first, cache.get("act@/pvob", DAY));
+        assertNull(cache.get("act@/other", DAY));
+    }
+
+    @Test
+    public void expiryTest() throws Exception {
+        ActivityCache cache = new ActivityCache(file, 10);
+        cache.put("act@/pvob", createActivity("act"));
+        Thread.sleep(10);
+        assertNull(cache.get("act@/pvob", 1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictionTest() {
+        ActivityCache cache = new ActivityCache(file, 2);
+        cache.put("a@/pvob", createActivity("a"));
+        cache.put("b@/pvob", createActivity("b"));
+        /* a is now more recently used than b */
+        cache.get("a@/pvob", DAY);
+        cache.put("c@/pvob", createActivity("c"));
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get("a@/pvob", DAY).getName());
+        assertNull(cache.get("b@/pvob", DAY));
+        assertEquals("c", cache.get("c@/pvob", DAY).getName());
+    }
+
+    @Test
+    public void persistenceTest() {
+        ActivityCache cache = new ActivityCache(file, 10);
+        cache.put("a@/pvob", createActivity("a"));
+        cache.put("b@/pvob", createActivity("b"));
+        cache.invalidate("b@/pvob");
+        cache.save();
+
+        ActivityCache reloaded = new ActivityCache(file, 10);
+        assertEquals(1, reloaded.size());
+        assertEquals("headline of a", reloaded.get("a@/pvob", DAY).getHeadline());
+
+        reloaded.clear();
+        assertEquals(0, new ActivityCache(file, 10).size());
+    }
+}
@@ -0,0 +1,161 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.HistoryFormatHandler;
+import hudson.plugins.clearcase.cleartool.LsHistoryParser;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.plugins.clearcase.objects.View;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ChangeFeedTest {
+
+    private static final long MAX_AGE = 60 * 1000;
+    private static final HistoryFormatHandler FORMAT = new HistoryFormatHandler(
+            HistoryFormatHandler.DATE_NUMERIC, HistoryFormatHandler.USER_ID,
+            HistoryFormatHandler.NAME_ELEMENTNAME, HistoryFormatHandler.NAME_VERSIONID,
+            HistoryFormatHandler.EVENT, HistoryFormatHandler.OPERATION);
+    private static final List<String> LOAD_RULES = Arrays.asList("vobs/vob1/component");
+
+    private ChangeFeed feed;
+    private ClearTool cleartool;
+    private View view;
+    /* the since date of each lshistory command */
+    private final List<Date> fetches = Collections.synchronizedList(new ArrayList<Date>());
+    /* the lshistory commands wait for it */
+    private CountDownLatch release = new CountDownLatch(0);
+
+    @Before
+    public void setUp() throws Exception {
+        feed = new ChangeFeed();
+        cleartool = mock(ClearTool.class);
+        view = new View("view");
+        when(cleartool.lsvob()).thenReturn(Arrays.asList("/vobs/vob1", "/vobs/vob2"));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                LsHistoryParser parser = (LsHistoryParser) args[0];
+                fetches.add((Date) args[1]);
+                assertEquals(Arrays.asList("vobs/vob1"), args[4]);
+                release.await();
+                parser.handle(line("20101018.115752", "file1"));
+                parser.handle(line("20101015.090000", "file2"));
+                parser.finish();
+                return null;
+            }
+        }).when(cleartool).lshistory(any(LsHistoryParser.class), any(Date.class), any(View.class),
+                anyString(), anyListOf(String.class));
+    }
+
+    private static String line(String date, String element) {
+        return "\"" + date + "\" \"user\" \"/view/vobs/vob1/component/" + element
+                + "\" \"/main/branch/1\" \"create version\" \"checkin\" ";
+    }
+
+    private static Date date(int year, int month, int day) {
+        return new Date(year - 1900, month - 1, day);
+    }
+
+    private List<HistoryEntry> getEntries(Date since) throws Exception {
+        return feed.getEntries(cleartool, view, FORMAT, "", "/view/", "branch", LOAD_RULES,
+                since, MAX_AGE, 1);
+    }
+
+    @Test
+    public void cacheHitTest() throws Exception {
+        assertEquals(2, getEntries(date(2010, 10, 1)).size());
+        assertEquals(1, fetches.size());
+
+        /* a later date is answered by the cache and filtered */
+        List<HistoryEntry> entries = getEntries(date(2010, 10, 16));
+        assertEquals(1, entries.size());
+        assertEquals("vobs/vob1/component/file1", entries.get(0).getElement());
+        assertEquals(1, fetches.size());
+    }
+
+    @Test
+    public void earlierSinceTest() throws Exception {
+        getEntries(date(2010, 10, 16));
+        /* the cache does not hold the history before its own date */
+        assertEquals(2, getEntries(date(2010, 10, 1)).size());
+        assertEquals(Arrays.asList(date(2010, 10, 16), date(2010, 10, 1)), fetches);
+        /* the newer history from the earlier date is kept */
+        getEntries(date(2010, 10, 5));
+        assertEquals(2, fetches.size());
+    }
+
+    @Test
+    public void concurrentStaleTest() throws Exception {
+        release = new CountDownLatch(1);
+        int jobs = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<List<HistoryEntry>>> results = new ArrayList<Future<List<HistoryEntry>>>();
+            for (int i = 0; i < jobs; i++) {
+                results.add(executor.submit(new Callable<List<HistoryEntry>>() {
+                    @Override
+                    public List<HistoryEntry> call() throws Exception {
+                        return getEntries(date(2010, 10, 16));
+                    }
+                }));
+            }
+            /* lets the other jobs find the feed stale while the first command runs */
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<HistoryEntry>> result : results) {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, fetches.size());
+    }
+
+    @Test
+    public void failedFetchTest() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                fetches.add((Date) invocation.getArguments()[1]);
+                throw new IOException("lshistory failed");
+            }
+        }).when(cleartool).lshistory(any(LsHistoryParser.class), any(Date.class), any(View.class),
+                anyString(), anyListOf(String.class));
+        for (int i = 0; i < 2; i++) {
+            try {
+                getEntries(date(2010, 10, 1));
+                fail("the error of lshistory must be raised");
+            } catch (IOException e) {
+                assertEquals("lshistory failed", e.getMessage());
+            }
+        }
+        /* nothing is cached, the slot of the failed command is released */
+        assertEquals(2, fetches.size());
+    }
+}
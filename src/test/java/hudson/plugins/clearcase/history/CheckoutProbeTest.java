@@ -0,0 +1,70 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckoutProbeTest {
+
+    private ClearTool cleartool;
+    private View view;
+    private List<String> branches;
+    private List<String> viewPaths;
+
+    @Before
+    public void setUp() {
+        cleartool = mock(ClearTool.class);
+        view = new View("view");
+        branches = Arrays.asList("dev", "int", "other");
+        viewPaths = Arrays.asList("vob/comp");
+    }
+
+    @Test
+    public void noCheckoutTest() throws Exception {
+        when(cleartool.getCheckoutBranches(branches, view, viewPaths)).thenReturn(
+                Collections.<String> emptySet());
+
+        CheckoutProbe probe = new CheckoutProbe(cleartool, view, branches, viewPaths);
+        probe.start();
+        probe.check();
+        /* checked once */
+        probe.check();
+        verify(cleartool, times(1)).getCheckoutBranches(branches, view, viewPaths);
+    }
+
+    @Test
+    public void checkoutTest() throws Exception {
+        when(cleartool.getCheckoutBranches(branches, view, viewPaths)).thenReturn(
+                new HashSet<String>(Arrays.asList("other", "int")));
+
+        for (boolean background : new boolean[] { false, true }) {
+            CheckoutProbe probe = new CheckoutProbe(cleartool, view, branches, viewPaths);
+            if (background) {
+                probe.start();
+            }
+            try {
+                probe.check();
+                fail("the checkouts must be reported");
+            } catch (ClearToolError e) {
+                /* the first branch with checkouts, in the order of the job */
+                assertEquals("There are checkouts in the branch: int. No build has been "
+                        + "triggered.", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class ClearCaseRevisionStateTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long BUILD = 1287000000000L;
+    private static final String LOAD_RULES = "vobs/vob1\nvobs/vob2";
+
+    private static HistoryEntry entry(long date, String element) {
+        HistoryEntry entry = new HistoryEntry();
+        entry.setDate(new Date(date));
+        entry.setElement(element);
+        entry.setVersionId("/main/branch/1");
+        entry.setEvent("create version");
+        entry.setOperation("checkin");
+        return entry;
+    }
+
+    @Test
+    public void recordTest() throws Exception {
+        ClearCaseRevisionState state = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD), 0);
+        assertEquals(new Date(BUILD), state.getMark("branch"));
+        assertEquals(new Date(BUILD), state.getSince("branch"));
+
+        state.record("branch", Arrays.asList(entry(BUILD + 2 * MINUTE, "vobs/vob1/a"),
+                entry(BUILD + MINUTE, "vobs/vob1/b")));
+        /* the mark is the newest event, the other branches keep the default one */
+        assertEquals(new Date(BUILD + 2 * MINUTE), state.getMark("branch"));
+        assertEquals(new Date(BUILD), state.getMark("other"));
+
+        /* an empty history does not move the mark back */
+        state.record("branch", Collections.<HistoryEntry> emptyList());
+        assertEquals(new Date(BUILD + 2 * MINUTE), state.getMark("branch"));
+    }
+
+    @Test
+    public void isSeenTest() throws Exception {
+        ClearCaseRevisionState state = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD),
+                10 * MINUTE);
+        HistoryEntry entry = entry(BUILD + MINUTE, "vobs/vob1/a");
+        state.record("branch", Arrays.asList(entry));
+
+        assertTrue(state.isSeen("branch", entry(BUILD + MINUTE, "vobs/vob1/a")));
+        assertFalse(state.isSeen("other", entry));
+        assertFalse(state.isSeen("branch", entry(BUILD + MINUTE, "vobs/vob1/b")));
+        HistoryEntry newVersion = entry(BUILD + MINUTE, "vobs/vob1/a");
+        newVersion.setVersionId("/main/branch/2");
+        assertFalse(state.isSeen("branch", newVersion));
+    }
+
+    @Test
+    public void pruneTest() throws Exception {
+        ClearCaseRevisionState state = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD),
+                10 * MINUTE);
+        HistoryEntry old = entry(BUILD + MINUTE, "vobs/vob1/a");
+        HistoryEntry recent = entry(BUILD + 20 * MINUTE, "vobs/vob1/b");
+        state.record("branch", Arrays.asList(old));
+        state.record("branch", Arrays.asList(recent, entry(BUILD + 25 * MINUTE, "vobs/vob1/c")));
+
+        /* the events older than the mark minus the buffer are not listed again */
+        assertFalse(state.isSeen("branch", old));
+        assertTrue(state.isSeen("branch", recent));
+    }
+
+    @Test
+    public void multiSiteBufferTest() throws Exception {
+        ClearCaseRevisionState state = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD),
+                10 * MINUTE);
+        assertEquals(new Date(BUILD - 10 * MINUTE), state.getSince("branch"));
+
+        HistoryEntry local = entry(BUILD + 30 * MINUTE, "vobs/vob1/a");
+        state.record("branch", Arrays.asList(local));
+        assertEquals(new Date(BUILD + 20 * MINUTE), state.getSince("branch"));
+
+        /* a replicated event older than the mark is listed again within the buffer */
+        HistoryEntry replicated = entry(BUILD + 25 * MINUTE, "vobs/vob2/b");
+        assertFalse(state.isSeen("branch", replicated));
+        state.record("branch", Arrays.asList(local, replicated));
+        assertTrue(state.isSeen("branch", local));
+        assertTrue(state.isSeen("branch", replicated));
+        assertEquals(new Date(BUILD + 30 * MINUTE), state.getMark("branch"));
+    }
+
+    @Test
+    public void copyTest() throws Exception {
+        ClearCaseRevisionState baseline = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD),
+                10 * MINUTE);
+        HistoryEntry entry = entry(BUILD + MINUTE, "vobs/vob1/a");
+        baseline.record("branch", Arrays.asList(entry));
+
+        ClearCaseRevisionState remote = new ClearCaseRevisionState(baseline);
+        remote.record("branch", Arrays.asList(entry(BUILD + 5 * MINUTE, "vobs/vob1/b")));
+        assertTrue(remote.isSeen("branch", entry));
+        /* the poll does not change the baseline */
+        assertEquals(new Date(BUILD + MINUTE), baseline.getMark("branch"));
+        assertFalse(baseline.isSeen("branch", entry(BUILD + 5 * MINUTE, "vobs/vob1/b")));
+    }
+
+    @Test
+    public void isCompatibleTest() throws Exception {
+        ClearCaseRevisionState state = new ClearCaseRevisionState(LOAD_RULES, new Date(BUILD), 0);
+        assertTrue(state.isCompatible("vobs/vob1\nvobs/vob2"));
+        assertTrue(new ClearCaseRevisionState(state).isCompatible(LOAD_RULES));
+        /* a changed load rule discards the marks */
+        assertFalse(state.isCompatible("vobs/vob1\nvobs/vob3"));
+        assertFalse(state.isCompatible(null));
+
+        ClearCaseRevisionState noRules = new ClearCaseRevisionState(null, new Date(BUILD), 0);
+        assertTrue(noRules.isCompatible(null));
+        assertFalse(noRules.isCompatible(LOAD_RULES));
+    }
+}
@@ -0,0 +1,183 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+
+import hudson.plugins.clearcase.objects.AffectedFile;
+import hudson.plugins.clearcase.objects.BaseChangeLogEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EntryMergerTest {
+
+    static List<BaseChangeLogEntry> createEntries(long seed, int count, int users, int comments,
+            long spanMillis)
+    {
+        Random random = new Random(seed);
+        List<BaseChangeLogEntry> entries = new ArrayList<BaseChangeLogEntry>();
+        long start = 1270000000000L;
+        for (int i = 0; i < count; i++) {
+            BaseChangeLogEntry entry = new BaseChangeLogEntry();
+            entry.setUser("user" + random.nextInt(users));
+            entry.setComment("comment" + random.nextInt(comments));
+            /* whole seconds, as in lshistory */
+            entry.setDate(new Date(start + (random.nextLong() & Long.MAX_VALUE) % spanMillis
+                    / 1000 * 1000));
+            AffectedFile file = new AffectedFile();
+            file.setName("vob/dir/file" + i + ".c");
+            file.setVersion("/main/" + i);
+            entry.addFile(file);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    static String describe(List<BaseChangeLogEntry> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (BaseChangeLogEntry entry : entries) {
+            sb.append(entry.getUser()).append(' ').append(entry.getComment()).append(' ')
+                    .append(entry.getDate().getTime());
+            for (AffectedFile file : entry.getFiles()) {
+                sb.append(' ').append(file.getName());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameAsReference(long seed, int count, int users, int comments,
+            long spanMillis, int window)
+    {
+        List<BaseChangeLogEntry> expected = new ReferenceEntryMerger(window).getMergedList(
+                createEntries(seed, count, users, comments, spanMillis));
+        List<BaseChangeLogEntry> actual = new EntryMerger(window).getMergedList(
+                createEntries(seed, count, users, comments, spanMillis));
+        assertEquals("seed " + seed, describe(expected), describe(actual));
+    }
+
+    @Test
+    public void testSameAsReference() {
+        for (long seed = 0; seed < 300; seed++) {
+            assertSameAsReference(seed, 200, 3, 4, 600000L, 5000);
+            assertSameAsReference(seed, 200, 2, 2, 3600000L, 60000);
+            assertSameAsReference(seed, 100, 1, 1, 60000L, 0);
+        }
+    }
+
+    @Test
+    public void testSameAsReferenceWithSortedEntries() {
+        for (long seed = 0; seed < 100; seed++) {
+            List<BaseChangeLogEntry> expectedInput = createEntries(seed, 300, 2, 3, 3600000L);
+            List<BaseChangeLogEntry> actualInput = createEntries(seed, 300, 2, 3, 3600000L);
+            Comparator<BaseChangeLogEntry> newestFirst = new Comparator<BaseChangeLogEntry>() {
+                public int compare(BaseChangeLogEntry o1, BaseChangeLogEntry o2) {
+                    return o2.getDate().compareTo(o1.getDate());
+                }
+            };
+            Collections.sort(expectedInput, newestFirst);
+            Collections.sort(actualInput, newestFirst);
+            assertEquals(describe(new ReferenceEntryMerger(30000).getMergedList(expectedInput)),
+                    describe(new EntryMerger(30000).getMergedList(actualInput)));
+        }
+    }
+
+    @Test
+    public void testMergesWithinTheWindow() {
+        List<BaseChangeLogEntry> entries = createEntries(1, 3, 1, 1, 1000L);
+        entries.get(0).setDate(new Date(100000L));
+        entries.get(1).setDate(new Date(105000L));
+        entries.get(2).setDate(new Date(111000L));
+
+        List<BaseChangeLogEntry> merged = new EntryMerger(6000).getMergedList(entries);
+
+        assertEquals(1, merged.size());
+        assertEquals(3, merged.get(0).getFiles().size());
+        assertEquals(100000L, merged.get(0).getDate().getTime());
+    }
+
+    /**
+     * The previous implementation, which compares each entry with all the merged entries of its
+     * user. The new one must give the same result.
+     */
+    static class ReferenceEntryMerger {
+
+        private final Map<String, List<Merged>> userEntries = new HashMap<String, List<Merged>>();
+        private final int maxTimeDifference;
+
+        ReferenceEntryMerger(int maxTimeDifferenceMillis) {
+            this.maxTimeDifference = maxTimeDifferenceMillis + 1000;
+        }
+
+        List<BaseChangeLogEntry> getMergedList(List<BaseChangeLogEntry> orgList) {
+            userEntries.clear();
+            for (BaseChangeLogEntry entry : orgList) {
+                boolean wasMerged = false;
+                if (!userEntries.containsKey(entry.getUser())) {
+                    userEntries.put(entry.getUser(), new ArrayList<Merged>());
+                }
+                List<Merged> entries = userEntries.get(entry.getUser());
+                for (Merged storedEntry : entries) {
+                    if (canBeMerged(storedEntry, entry)) {
+                        storedEntry.merge(entry);
+                        wasMerged = true;
+                        break;
+                    }
+                }
+                if (!wasMerged) {
+                    entries.add(new Merged(entry));
+                }
+            }
+            List<BaseChangeLogEntry> list = new ArrayList<BaseChangeLogEntry>();
+            for (String user : userEntries.keySet()) {
+                for (Merged entry : userEntries.get(user)) {
+                    entry.entry.setDate(entry.oldest);
+                    list.add(entry.entry);
+                }
+            }
+            Collections.sort(list, new Comparator<BaseChangeLogEntry>() {
+                public int compare(BaseChangeLogEntry o1, BaseChangeLogEntry o2) {
+                    return o2.getDate().compareTo(o1.getDate());
+                }
+            });
+            return list;
+        }
+
+        private boolean canBeMerged(Merged entryOne, BaseChangeLogEntry entryTwo) {
+            if (entryOne.entry.getComment().equals(entryTwo.getComment())) {
+                long oldestDiff = Math.abs(entryOne.oldest.getTime() - entryTwo.getDate().getTime());
+                long newestDiff = Math.abs(entryOne.newest.getTime() - entryTwo.getDate().getTime());
+                return (oldestDiff < maxTimeDifference) || (newestDiff < maxTimeDifference);
+            }
+            return false;
+        }
+
+        private static class Merged {
+            private final BaseChangeLogEntry entry;
+            private Date oldest;
+            private Date newest;
+
+            Merged(BaseChangeLogEntry entry) {
+                this.entry = entry;
+                oldest = entry.getDate();
+                newest = entry.getDate();
+            }
+
+            void merge(BaseChangeLogEntry newEntry) {
+                if (newEntry.getDate().after(newest)) {
+                    newest = newEntry.getDate();
+                } else {
+                    oldest = newEntry.getDate();
+                }
+                entry.getAffectedFiles().addAll(newEntry.getAffectedFiles());
+            }
+        }
+    }
+}
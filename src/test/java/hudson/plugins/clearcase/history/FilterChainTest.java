@@ -0,0 +1,66 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import hudson.plugins.clearcase.history.Filter.DefaultFilter;
+import hudson.plugins.clearcase.history.Filter.FieldFilter.Type;
+import hudson.plugins.clearcase.history.Filter.FileFilter;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FilterChainTest {
+
+    private static HistoryEntry entry(String element, String versionId) {
+        HistoryEntry entry = new HistoryEntry();
+        entry.setDate(new Date(0));
+        entry.setElement(element);
+        entry.setVersionId(versionId);
+        entry.setEvent("create version");
+        entry.setOperation("checkin");
+        return entry;
+    }
+
+    @Test
+    public void sameResultAsFiltersTest() throws Exception {
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new DefaultFilter());
+        filters.add(new FileFilter(Type.DoesNotContainRegxp, "\\.txt$"));
+        filters.add(new FileFilter(Type.DoesNotContainRegxp, "/doc/"));
+        filters.add(new FileFilter(Type.DoesNotContainIgnoreCase, "GENERATED"));
+        filters.add(new FileFilter(Type.ContainsRegxp, "(vobs/vob1/comp)"));
+        FilterChain chain = FilterChain.compile(filters);
+
+        HistoryEntry[] entries = {
+                entry("/vobs/vob1/comp/a.c", "/main/2"),
+                entry("/vobs/vob1/comp/a.c", "/main/dev/0"),
+                entry("/vobs/vob1/comp/readme.txt", "/main/2"),
+                entry("/vobs/vob1/comp/doc/a.c", "/main/2"),
+                entry("/vobs/vob1/comp/Generated/a.c", "/main/2"),
+                entry("/vobs/vob2/comp/a.c", "/main/2"), };
+        for (HistoryEntry e : entries) {
+            boolean expected = true;
+            for (Filter filter : filters) {
+                expected = expected && filter.accept(e);
+            }
+            assertEquals(e.getElement() + e.getVersionId(), expected, chain.accept(e));
+        }
+        assertTrue(chain.accept(entries[0]));
+        assertFalse(chain.accept(entries[4]));
+
+        /* the two excluded regions are merged */
+        List<FilterChain.Statistic> stats = chain.getStatistics();
+        assertEquals(4, stats.size());
+        long rejected = 0;
+        for (FilterChain.Statistic stat : stats) {
+            rejected += stat.getRejected();
+        }
+        assertEquals(6, rejected);
+    }
+}
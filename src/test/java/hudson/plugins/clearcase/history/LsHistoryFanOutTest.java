@@ -0,0 +1,242 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.cleartool.HistoryFormatHandler;
+import hudson.plugins.clearcase.cleartool.LsHistoryParser;
+import hudson.plugins.clearcase.objects.HistoryEntry;
+import hudson.plugins.clearcase.objects.View;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class LsHistoryFanOutTest {
+
+    private static final HistoryFormatHandler FORMAT = new HistoryFormatHandler(
+            HistoryFormatHandler.DATE_NUMERIC, HistoryFormatHandler.USER_ID,
+            HistoryFormatHandler.NAME_ELEMENTNAME, HistoryFormatHandler.NAME_VERSIONID,
+            HistoryFormatHandler.EVENT, HistoryFormatHandler.OPERATION);
+    private static final List<String> PATHS = Arrays.asList("vobs/vob1", "vobs/vob2",
+            "vobs/vob3", "vobs/vob4");
+
+    private ClearTool cleartool;
+    private View view;
+    /* the answer of the lshistory command of each branch and path */
+    private final Map<String, LsHistory> answers = new HashMap<String, LsHistory>();
+
+    @Before
+    public void setUp() throws Exception {
+        /* the answers of a stubbed method do not run concurrently, the default answer does */
+        cleartool = mock(ClearTool.class, new Answer<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                if (invocation.getMethod().getName().equals("lshistory")
+                        && args[0] instanceof LsHistoryParser) {
+                    String shard = args[3] + " " + ((List<String>) args[4]).get(0);
+                    answers.get(shard).answer((LsHistoryParser) args[0]);
+                }
+                return null;
+            }
+        });
+        view = new View("view");
+    }
+
+    private static String line(String element) {
+        return "\"20101018.115752\" \"user\" \"/view/" + element
+                + "\" \"/main/branch/1\" \"create version\" \"checkin\" ";
+    }
+
+    private interface LsHistory {
+        void answer(LsHistoryParser parser) throws IOException, InterruptedException,
+                ParseException;
+    }
+
+    /**
+     * Lists one entry named after the shard once <tt>before</tt> is released, then releases
+     * <tt>after</tt>.
+     */
+    private static LsHistory listing(final String element, final CountDownLatch before,
+            final CountDownLatch after)
+    {
+        return new LsHistory() {
+            @Override
+            public void answer(LsHistoryParser parser) throws IOException, InterruptedException,
+                    ParseException
+            {
+                if (before != null) {
+                    before.await();
+                }
+                parser.handle(line(element));
+                parser.finish();
+                if (after != null) {
+                    after.countDown();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until it is interrupted.
+     */
+    private static LsHistory blocking(final CountDownLatch started,
+            final CountDownLatch interrupted)
+    {
+        return new LsHistory() {
+            @Override
+            public void answer(LsHistoryParser parser) throws IOException, InterruptedException,
+                    ParseException
+            {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private static List<LsHistoryFanOut.Shard> prepare(List<LsHistoryFanOut.Shard> shards) {
+        for (LsHistoryFanOut.Shard shard : shards) {
+            shard.since = new Date(0);
+            shard.parser = new LsHistoryParser(FORMAT, "/view/");
+        }
+        return shards;
+    }
+
+    private static List<String> elements(List<HistoryEntry> entries) {
+        List<String> elements = new ArrayList<String>();
+        for (HistoryEntry entry : entries) {
+            elements.add(entry.getElement());
+        }
+        return elements;
+    }
+
+    @Test
+    public void mergeOrderTest() throws Exception {
+        List<String> branches = Arrays.asList("br1", "br2");
+        List<String> expected = new ArrayList<String>();
+        /* each command ends after the next one, the last shard ends first */
+        CountDownLatch next = new CountDownLatch(0);
+        for (int b = branches.size() - 1; b >= 0; b--) {
+            for (int p = PATHS.size() - 1; p >= 0; p--) {
+                String shard = branches.get(b) + " " + PATHS.get(p);
+                CountDownLatch done = new CountDownLatch(1);
+                answers.put(shard, listing(shard.replace(' ', '/'), next, done));
+                expected.add(0, shard.replace(' ', '/'));
+                next = done;
+            }
+        }
+
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, 8);
+        List<LsHistoryFanOut.Shard> shards = prepare(fanOut.createShards(branches, PATHS));
+        assertEquals(8, shards.size());
+        fanOut.run(shards, view);
+
+        Map<String, List<HistoryEntry>> complete = new LinkedHashMap<String, List<HistoryEntry>>();
+        assertEquals(expected, elements(fanOut.merge(shards, complete)));
+        assertEquals(branches, new ArrayList<String>(complete.keySet()));
+        assertEquals(expected.subList(4, 8), elements(complete.get("br2")));
+    }
+
+    @Test
+    public void stopCancelsTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch interrupted = new CountDownLatch(3);
+        answers.put("br vobs/vob1", listing("br/vob1", started, null));
+        for (int p = 1; p < PATHS.size(); p++) {
+            answers.put("br " + PATHS.get(p), blocking(started, interrupted));
+        }
+
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, 4);
+        List<LsHistoryFanOut.Shard> shards = fanOut.createShards(Arrays.asList("br"), PATHS);
+        prepare(shards);
+        shards.get(0).parser = new LsHistoryParser(FORMAT, "/view/") {
+            @Override
+            protected boolean entryCompleted(HistoryEntry entry) {
+                super.entryCompleted(entry);
+                /* the first accepted entry stops the poll */
+                return false;
+            }
+        };
+        fanOut.run(shards, view);
+
+        /* the commands of the next shards are interrupted */
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("br/vob1"), elements(fanOut.merge(shards, null)));
+    }
+
+    @Test
+    public void stopSkipsTest() throws Exception {
+        answers.put("br1 vobs/vob1", listing("br1/vob1", null, null));
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, 1);
+        List<LsHistoryFanOut.Shard> shards = fanOut.createShards(Arrays.asList("br1", "br2"),
+                Arrays.asList("vobs/vob1"));
+        prepare(shards);
+        shards.get(0).parser = new LsHistoryParser(FORMAT, "/view/") {
+            @Override
+            protected boolean entryCompleted(HistoryEntry entry) {
+                return false;
+            }
+        };
+        /* the command of the second branch is not run, it has no answer */
+        fanOut.run(shards, view);
+        assertTrue(shards.get(0).completed);
+        assertFalse(shards.get(1).completed);
+    }
+
+    @Test
+    public void parseErrorTest() throws Exception {
+        final ParseException error = new ParseException("Unparseable date: \"2010101\"", 0);
+        final CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        /* the first shard ends once the next ones are interrupted */
+        answers.put("br vobs/vob1", listing("br/vob1", interrupted, null));
+        answers.put("br vobs/vob2", new LsHistory() {
+            @Override
+            public void answer(LsHistoryParser parser) throws IOException, InterruptedException,
+                    ParseException
+            {
+                started.await();
+                throw error;
+            }
+        });
+        answers.put("br vobs/vob3", blocking(started, interrupted));
+        answers.put("br vobs/vob4", blocking(started, interrupted));
+
+        LsHistoryFanOut fanOut = new LsHistoryFanOut(cleartool, 4);
+        List<LsHistoryFanOut.Shard> shards = prepare(fanOut.createShards(Arrays.asList("br"),
+                PATHS));
+        try {
+            fanOut.run(shards, view);
+            fail("the error of the second shard must be raised");
+        } catch (ParseException e) {
+            assertSame(error, e);
+        }
+        /* the shard before the error is completed */
+        assertEquals(Arrays.asList("br/vob1"), elements(fanOut.merge(shards, null)));
+    }
+}
@@ -0,0 +1,104 @@
+package hudson.plugins.clearcase.history;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.plugins.clearcase.cleartool.ClearTool;
+import hudson.plugins.clearcase.objects.Baseline;
+import hudson.plugins.clearcase.objects.Baseline.PromotionLevel;
+import hudson.plugins.clearcase.objects.Stream;
+import hudson.plugins.clearcase.objects.View;
+import hudson.plugins.clearcase.util.ClearToolError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UcmBaselineHistoryActionTest {
+
+    private ClearTool cleartool;
+    private View view;
+    private List<Stream> children;
+
+    @Before
+    public void setUp() throws Exception {
+        ChildStreamCache.getInstance().clear();
+        cleartool = mock(ClearTool.class);
+        Stream parent = new Stream("int_stream@/pvob");
+        view = new View("view", parent);
+        children = new ArrayList<Stream>();
+        for (int i = 0; i < 8; i++) {
+            Stream child = new Stream("dev_stream" + i + "@/pvob");
+            children.add(child);
+            when(cleartool.getBaselines(eq(child), any(PromotionLevel.class), eq(false)))
+                    .thenReturn(Collections.<Baseline> emptyList());
+        }
+        when(cleartool.getChildStreams(parent)).thenReturn(children);
+    }
+
+    private void setBaseline(int child, String name) throws Exception {
+        Baseline baseline = new Baseline(name + "@/pvob");
+        baseline.setStream(children.get(child));
+        when(cleartool.getBaselines(eq(children.get(child)), any(PromotionLevel.class),
+                eq(false))).thenReturn(Arrays.asList(baseline));
+    }
+
+    private UcmBaselineHistoryAction createAction(int parallelism) {
+        UcmBaselineHistoryAction action = new UcmBaselineHistoryAction(cleartool,
+                PromotionLevel.BUILT);
+        action.setParallelism(parallelism);
+        return action;
+    }
+
+    @Test
+    public void findBaselineTest() throws Exception {
+        setBaseline(3, "bl3");
+        setBaseline(6, "bl6");
+
+        assertEquals("bl3", createAction(1).findBaseline(view).getName());
+        assertEquals("bl3", createAction(4).findBaseline(view).getName());
+        assertTrue(createAction(4).pollChanges(null, null, view, null, null));
+        /* the child streams are listed once */
+        verify(cleartool, times(1)).getChildStreams(view.getStream());
+    }
+
+    @Test
+    public void noBaselineTest() throws Exception {
+        assertNull(createAction(1).findBaseline(view));
+        assertNull(createAction(4).findBaseline(view));
+        for (Stream child : children) {
+            verify(cleartool, times(2)).getBaselines(child, PromotionLevel.BUILT, false);
+        }
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        setBaseline(6, "bl6");
+        when(cleartool.getBaselines(eq(children.get(2)), any(PromotionLevel.class), eq(false)))
+                .thenThrow(new ClearToolError("lsbl", "cleartool: Error: stream not found", 1,
+                        null));
+
+        try {
+            createAction(4).findBaseline(view);
+            fail("the error of the stream before the baseline must be raised");
+        } catch (ClearToolError e) {
+            /* expected */
+        }
+        /* a poll only needs a baseline */
+        assertTrue(createAction(4).pollChanges(null, null, view, null, null));
+        /* the child streams are listed again after the error */
+        verify(cleartool, times(2)).getChildStreams(view.getStream());
+    }
+}
@@ -0,0 +1,22 @@
+package hudson.plugins.clearcase.trigger;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TriggerEndpointTest {
+
+    @Test
+    public void isValidTokenTest() throws Exception {
+        assertTrue(TriggerEndpoint.isValidToken("s3cret", "s3cret"));
+        assertFalse(TriggerEndpoint.isValidToken("s3cret", "s3creT"));
+        assertFalse(TriggerEndpoint.isValidToken("s3cret", "s3cret2"));
+        assertFalse(TriggerEndpoint.isValidToken("s3cret", "s3c"));
+        assertFalse(TriggerEndpoint.isValidToken("s3cret", ""));
+        assertFalse(TriggerEndpoint.isValidToken("s3cret", null));
+        /* without a configured token, nothing is accepted */
+        assertFalse(TriggerEndpoint.isValidToken("", ""));
+        assertFalse(TriggerEndpoint.isValidToken(null, "s3cret"));
+    }
+}
@@ -0,0 +1,93 @@
+package hudson.plugins.clearcase.trigger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Cause;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearCaseUcmSCM;
+import hudson.security.ACL;
+import hudson.triggers.SCMTrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TriggerEventDispatcherTest {
+
+    private TriggerEvent event;
+
+    @Before
+    public void setUp() {
+        Map<String, String> vars = new HashMap<String, String>();
+        vars.put("CLEARCASE_OP_KIND", "deliver_complete");
+        vars.put("CLEARCASE_STREAM", "stream:int_stream@\\pvob");
+        event = new TriggerEvent(vars, new Date(0));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private AbstractProject project(String name, boolean polled) throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        when(project.getFullName()).thenReturn(name);
+        when(project.getScm()).thenReturn(new ClearCaseUcmSCM(name, null, false, false, null,
+                "/vobs/vob1", false, null, 0, null, false, "", "int_stream@\\pvob"));
+        if (polled) {
+            when(project.getTrigger(SCMTrigger.class)).thenReturn(mock(SCMTrigger.class));
+        }
+        AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getEnvironment(any(TaskListener.class))).thenReturn(new EnvVars());
+        when(project.getLastBuild()).thenReturn(build);
+        when(project.scheduleBuild(anyInt(), any(Cause.class))).thenReturn(true);
+        return project;
+    }
+
+    @Test
+    public void dispatchWithSecurityTest() throws Exception {
+        /* the request of a trigger script on a secured Jenkins is anonymous */
+        SecurityContextHolder.getContext().setAuthentication(Hudson.ANONYMOUS);
+
+        final List<AbstractProject> projects = Arrays.asList(project("polled", true), project(
+                "manual", false));
+        final List<Authentication> readers = new ArrayList<Authentication>();
+        Hudson hudson = mock(Hudson.class);
+        when(hudson.getAllItems(AbstractProject.class)).thenAnswer(new Answer<List>() {
+            @Override
+            public List answer(InvocationOnMock invocation) {
+                Authentication reader = SecurityContextHolder.getContext().getAuthentication();
+                readers.add(reader);
+                /* the jobs that the current user cannot read are left out */
+                return reader == ACL.SYSTEM ? projects : Collections.emptyList();
+            }
+        });
+
+        /* the jobs built by hand are not triggered */
+        assertEquals(Arrays.asList("polled"), TriggerEventDispatcher.dispatch(event, hudson));
+        assertEquals(Arrays.asList(ACL.SYSTEM), readers);
+        assertSame(Hudson.ANONYMOUS, SecurityContextHolder.getContext().getAuthentication());
+    }
+}
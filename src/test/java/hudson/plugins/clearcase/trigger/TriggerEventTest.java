@@ -0,0 +1,59 @@
+package hudson.plugins.clearcase.trigger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import hudson.plugins.clearcase.objects.HistoryEntry;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TriggerEventTest {
+
+    @Test
+    public void checkinTest() throws Exception {
+        Map<String, String> vars = new HashMap<String, String>();
+        vars.put("CLEARCASE_OP_KIND", "checkin");
+        vars.put("CLEARCASE_PN", "/view/joe/vobs/vob1/comp/a.c");
+        vars.put("CLEARCASE_ID_STR", "/main/dev/3");
+        vars.put("CLEARCASE_BRTYPE", "dev");
+        vars.put("CLEARCASE_USER", "joe");
+        vars.put("PATH", "/usr/bin");
+        TriggerEvent event = new TriggerEvent(vars, new Date(0));
+
+        assertTrue(event.isValid());
+        assertTrue(event.hasElement());
+        assertEquals(Arrays.asList("dev"), Arrays.asList(event.getBranchNames().toArray()));
+
+        HistoryEntry entry = event.toHistoryEntry();
+        assertEquals("/view/joe/vobs/vob1/comp/a.c", entry.getElement());
+        assertEquals("/main/dev/3", entry.getVersionId());
+        assertEquals("create version", entry.getEvent());
+        assertEquals("joe", entry.getUser());
+    }
+
+    @Test
+    public void deliverTest() throws Exception {
+        Map<String, String> vars = new HashMap<String, String>();
+        vars.put("CLEARCASE_OP_KIND", "deliver_complete");
+        vars.put("CLEARCASE_STREAM", "stream:int_stream@\\pvob");
+        vars.put("CLEARCASE_PN", " ");
+        TriggerEvent event = new TriggerEvent(vars, new Date(0));
+
+        assertTrue(event.isValid());
+        assertFalse(event.hasElement());
+        assertEquals(Arrays.asList("int_stream"), Arrays.asList(event.getBranchNames().toArray()));
+    }
+
+    @Test
+    public void invalidTest() throws Exception {
+        Map<String, String> vars = new HashMap<String, String>();
+        vars.put("CLEARCASE_PN", "/vobs/vob1/a.c");
+        assertFalse(new TriggerEvent(vars, new Date(0)).isValid());
+    }
+}
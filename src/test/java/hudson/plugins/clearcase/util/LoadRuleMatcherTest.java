@@ -0,0 +1,82 @@
+package hudson.plugins.clearcase.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LoadRuleMatcherTest {
+
+    @Test
+    public void sameAsRegexpTest() throws Exception {
+        List<String> rules = new ArrayList<String>();
+        for (int i = 0; i < 300; i++) {
+            rules.add("vobs/vob" + (i % 7) + "/comp" + i);
+        }
+        rules.add("vobs/shared/include");
+        LoadRuleMatcher matcher = new LoadRuleMatcher(rules);
+        Pattern regexp = Pattern.compile(Tools.createFileFilterPattern(rules, false));
+
+        String[] paths = { "/vobs/vob3/comp3/src/a.c", "/vobs/vob3/comp4/src/a.c",
+                "/view/tag/vobs/vob0/comp0", "/vobs/vob1/comp15x/b.h", "/vobs/vob1/comp",
+                "/vobs/shared/include/x.h", "/vobs/shared/inc/x.h", "vobs/vob6/comp299",
+                "", "/", "/vobs/vob6/comp29" };
+        for (String path : paths) {
+            assertEquals(path, regexp.matcher(path).find(), matcher.isContainedIn(path));
+        }
+    }
+
+    @Test
+    public void separatorsTest() throws Exception {
+        LoadRuleMatcher matcher = new LoadRuleMatcher(Arrays.asList("vob1\\comp", "vob2/comp"));
+        assertTrue(matcher.isContainedIn("M:\\view\\vob1\\comp\\a.c"));
+        assertTrue(matcher.isContainedIn("/view/vob1/comp/a.c"));
+        assertTrue(matcher.isContainedIn("M:\\view\\vob2\\comp\\a.c"));
+        assertFalse(matcher.isContainedIn("M:\\view\\vob3\\comp\\a.c"));
+    }
+
+    @Test
+    public void overlappingRulesTest() throws Exception {
+        /* the suffix links must find "abd" after a partial "abc" */
+        LoadRuleMatcher matcher = new LoadRuleMatcher(Arrays.asList("xabc", "bd"));
+        assertTrue(matcher.isContainedIn("xabd"));
+        assertTrue(matcher.isContainedIn("xxabc"));
+        assertFalse(matcher.isContainedIn("xab"));
+    }
+
+    @Test
+    public void prefixTest() throws Exception {
+        LoadRuleMatcher matcher = new LoadRuleMatcher(Arrays.asList("vobs/vob1/comp1",
+                "vobs/vob2"));
+        assertTrue(matcher.isPrefixOf("vobs/vob1/comp1/src"));
+        assertTrue(matcher.isPrefixOf("vobs\\vob2"));
+        assertFalse(matcher.isPrefixOf("vobs/vob1/comp"));
+        assertFalse(matcher.isPrefixOf("x/vobs/vob2"));
+    }
+
+    @Test
+    public void emptyRulesTest() throws Exception {
+        LoadRuleMatcher matcher = new LoadRuleMatcher(Collections.singletonList(""));
+        assertTrue(matcher.isContainedIn("/vobs/anything"));
+        assertEquals(0, matcher.size());
+    }
+
+    @Test
+    public void rootlessAndRootedComponentsTest() throws Exception {
+        /* the root of a rootless component is empty, it is a prefix of every path */
+        LoadRuleMatcher matcher = new LoadRuleMatcher(Arrays.asList("", "vobs/vob1/comp1"));
+        assertTrue(matcher.isPrefixOf("vobs/vob1/comp1/src"));
+        assertTrue(matcher.isPrefixOf("vobs/rootless/src"));
+        /* as in the regular expression, an empty load rule is ignored by the filters */
+        assertTrue(matcher.isContainedIn("/view/vobs/vob1/comp1/a.c"));
+        assertFalse(matcher.isContainedIn("/view/vobs/vob2/a.c"));
+        assertEquals(1, matcher.size());
+    }
+}
@@ -0,0 +1,57 @@
+package hudson.plugins.clearcase.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import hudson.plugins.clearcase.objects.AffectedFile;
+
+import org.junit.Test;
+
+public class StringPoolTest {
+
+    @Test
+    public void testEqualStringsAreShared() {
+        String a = new String("create version");
+        String b = new String("create version");
+        assertNotSame(a, b);
+        assertSame(StringPool.intern(a), StringPool.intern(b));
+        assertEquals("create version", StringPool.intern(a));
+    }
+
+    @Test
+    public void testNullAndEmpty() {
+        assertNull(StringPool.intern(null));
+        assertEquals("", StringPool.intern(new String("")));
+    }
+
+    @Test
+    public void testLastSeparator() {
+        assertEquals(-1, StringPool.lastSeparator("file.c"));
+        assertEquals(3, StringPool.lastSeparator("vob/file.c"));
+        assertEquals(7, StringPool.lastSeparator("vob/dir\\file.c"));
+    }
+
+    @Test
+    public void testAffectedFileKeepsItsPaths() {
+        AffectedFile a = new AffectedFile();
+        a.setName("vob\\comp\\src\\a.c");
+        a.setVersion("/main/int/12");
+        AffectedFile b = new AffectedFile();
+        b.setName("vob\\comp\\src\\b.c");
+        b.setVersion("/main/int/3");
+        assertEquals("vob\\comp\\src\\a.c", a.getName());
+        assertEquals("vob\\comp\\src\\a.c", a.getPath());
+        assertEquals("/main/int/12", a.getVersion());
+        assertEquals("vob\\comp\\src\\b.c", b.getName());
+        assertEquals("/main/int/3", b.getVersion());
+
+        AffectedFile c = new AffectedFile();
+        c.setName("a.c");
+        assertEquals("a.c", c.getName());
+        c.setName("");
+        assertEquals("", c.getName());
+        assertEquals("", new AffectedFile().getVersion());
+    }
+}